@@ -0,0 +1,505 @@
+package edu.stockton.project;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+
+/**
+ * Headless batch processing of many images, without JavaFX.
+ *
+ * <p>Usage: {@code Batch <images> <config> <output directory>}. The images are either a directory,
+ * whose image files are processed in name order, or a manifest listing one image path per line,
+ * relative to the manifest; blank lines and lines starting with {@code #} are skipped. The config
+ * is a properties file with the keys below, all optional. Every image is drawn into the output
+ * directory under its own name, and {@code summary.tsv} there lists the time each stage took on
+ * each image.
+ *
+ * <pre>
+ * stipples=2000        stipples per image
+ * scale=3.0            size of the drawing relative to the working resolution
+ * strokeWidth=1.0      width of the tour line
+ * format=png           png, svg or pdf
+ * populationSize=100   settings of the generational EA, see TSPArtExample
+ * eliteCount=10
+ * mutationRate=0.3
+ * crossoverRate=0.1
+ * maxGenerations=100000
+ * stippleThreads=      images stippled at the same time, half the cores by default
+ * solveThreads=        images solved at the same time, the other half by default
+ * queueCapacity=2      images waiting between two stages
+ * </pre>
+ *
+ * <p>The stages decode, stipple, solve, render and encode run on their own threads and hand images
+ * on through bounded queues, so while one image is solved the next is already stippled and the
+ * previous one written. The queues bound the number of images in memory, and a stage that is ahead
+ * waits for the next one. An image that fails in one stage skips the rest and is reported in the
+ * summary; the batch goes on. Stipples and tours are looked up in the {@link DiskCache#getDefault
+ * default disk cache} first.
+ */
+public final class Batch {
+
+  /** Iterations of Lloyd's algorithm, as for single images. */
+  private static final int LLOYD_ITERATIONS = 50;
+
+  private enum Stage {
+    DECODE,
+    STIPPLE,
+    SOLVE,
+    RENDER,
+    ENCODE
+  }
+
+  /** Work of one stage on one image. */
+  @FunctionalInterface
+  private interface Work {
+    void process(Job job) throws IOException;
+  }
+
+  /** An image on its way through the stages. Each stage clears what later stages do not need. */
+  private static final class Job {
+    final int index;
+    final Path input;
+    final String name;
+    final long[] nanos = new long[Stage.values().length];
+
+    BufferedImage image;
+    int width;
+    int height;
+    String stipplesKey;
+    double[][] points;
+    int stippleCount;
+    int[] tour;
+    double length;
+    BufferedImage art;
+    boolean cached;
+    Throwable error;
+
+    Job(int index, Path input, String name) {
+      this.index = index;
+      this.input = input;
+      this.name = name;
+    }
+  }
+
+  /** Marks the end of the images on a queue. */
+  private static final Job END = new Job(-1, null, null);
+
+  /** Settings read from the config file. */
+  private static final class Settings {
+    final int stipples;
+    final double scale;
+    final double strokeWidth;
+    final String format;
+    final int populationSize;
+    final int eliteCount;
+    final double mutationRate;
+    final double crossoverRate;
+    final int maxGenerations;
+    final int stippleThreads;
+    final int solveThreads;
+    final int queueCapacity;
+
+    Settings(Properties properties) {
+      int cores = Runtime.getRuntime().availableProcessors();
+      stipples = integer(properties, "stipples", VoronoiStippler.DEFAULT_STIPPLES);
+      scale = number(properties, "scale", 3.0);
+      strokeWidth = number(properties, "strokeWidth", 1.0);
+      format = properties.getProperty("format", "png").trim().toLowerCase(Locale.ROOT);
+      populationSize = integer(properties, "populationSize", 100);
+      eliteCount = integer(properties, "eliteCount", 10);
+      mutationRate = number(properties, "mutationRate", 0.3);
+      crossoverRate = number(properties, "crossoverRate", 0.1);
+      maxGenerations = integer(properties, "maxGenerations", 100000);
+      stippleThreads = integer(properties, "stippleThreads", Math.max(1, cores / 2));
+      solveThreads = integer(properties, "solveThreads", Math.max(1, cores - stippleThreads));
+      queueCapacity = integer(properties, "queueCapacity", 2);
+
+      if (!format.equals("png") && !format.equals("svg") && !format.equals("pdf")) {
+        throw new IllegalArgumentException("format must be png, svg or pdf: " + format);
+      }
+      if (stipples < 1 || scale <= 0 || stippleThreads < 1 || solveThreads < 1) {
+        throw new IllegalArgumentException(
+            "stipples, scale, stippleThreads and solveThreads must be positive");
+      }
+      if (queueCapacity < 1) {
+        throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+      }
+    }
+
+    /** Settings that decide the tour, for the key of the disk cache. */
+    List<Object> solverKey() {
+      return List.of(
+          TSPArtExample.class.getName(),
+          populationSize,
+          eliteCount,
+          mutationRate,
+          crossoverRate,
+          maxGenerations);
+    }
+
+    private static int integer(Properties properties, String key, int defaultValue) {
+      String value = properties.getProperty(key);
+      try {
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(key + " must be an integer: " + value);
+      }
+    }
+
+    private static double number(Properties properties, String key, double defaultValue) {
+      String value = properties.getProperty(key);
+      try {
+        return value == null || value.isBlank() ? defaultValue : Double.parseDouble(value.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(key + " must be a number: " + value);
+      }
+    }
+  }
+
+  private final Settings settings;
+  private final Path outputDirectory;
+  private final DiskCache cache = DiskCache.getDefault();
+
+  private Batch(Settings settings, Path outputDirectory) {
+    this.settings = settings;
+    this.outputDirectory = outputDirectory;
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    System.setProperty("java.awt.headless", "true");
+    if (args.length != 3) {
+      System.err.println("Usage: Batch <image directory or manifest> <config> <output directory>");
+      System.exit(2);
+    }
+
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    Path outputDirectory = Paths.get(args[2]);
+    Files.createDirectories(outputDirectory);
+
+    List<Path> inputs = listImages(Paths.get(args[0]));
+    long start = System.nanoTime();
+    List<Job> jobs = new Batch(new Settings(properties), outputDirectory).run(inputs);
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    long failed = jobs.stream().filter(job -> job.error != null).count();
+    Path summary = outputDirectory.resolve("summary.tsv");
+    writeSummary(summary, jobs);
+    System.out.printf(
+        Locale.ROOT,
+        "Processed %d images in %.1f s, %d failed. Timings in %s%n",
+        jobs.size(),
+        seconds,
+        failed,
+        summary.toAbsolutePath());
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Runs all images through the stages.
+   *
+   * @param inputs Image files
+   * @return The jobs in input order, each with its timings or its error
+   */
+  private List<Job> run(List<Path> inputs) throws InterruptedException {
+    List<BlockingQueue<Job>> queues = new ArrayList<>();
+    for (int i = 0; i <= Stage.values().length; i++) {
+      queues.add(new ArrayBlockingQueue<>(settings.queueCapacity));
+    }
+
+    List<Thread> threads = new ArrayList<>();
+    startStage(Stage.DECODE, 1, queues, this::decode, threads);
+    startStage(Stage.STIPPLE, settings.stippleThreads, queues, this::stipple, threads);
+    startStage(Stage.SOLVE, settings.solveThreads, queues, this::solve, threads);
+    startStage(Stage.RENDER, 1, queues, this::render, threads);
+    startStage(Stage.ENCODE, 1, queues, this::encode, threads);
+
+    // Feed the first queue from a thread of its own, so that this one can drain the last queue
+    Thread feeder =
+        new Thread(
+            () -> {
+              Set<String> names = new HashSet<>();
+              try {
+                for (int i = 0; i < inputs.size(); i++) {
+                  Path input = inputs.get(i);
+                  String name = baseName(input);
+                  if (!names.add(name)) {
+                    name = name + "-" + (i + 1);
+                  }
+                  queues.get(0).put(new Job(i, input, name));
+                }
+                queues.get(0).put(END);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            },
+            "batch-feeder");
+    feeder.start();
+
+    List<Job> done = new ArrayList<>();
+    BlockingQueue<Job> last = queues.get(queues.size() - 1);
+    for (Job job = last.take(); job != END; job = last.take()) {
+      done.add(job);
+      if (job.error != null) {
+        System.err.printf("%s: failed: %s%n", job.input, job.error);
+      } else {
+        System.out.printf(
+            Locale.ROOT,
+            "%s: %d stipples, length %.1f, %.1f s%n",
+            job.input,
+            job.stippleCount,
+            job.length,
+            Arrays.stream(job.nanos).sum() / 1e9);
+      }
+      job.points = null;
+      job.tour = null;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    done.sort(Comparator.comparingInt(job -> job.index));
+    return done;
+  }
+
+  /**
+   * Starts the workers of a stage. Each takes images from the queue before the stage and puts them
+   * on the queue after it. Whatever a job throws is recorded as its error, so a worker only stops
+   * at the end marker or when interrupted. The end marker is put back for the other workers, and
+   * the last worker to stop passes it on, however it stopped, so the stages after it finish.
+   */
+  private static void startStage(
+      Stage stage, int workers, List<BlockingQueue<Job>> queues, Work work, List<Thread> threads) {
+    BlockingQueue<Job> in = queues.get(stage.ordinal());
+    BlockingQueue<Job> out = queues.get(stage.ordinal() + 1);
+    AtomicInteger running = new AtomicInteger(workers);
+    for (int i = 0; i < workers; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                try {
+                  for (Job job = in.take(); job != END; job = in.take()) {
+                    if (job.error == null) {
+                      long start = System.nanoTime();
+                      try {
+                        work.process(job);
+                      } catch (Throwable e) {
+                        job.error = e;
+                        job.image = null;
+                        job.art = null;
+                      }
+                      job.nanos[stage.ordinal()] = System.nanoTime() - start;
+                    }
+                    out.put(job);
+                  }
+                  in.put(END);
+                } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+                } finally {
+                  if (running.decrementAndGet() == 0) {
+                    passEnd(out);
+                  }
+                }
+              },
+              "batch-" + stage.name().toLowerCase(Locale.ROOT) + "-" + i);
+      thread.start();
+      threads.add(thread);
+    }
+  }
+
+  /** Puts the end marker on a queue, waiting for room even if this thread was interrupted. */
+  private static void passEnd(BlockingQueue<Job> out) {
+    boolean interrupted = Thread.interrupted();
+    while (true) {
+      try {
+        out.put(END);
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void decode(Job job) throws IOException {
+    job.image = ImageLoader.loadGray(job.input, ImageLoader.workingPixels(settings.stipples));
+    job.width = job.image.getWidth();
+    job.height = job.image.getHeight();
+  }
+
+  private void stipple(Job job) {
+    job.stipplesKey =
+        DiskCache.stipplesKey(DiskCache.imageHash(job.image), settings.stipples);
+    job.points = cache.getPoints(job.stipplesKey);
+    if (job.points == null) {
+      VoronoiStippler stippler = new VoronoiStippler(job.image, settings.stipples);
+      stippler.initializeGenerators(settings.stipples);
+      stippler.iterateLloydQuietly(LLOYD_ITERATIONS);
+      job.points = stippler.getStipplePointsArray();
+      cache.putPoints(job.stipplesKey, job.points);
+    } else {
+      job.cached = true;
+    }
+    job.stippleCount = job.points[0].length;
+    job.image = null;
+  }
+
+  /** Solves on the unscaled stipples, as scaling does not change which tour is shortest. */
+  private void solve(Job job) {
+    String tourKey = DiskCache.tourKey(job.stipplesKey, settings.solverKey());
+    job.tour = cache.getTour(tourKey);
+    if (job.tour == null) {
+      int n = job.points[0].length;
+      if (n < 3) {
+        job.tour = new int[n];
+        Arrays.setAll(job.tour, i -> i);
+      } else {
+        job.tour =
+            TSPArtExample.generateTour(
+                job.points,
+                settings.populationSize,
+                settings.eliteCount,
+                settings.mutationRate,
+                settings.crossoverRate,
+                settings.maxGenerations);
+      }
+      cache.putTour(tourKey, job.tour);
+    } else {
+      job.cached = true;
+    }
+
+    double[] x = job.points[0];
+    double[] y = job.points[1];
+    for (int i = 0; i < job.tour.length; i++) {
+      int a = job.tour[i];
+      int b = job.tour[(i + 1) % job.tour.length];
+      job.length += Math.hypot(x[b] - x[a], y[b] - y[a]) * settings.scale;
+    }
+  }
+
+  /** Draws PNG output; vector output is drawn by the encoder. */
+  private void render(Job job) {
+    if (settings.format.equals("png")) {
+      job.art =
+          TourRenderer.render(
+              scaledPoints(job),
+              job.tour,
+              (int) (job.width * settings.scale),
+              (int) (job.height * settings.scale),
+              settings.strokeWidth);
+    }
+  }
+
+  private void encode(Job job) throws IOException {
+    Path output = outputDirectory.resolve(job.name + "." + settings.format);
+    if (job.art != null) {
+      PngEncoder.write(job.art, output);
+      job.art = null;
+    } else {
+      VectorExporter.writeTour(
+          output,
+          scaledPoints(job),
+          job.tour,
+          (int) (job.width * settings.scale),
+          (int) (job.height * settings.scale),
+          settings.strokeWidth);
+    }
+  }
+
+  private double[][] scaledPoints(Job job) {
+    double[][] scaled = new double[2][];
+    for (int axis = 0; axis < 2; axis++) {
+      scaled[axis] = job.points[axis].clone();
+      for (int i = 0; i < scaled[axis].length; i++) {
+        scaled[axis][i] *= settings.scale;
+      }
+    }
+    return scaled;
+  }
+
+  /** Lists the images of a directory in name order, or the images named by a manifest. */
+  private static List<Path> listImages(Path source) throws IOException {
+    List<Path> images = new ArrayList<>();
+    if (Files.isDirectory(source)) {
+      Set<String> suffixes = new HashSet<>();
+      for (String suffix : ImageIO.getReaderFileSuffixes()) {
+        suffixes.add(suffix.toLowerCase(Locale.ROOT));
+      }
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(source)) {
+        for (Path file : files) {
+          String name = file.getFileName().toString();
+          String suffix = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+          if (Files.isRegularFile(file) && suffixes.contains(suffix)) {
+            images.add(file);
+          }
+        }
+      }
+      images.sort(Comparator.comparing(Path::toString));
+    } else {
+      Path base = source.toAbsolutePath().getParent();
+      for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          images.add(base.resolve(line));
+        }
+      }
+    }
+    return images;
+  }
+
+  private static String baseName(Path file) {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(0, dot) : name;
+  }
+
+  /** Writes one line per image with the milliseconds each stage took, in input order. */
+  private static void writeSummary(Path file, List<Job> jobs) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      out.write("# image\tstatus\tstipples\tlength\tcached");
+      for (Stage stage : Stage.values()) {
+        out.write("\t" + stage.name().toLowerCase(Locale.ROOT) + "Ms");
+      }
+      out.write("\ttotalMs\n");
+
+      for (Job job : jobs) {
+        out.write(job.input.toString());
+        out.write(job.error == null ? "\tok" : "\t" + job.error.toString().replace('\t', ' '));
+        out.write(
+            String.format(
+                Locale.ROOT,
+                "\t%d\t%.2f\t%b",
+                job.stippleCount,
+                job.length,
+                job.cached));
+        for (long nanos : job.nanos) {
+          out.write(String.format(Locale.ROOT, "\t%.1f", nanos / 1e6));
+        }
+        out.write(String.format(Locale.ROOT, "\t%.1f%n", Arrays.stream(job.nanos).sum() / 1e6));
+      }
+    }
+  }
+}
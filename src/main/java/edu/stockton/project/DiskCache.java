@@ -0,0 +1,284 @@
+package edu.stockton.project;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Keeps stipples and tours on disk across sessions, so that an image stippled and solved before
+ * with the same settings is not computed again. Entries are named by a SHA-256 hash of everything
+ * they were computed from, typically the hash of the image pixels and the configuration fields
+ * that matter, and stored in the binary formats of {@link TspFiles}.
+ *
+ * <p>The cache holds at most a set number of bytes. Reading an entry marks it as recently used,
+ * and after every write the least recently used entries are deleted until the cache fits. Entries
+ * are written to a temporary file and moved into place, so a reader never sees half an entry.
+ * Failures are reported but never abort the calling run; a broken entry is a miss.
+ */
+public final class DiskCache {
+
+  /** Size limit unless the {@code tspart.cacheMaxMb} system property says otherwise. */
+  private static final long DEFAULT_MAX_MB = 512;
+
+  /** Part of every key; raising it orphans entries computed by older versions of the pipeline. */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final String TEMPORARY_PREFIX = "writing-";
+
+  private final Path directory;
+  private final long maxBytes;
+
+  /**
+   * Creates a cache.
+   *
+   * @param directory Directory of the entries, created on first write
+   * @param maxBytes Most bytes the entries may take together
+   */
+  public DiskCache(Path directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Returns the cache in the default location, which is {@code ~/.tsp-art/cache} unless
+   * overridden by the {@code tspart.cache} system property.
+   *
+   * @return The default cache
+   */
+  public static DiskCache getDefault() {
+    String override = System.getProperty("tspart.cache");
+    Path directory =
+        override != null
+            ? Paths.get(override)
+            : Paths.get(System.getProperty("user.home"), ".tsp-art", "cache");
+    return new DiskCache(directory, Long.getLong("tspart.cacheMaxMb", DEFAULT_MAX_MB) << 20);
+  }
+
+  /**
+   * Hashes the size and pixels of an image.
+   *
+   * @param image The image
+   * @return Hex SHA-256 of the image
+   */
+  public static String imageHash(BufferedImage image) {
+    MessageDigest digest = sha256();
+    int width = image.getWidth();
+    ByteBuffer row = ByteBuffer.allocate(width * Integer.BYTES);
+    int[] pixels = new int[width];
+    digest.update(ByteBuffer.allocate(8).putInt(width).putInt(image.getHeight()).array());
+    for (int y = 0; y < image.getHeight(); y++) {
+      image.getRGB(0, y, width, 1, pixels, 0, width);
+      row.clear();
+      row.asIntBuffer().put(pixels);
+      digest.update(row.array());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Hashes the coordinates of stipples that were not computed from an image, such as stipples read
+   * from a file.
+   *
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @return Hex SHA-256 of the stipples
+   */
+  public static String pointsHash(double[][] points) {
+    MessageDigest digest = sha256();
+    for (double[] coordinates : points) {
+      ByteBuffer bytes = ByteBuffer.allocate(coordinates.length * Double.BYTES);
+      bytes.asDoubleBuffer().put(coordinates);
+      digest.update(bytes.array());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Builds the key of the stipples that Lloyd's relaxation places on an image.
+   *
+   * @param imageHash Hash of the image, from {@link #imageHash}
+   * @param stippleCount Number of stipples
+   * @return Key of the stipples
+   */
+  public static String stipplesKey(String imageHash, int stippleCount) {
+    return key("stipples", FORMAT_VERSION, imageHash, stippleCount);
+  }
+
+  /**
+   * Builds the key of a tour.
+   *
+   * @param stipplesKey Key of the stipples from {@link #stipplesKey}, or the hash of stipples from
+   *     {@link #pointsHash}
+   * @param solverSettings Settings of the solver, compared by their string form
+   * @return Key of the tour
+   */
+  public static String tourKey(String stipplesKey, Object solverSettings) {
+    return key("tour", FORMAT_VERSION, stipplesKey, solverSettings);
+  }
+
+  /** Hashes the string forms of the parts, each followed by a zero byte. */
+  private static String key(Object... parts) {
+    MessageDigest digest = sha256();
+    for (Object part : parts) {
+      digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Reads stipples.
+   *
+   * @param key Key of the entry
+   * @return The stipples, or null if there is no such entry
+   */
+  public double[][] getPoints(String key) {
+    Path file = directory.resolve(key + ".pts");
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      double[][] points = TspFiles.readPoints(file);
+      touch(file);
+      return points;
+    } catch (IOException e) {
+      System.err.println("Could not read cached stipples: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Stores stipples.
+   *
+   * @param key Key of the entry
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   */
+  public void putPoints(String key, double[][] points) {
+    try {
+      Path temporary = createTemporary(".pts");
+      TspFiles.writePoints(temporary, points);
+      commit(temporary, key + ".pts");
+    } catch (IOException e) {
+      System.err.println("Could not cache stipples: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Reads a tour.
+   *
+   * @param key Key of the entry
+   * @return The tour, or null if there is no such entry
+   */
+  public int[] getTour(String key) {
+    Path file = directory.resolve(key + ".ord");
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      int[] tour = TspFiles.readTour(file);
+      touch(file);
+      return tour;
+    } catch (IOException e) {
+      System.err.println("Could not read cached tour: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Stores a tour.
+   *
+   * @param key Key of the entry
+   * @param tour Order in which the tour visits the points, as 0-based indices
+   */
+  public void putTour(String key, int[] tour) {
+    try {
+      Path temporary = createTemporary(".ord");
+      TspFiles.writeTour(temporary, tour);
+      commit(temporary, key + ".ord");
+    } catch (IOException e) {
+      System.err.println("Could not cache tour: " + e.getMessage());
+    }
+  }
+
+  /** Creates a file to write an entry into, with the extension that selects its format. */
+  private Path createTemporary(String extension) throws IOException {
+    Files.createDirectories(directory);
+    return Files.createTempFile(directory, TEMPORARY_PREFIX, extension);
+  }
+
+  /** Moves a written entry into place and evicts entries until the cache fits. */
+  private void commit(Path temporary, String name) throws IOException {
+    try {
+      Files.move(
+          temporary,
+          directory.resolve(name),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+    evict();
+  }
+
+  /** Deletes the least recently used entries until the rest fit into the size limit. */
+  private synchronized void evict() throws IOException {
+    List<Path> entries = new ArrayList<>();
+    List<BasicFileAttributes> attributes = new ArrayList<>();
+    long total = 0;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.{pts,ord}")) {
+      for (Path file : files) {
+        if (file.getFileName().toString().startsWith(TEMPORARY_PREFIX)) {
+          continue; // still being written
+        }
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        entries.add(file);
+        attributes.add(attrs);
+        total += attrs.size();
+      }
+    }
+    if (total <= maxBytes) {
+      return;
+    }
+
+    Integer[] order = new Integer[entries.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+    for (int i = 0; i < order.length && total > maxBytes; i++) {
+      Files.deleteIfExists(entries.get(order[i]));
+      total -= attributes.get(order[i]).size();
+    }
+  }
+
+  /** Marks an entry as used now. */
+  private static void touch(Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      // Only the eviction order suffers
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
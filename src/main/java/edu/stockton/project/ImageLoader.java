@@ -0,0 +1,239 @@
+package edu.stockton.project;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images straight to the resolution the stippler works at. Stippling only needs a few
+ * hundred pixels per stipple, so instead of decoding a camera image in full and scaling it down,
+ * the decoder is asked to subsample the file, and optionally to decode only a region of it. The
+ * result is converted to one byte of gray per pixel, or to RGB for color stippling.
+ *
+ * <p>The gray image uses a palette of the 256 gray levels rather than Java's gray color space,
+ * whose linear gamma would make {@link BufferedImage#getRGB} return lighter values than the file
+ * holds.
+ */
+public final class ImageLoader {
+
+  /** Working pixels per stipple, enough for Lloyd's algorithm to place stipples smoothly. */
+  public static final int PIXELS_PER_STIPPLE = 200;
+
+  /** Working resolution below which images are never subsampled, so previews stay sharp. */
+  public static final long MIN_WORKING_PIXELS = 1L << 20;
+
+  private static final IndexColorModel GRAY = grayPalette();
+
+  /* Private constructor to prevent instantiation. */
+  private ImageLoader() {}
+
+  /**
+   * Number of pixels worth decoding for a stipple count.
+   *
+   * @param stippleCount Number of stipples
+   * @return Pixel budget for {@link #loadGray} and {@link #loadColor}
+   */
+  public static long workingPixels(int stippleCount) {
+    return Math.max(MIN_WORKING_PIXELS, (long) stippleCount * PIXELS_PER_STIPPLE);
+  }
+
+  /**
+   * Reads the size of an image from its header, without decoding it.
+   *
+   * @param file Image file
+   * @return Width and height of the image
+   * @throws IOException If the file cannot be read or is not a supported image
+   */
+  public static Dimension readSize(Path file) throws IOException {
+    try (ImageInputStream input = open(file)) {
+      ImageReader reader = reader(input, file);
+      try {
+        return new Dimension(reader.getWidth(0), reader.getHeight(0));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Decodes an image in gray, subsampled to at most a number of pixels.
+   *
+   * @param file Image file
+   * @param maxPixels Largest number of pixels to decode
+   * @return Gray image with one byte per pixel
+   * @throws IOException If the file cannot be read or is not a supported image
+   */
+  public static BufferedImage loadGray(Path file, long maxPixels) throws IOException {
+    return loadGray(file, maxPixels, null);
+  }
+
+  /**
+   * Decodes a region of an image in gray, subsampled to at most a number of pixels.
+   *
+   * @param file Image file
+   * @param maxPixels Largest number of pixels to decode
+   * @param region Region of the image to decode, or null for the whole image
+   * @return Gray image with one byte per pixel
+   * @throws IOException If the file cannot be read or is not a supported image
+   */
+  public static BufferedImage loadGray(Path file, long maxPixels, Rectangle region)
+      throws IOException {
+    return toGray(decode(file, maxPixels, region));
+  }
+
+  /**
+   * Decodes an image in color, subsampled to at most a number of pixels.
+   *
+   * @param file Image file
+   * @param maxPixels Largest number of pixels to decode
+   * @return RGB image
+   * @throws IOException If the file cannot be read or is not a supported image
+   */
+  public static BufferedImage loadColor(Path file, long maxPixels) throws IOException {
+    return toRgb(decode(file, maxPixels, null));
+  }
+
+  /** Decodes a region of an image with the smallest subsampling that fits the budget. */
+  private static BufferedImage decode(Path file, long maxPixels, Rectangle region)
+      throws IOException {
+    if (maxPixels < 1) {
+      throw new IllegalArgumentException("maxPixels must be positive: " + maxPixels);
+    }
+
+    try (ImageInputStream input = open(file)) {
+      ImageReader reader = reader(input, file);
+      try {
+        Rectangle bounds = new Rectangle(reader.getWidth(0), reader.getHeight(0));
+        Rectangle source = region == null ? bounds : bounds.intersection(region);
+        if (source.isEmpty()) {
+          throw new IllegalArgumentException("Region lies outside the image: " + region);
+        }
+
+        // Smallest period that keeps the decoded pixels within the budget
+        double pixels = (double) source.width * source.height;
+        int period = Math.max(1, (int) Math.sqrt(pixels / maxPixels));
+        while ((long) ceilDiv(source.width, period) * ceilDiv(source.height, period) > maxPixels) {
+          period++;
+        }
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (!source.equals(bounds)) {
+          param.setSourceRegion(source);
+        }
+        if (period > 1) {
+          param.setSourceSubsampling(period, period, 0, 0);
+        }
+        return reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static ImageInputStream open(Path file) throws IOException {
+    ImageInputStream input = ImageIO.createImageInputStream(file.toFile());
+    if (input == null) {
+      throw new IOException("Cannot read " + file);
+    }
+    return input;
+  }
+
+  private static ImageReader reader(ImageInputStream input, Path file) throws IOException {
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+    if (!readers.hasNext()) {
+      throw new IOException("Unsupported image format: " + file.getFileName());
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(input, true, true);
+    return reader;
+  }
+
+  /**
+   * Converts a decoded image to palette gray. Gray files are copied sample by sample; color is
+   * weighted by luminance as in {@link VoronoiStippler}.
+   */
+  private static BufferedImage toGray(BufferedImage decoded) {
+    int width = decoded.getWidth();
+    int height = decoded.getHeight();
+    BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, GRAY);
+    byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+
+    Raster raster = decoded.getRaster();
+    boolean graySource = isGray(decoded);
+    int maxSample = (1 << raster.getSampleModel().getSampleSize(0)) - 1;
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      int offset = y * width;
+      if (graySource) {
+        raster.getSamples(0, y, width, 1, 0, row);
+        for (int x = 0; x < width; x++) {
+          pixels[offset + x] = (byte) (row[x] * 255 / maxSample);
+        }
+      } else {
+        decoded.getRGB(0, y, width, 1, row, 0, width);
+        for (int x = 0; x < width; x++) {
+          int rgb = row[x];
+          float luminance =
+              ((rgb >> 16) & 0xFF) * 0.299f + ((rgb >> 8) & 0xFF) * 0.587f + (rgb & 0xFF) * 0.114f;
+          pixels[offset + x] = (byte) Math.round(luminance);
+        }
+      }
+    }
+    return gray;
+  }
+
+  /**
+   * Converts a decoded image to RGB. Gray files are expanded sample by sample for the same reason
+   * as in {@link #toGray}.
+   */
+  private static BufferedImage toRgb(BufferedImage decoded) {
+    int width = decoded.getWidth();
+    int height = decoded.getHeight();
+    BufferedImage rgb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] pixels = ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+
+    Raster raster = decoded.getRaster();
+    if (!isGray(decoded)) {
+      decoded.getRGB(0, 0, width, height, pixels, 0, width);
+      return rgb;
+    }
+    int maxSample = (1 << raster.getSampleModel().getSampleSize(0)) - 1;
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      raster.getSamples(0, y, width, 1, 0, row);
+      for (int x = 0; x < width; x++) {
+        pixels[y * width + x] = 0xFF000000 | (row[x] * 255 / maxSample) * 0x010101;
+      }
+    }
+    return rgb;
+  }
+
+  private static boolean isGray(BufferedImage decoded) {
+    return decoded.getRaster().getNumBands() == 1
+        && decoded.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_GRAY;
+  }
+
+  private static IndexColorModel grayPalette() {
+    byte[] levels = new byte[256];
+    for (int i = 0; i < levels.length; i++) {
+      levels[i] = (byte) i;
+    }
+    return new IndexColorModel(8, 256, levels, levels, levels);
+  }
+
+  private static int ceilDiv(int x, int y) {
+    return (x + y - 1) / y;
+  }
+}
@@ -0,0 +1,252 @@
+package edu.stockton.project;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Color TSP art drawn with several inks. The image is separated into one density field per ink,
+ * and every ink becomes its own layer of stipples and tour. Layers are independent, so their
+ * pipelines run in parallel on one thread pool, and the total stipple count is shared between them
+ * by how much of each ink the image needs. A color piece thus costs about as much as a monochrome
+ * one with the same stipple count, spread over more cores.
+ *
+ * <p>Inks are subtractive: the layers multiply where they overlap, as ink does on paper. See {@link
+ * TourRenderer#renderLayers} for drawing them.
+ */
+public final class InkLayers {
+
+  /** Inks of process printing, with black first so that it takes the gray part of every color. */
+  public static final int[] CMYK = {0x000000, 0x00FFFF, 0xFF00FF, 0xFFFF00};
+
+  /** Iterations of Lloyd's algorithm per layer, as for monochrome stippling. */
+  private static final int LLOYD_ITERATIONS = 50;
+
+  /** Solves the tour of one layer. */
+  @FunctionalInterface
+  public interface TourSolver {
+    /**
+     * Solves a tour.
+     *
+     * @param points double[2][n] array where [0] is x coords and [1] is y coords
+     * @return Order in which the tour visits the points, as indices into points
+     */
+    int[] solve(double[][] points);
+  }
+
+  /** Stipples and tour of one ink. */
+  public static final class Layer {
+    /** Color of the ink as 0xRRGGBB. */
+    public final int ink;
+
+    /** Stipples as double[2][n] where [0] is x coords and [1] is y coords. */
+    public final double[][] points;
+
+    /** Order in which the tour visits the points. */
+    public final int[] tour;
+
+    Layer(int ink, double[][] points, int[] tour) {
+      this.ink = ink;
+      this.points = points;
+      this.tour = tour;
+    }
+  }
+
+  /* Private constructor to prevent instantiation. */
+  private InkLayers() {}
+
+  /**
+   * Parses a list of inks.
+   *
+   * @param spec {@code cmyk}, or comma-separated colors as {@code #RRGGBB} or {@code RRGGBB}
+   * @return Inks as 0xRRGGBB, in the order given
+   * @throws IllegalArgumentException If a color is malformed
+   */
+  public static int[] parseInks(String spec) {
+    if (spec.trim().equalsIgnoreCase("cmyk")) {
+      return CMYK.clone();
+    }
+    String[] parts = spec.split(",");
+    int[] inks = new int[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      String hex = parts[i].trim();
+      if (hex.startsWith("#")) {
+        hex = hex.substring(1);
+      }
+      if (!hex.matches("[0-9a-fA-F]{6}")) {
+        throw new IllegalArgumentException("Not an ink color: " + parts[i]);
+      }
+      inks[i] = Integer.parseInt(hex, 16);
+    }
+    return inks;
+  }
+
+  /**
+   * Separates an image into the coverage of each ink. Inks are taken in order: each pixel gets as
+   * much of the first ink as its remaining darkness allows in every channel the ink absorbs, that
+   * darkness is removed, and the next ink works on the rest. Earlier inks thus win where several
+   * could produce the same color, which is why {@link #CMYK} lists black first.
+   *
+   * @param image The image
+   * @param inks Inks as 0xRRGGBB
+   * @return density[ink][y][x] in the range [0, 1]
+   */
+  public static float[][][] separate(BufferedImage image, int[] inks) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    float[][][] density = new float[inks.length][height][width];
+
+    // How much of each of red, green and blue a full coat of each ink absorbs
+    float[][] absorbs = new float[inks.length][3];
+    for (int i = 0; i < inks.length; i++) {
+      for (int c = 0; c < 3; c++) {
+        absorbs[i][c] = 1f - ((inks[i] >> (16 - 8 * c)) & 0xFF) / 255f;
+      }
+    }
+
+    int[] row = new int[width];
+    float[] darkness = new float[3];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      for (int x = 0; x < width; x++) {
+        for (int c = 0; c < 3; c++) {
+          darkness[c] = 1f - ((row[x] >> (16 - 8 * c)) & 0xFF) / 255f;
+        }
+        for (int i = 0; i < inks.length; i++) {
+          float coverage = 1f;
+          boolean absorbsAny = false;
+          for (int c = 0; c < 3; c++) {
+            if (absorbs[i][c] > 0.01f) {
+              coverage = Math.min(coverage, darkness[c] / absorbs[i][c]);
+              absorbsAny = true;
+            }
+          }
+          if (!absorbsAny || coverage <= 0) {
+            continue;
+          }
+          density[i][y][x] = coverage;
+          for (int c = 0; c < 3; c++) {
+            darkness[c] = Math.max(0f, darkness[c] - coverage * absorbs[i][c]);
+          }
+        }
+      }
+    }
+    return density;
+  }
+
+  /**
+   * Shares a stipple count between layers in proportion to their total density, so that every
+   * stipple stands for about the same amount of ink in every layer.
+   *
+   * @param density density[ink][y][x] from {@link #separate}
+   * @param totalStipples Stipples of all layers together
+   * @return Stipples of each layer, summing to totalStipples unless the image is blank
+   */
+  public static int[] stippleCounts(float[][][] density, int totalStipples) {
+    double[] mass = new double[density.length];
+    double totalMass = 0;
+    for (int i = 0; i < density.length; i++) {
+      for (float[] row : density[i]) {
+        for (float value : row) {
+          mass[i] += value;
+        }
+      }
+      totalMass += mass[i];
+    }
+
+    // Largest remainder, so that rounding neither loses nor adds stipples
+    int[] counts = new int[density.length];
+    if (totalMass == 0) {
+      return counts;
+    }
+    double[] remainders = new double[density.length];
+    int assigned = 0;
+    for (int i = 0; i < density.length; i++) {
+      double share = totalStipples * mass[i] / totalMass;
+      counts[i] = (int) share;
+      remainders[i] = share - counts[i];
+      assigned += counts[i];
+    }
+    for (; assigned < totalStipples; assigned++) {
+      int largest = 0;
+      for (int i = 1; i < remainders.length; i++) {
+        if (remainders[i] > remainders[largest]) {
+          largest = i;
+        }
+      }
+      counts[largest]++;
+      remainders[largest] = -1;
+    }
+    return counts;
+  }
+
+  /**
+   * Stipples and solves every ink of an image. The layers run as independent pipelines on a shared
+   * pool of threads.
+   *
+   * @param image The image, in color
+   * @param inks Inks as 0xRRGGBB
+   * @param totalStipples Stipples of all layers together
+   * @param solver Solver of the layer tours, called from several threads at once
+   * @param threads Number of layers processed at the same time
+   * @return The layers, in the order of the inks
+   */
+  public static Layer[] run(
+      BufferedImage image, int[] inks, int totalStipples, TourSolver solver, int threads) {
+    float[][][] density = separate(image, inks);
+    int[] counts = stippleCounts(density, totalStipples);
+
+    Layer[] layers = new Layer[inks.length];
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < inks.length; i++) {
+        int layer = i;
+        futures.add(
+            executor.submit(
+                () -> {
+                  double[][] points = stipple(density[layer], counts[layer]);
+                  int n = points[0].length;
+                  int[] tour = n < 3 ? identity(n) : solver.solve(points);
+                  layers[layer] = new Layer(inks[layer], points, tour);
+                  System.out.printf(Locale.ROOT, "Layer #%06X: %d stipples%n", inks[layer], n);
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while processing layers", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Layer pipeline failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return layers;
+  }
+
+  /** Places the stipples of one layer with Lloyd's algorithm. */
+  private static double[][] stipple(float[][] density, int count) {
+    if (count == 0) {
+      return new double[2][0];
+    }
+    VoronoiStippler stippler = new VoronoiStippler(density, count);
+    stippler.initializeGenerators(count);
+    stippler.iterateLloydQuietly(LLOYD_ITERATIONS);
+    return stippler.getStipplePointsArray();
+  }
+
+  private static int[] identity(int n) {
+    int[] tour = new int[n];
+    for (int i = 0; i < n; i++) {
+      tour[i] = i;
+    }
+    return tour;
+  }
+}
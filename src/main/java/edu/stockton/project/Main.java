@@ -2,35 +2,199 @@ package edu.stockton.project;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
 
-/** Main class for performing manual testing. Uses VoronoiStippler and TSPArtExample classes. */
+/**
+ * Main class for performing manual testing. Uses VoronoiStippler and TSPArtExample classes.
+ *
+ * <p>Usage: {@code Main [input] [output] [--tour file]}. The pipeline runs from the input to the
+ * output, and the file types choose where it starts and stops. The input is an image, or stipples
+ * in a {@code .tsp} or {@code .pts} file; {@code --tour} adds a {@code .tour} or {@code .ord} tour
+ * of those stipples, which is then drawn instead of solved. The output is stipples, a tour, or a
+ * drawing as PNG, SVG or PDF. See {@link TspFiles} for the point and tour formats.
+ *
+ * <p>{@code --inks cmyk} or {@code --inks #RRGGBB,...} draws an image in color instead, with one
+ * tour per ink composited into a PNG; see {@link InkLayers}.
+ *
+ * <p>Stipples and tours are looked up in the {@link DiskCache#getDefault default disk cache}
+ * before they are computed, and stored there afterwards.
+ */
 public class Main {
   public static void main(String[] args) throws IOException {
-    String inputImage;
-    String outputPath;
+    String inputImage = "src/main/java/edu/stockton/project/dogwhite.jpg";
+    String outputPath = "src/main/java/edu/stockton/project/dog-out";
+    String tourPath = null;
+    String inks = null;
     double scaleFactor = 3.0;
 
-    // Specify input and output image paths
-    inputImage = (args.length > 0) ? args[0] : "src/main/java/edu/stockton/project/dogwhite.jpg";
-    outputPath = (args.length > 1) ? args[1] : "src/main/java/edu/stockton/project/dog-out";
+    // Specify input and output paths
+    int positional = 0;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--tour") && i + 1 < args.length) {
+        tourPath = args[++i];
+      } else if (args[i].equals("--inks") && i + 1 < args.length) {
+        inks = args[++i];
+      } else if (positional == 0) {
+        inputImage = args[i];
+        positional++;
+      } else {
+        outputPath = args[i];
+      }
+    }
+    Path input = Paths.get(inputImage);
+    Path output = Paths.get(outputPath);
+    DiskCache cache = DiskCache.getDefault();
+    if (inks != null) {
+      drawInks(input, outputPath, InkLayers.parseInks(inks), scaleFactor, cache);
+      return;
+    }
 
-    BufferedImage rawGrayscale = VoronoiStippler.loadGrayscaleImage(inputImage);
+    // Collect points, either stippled and scaled or as stored
+    String stipplesKey;
+    double[][] scaledPoints;
+    int[] scaledDimensions;
+    if (TspFiles.isPointFile(input)) {
+      scaledPoints = TspFiles.readPoints(input);
+      scaledDimensions = bounds(scaledPoints);
+      stipplesKey = DiskCache.pointsHash(scaledPoints);
+    } else {
+      BufferedImage rawGrayscale = VoronoiStippler.loadGrayscaleImage(inputImage);
+      stipplesKey =
+          DiskCache.stipplesKey(
+              DiskCache.imageHash(rawGrayscale), VoronoiStippler.DEFAULT_STIPPLES);
+      double[][] points = cache.getPoints(stipplesKey);
+      if (points == null) {
+        points = VoronoiStippler.stipple(rawGrayscale);
+        cache.putPoints(stipplesKey, points);
+      } else {
+        System.out.println("Reusing cached stipples");
+      }
+      scaledPoints = scalePoints(points, scaleFactor);
 
-    // Collect points and scale
-    double[][] points = VoronoiStippler.stipple(rawGrayscale);
-    double[][] scaledPoints = scalePoints(points, scaleFactor);
+      // Calculate scaled dimensions
+      scaledDimensions =
+          new int[] {
+            (int) (rawGrayscale.getWidth() * scaleFactor),
+            (int) (rawGrayscale.getHeight() * scaleFactor)
+          };
+    }
+    if (TspFiles.isPointFile(output)) {
+      TspFiles.writePoints(output, scaledPoints);
+      System.out.println("Saved stipples to: " + output.toAbsolutePath());
+      return;
+    }
 
-    // Create tour
-    double[][] tour = TSPArtExample.generateTour(scaledPoints);
+    // Create tour, or read one
+    int[] tour;
+    if (tourPath != null) {
+      tour = TspFiles.readTour(Paths.get(tourPath));
+      if (tour.length != scaledPoints[0].length) {
+        throw new IllegalArgumentException(
+            "The tour visits "
+                + tour.length
+                + " points but the input has "
+                + scaledPoints[0].length);
+      }
+    } else {
+      // Scaling all distances alike does not change which tour the EA prefers
+      String tourKey = DiskCache.tourKey(stipplesKey, TSPArtExample.class.getName());
+      tour = cache.getTour(tourKey);
+      if (tour == null) {
+        tour = TSPArtExample.generateTour(scaledPoints);
+        cache.putTour(tourKey, tour);
+      } else {
+        System.out.println("Reusing cached tour");
+      }
+    }
+    if (TspFiles.isTourFile(output)) {
+      TspFiles.writeTour(output, tour);
+      System.out.println("Saved tour to: " + output.toAbsolutePath());
+      return;
+    }
+
+    if (VectorExporter.isVectorFile(output)) {
+      VectorExporter.writeTour(
+          output, scaledPoints, tour, scaledDimensions[0], scaledDimensions[1], 1.0);
+    } else {
+      TSPArtExample.drawTour(scaledPoints, tour, outputPath, scaledDimensions);
+    }
+  }
+
+  /**
+   * Draws an image in color, one stippled and solved layer per ink.
+   *
+   * @param input Image file
+   * @param outputPath PNG output path; ".png" is appended if missing
+   * @param inks Inks as 0xRRGGBB
+   * @param scaleFactor Scale of the drawing relative to the working resolution
+   * @param cache Cache of the layer tours
+   * @throws IOException If the image cannot be read or the drawing cannot be written
+   */
+  private static void drawInks(
+      Path input, String outputPath, int[] inks, double scaleFactor, DiskCache cache)
+      throws IOException {
+    Path output = Paths.get(outputPath);
+    if (TspFiles.isPointFile(input)
+        || TspFiles.isPointFile(output)
+        || TspFiles.isTourFile(output)
+        || VectorExporter.isVectorFile(output)) {
+      throw new IllegalArgumentException("Color art is drawn from an image into a PNG");
+    }
+    BufferedImage image =
+        ImageLoader.loadColor(input, ImageLoader.workingPixels(VoronoiStippler.DEFAULT_STIPPLES));
 
-    // Calculate scaled dimensions
-    int[] scaledDimensions =
-        new int[] {
-          (int) (rawGrayscale.getWidth() * scaleFactor),
-          (int) (rawGrayscale.getHeight() * scaleFactor)
+    // Layers share the stipple count, so each solves a smaller instance than a monochrome run
+    InkLayers.TourSolver solver =
+        points -> {
+          String tourKey =
+              DiskCache.tourKey(DiskCache.pointsHash(points), TSPArtExample.class.getName());
+          int[] tour = cache.getTour(tourKey);
+          if (tour == null) {
+            tour = TSPArtExample.generateTour(points);
+            cache.putTour(tourKey, tour);
+          }
+          return tour;
         };
+    int threads = Math.min(inks.length, Runtime.getRuntime().availableProcessors());
+    InkLayers.Layer[] layers =
+        InkLayers.run(image, inks, VoronoiStippler.DEFAULT_STIPPLES, solver, threads);
+
+    double[][][] points = new double[layers.length][][];
+    int[][] tours = new int[layers.length][];
+    for (int i = 0; i < layers.length; i++) {
+      points[i] = scalePoints(layers[i].points, scaleFactor);
+      tours[i] = layers[i].tour;
+    }
+    BufferedImage art =
+        TourRenderer.renderLayers(
+            points,
+            tours,
+            inks,
+            (int) (image.getWidth() * scaleFactor),
+            (int) (image.getHeight() * scaleFactor),
+            1.0);
+    String path =
+        outputPath.toLowerCase(Locale.ROOT).endsWith(".png") ? outputPath : outputPath + ".png";
+    PngEncoder.write(art, Paths.get(path));
+    System.out.println("Saved to: " + Paths.get(path).toAbsolutePath());
+  }
 
-    TSPArtExample.drawTour(tour, outputPath, scaledDimensions);
+  /**
+   * Size of a drawing that holds all points, for point sets read without their image.
+   *
+   * @param points Points array of [x, y]
+   * @return Width and height
+   */
+  private static int[] bounds(double[][] points) {
+    double maxX = 0;
+    double maxY = 0;
+    for (int i = 0; i < points[0].length; i++) {
+      maxX = Math.max(maxX, points[0][i]);
+      maxY = Math.max(maxY, points[1][i]);
+    }
+    return new int[] {(int) Math.ceil(maxX) + 1, (int) Math.ceil(maxY) + 1};
   }
 
   /**
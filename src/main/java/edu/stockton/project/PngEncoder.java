@@ -0,0 +1,489 @@
+package edu.stockton.project;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG writer that compresses blocks of rows in parallel, in the manner of pigz. Each block is
+ * deflated on its own thread into a raw deflate stream that ends on a byte boundary, primed with
+ * the last 32 KB of the block before it so that matches across the seam are not lost. The streams
+ * are concatenated in order behind one zlib header, and the Adler-32 checksums of the blocks are
+ * combined into the checksum of the whole image.
+ *
+ * <p>The pixel format is the smallest one that holds the image exactly: 1-bit grayscale for pure
+ * black and white, such as stippled images; 8-bit grayscale for anti-aliased black-on-white art;
+ * and RGB or RGBA otherwise.
+ */
+public final class PngEncoder {
+
+  /** Compression level used unless the {@code tspart.pngLevel} system property says otherwise. */
+  public static final int DEFAULT_LEVEL = 6;
+
+  /** Target size of the uncompressed data of one block. */
+  private static final int BLOCK_BYTES = 256 * 1024;
+
+  /** Size of the deflate window, and so of the dictionary carried across blocks. */
+  private static final int WINDOW = 32 * 1024;
+
+  private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+
+  private static final int GRAY_1 = 0;
+  private static final int GRAY_8 = 1;
+  private static final int RGB = 2;
+  private static final int RGBA = 3;
+
+  /* Private constructor to prevent instantiation. */
+  private PngEncoder() {}
+
+  /**
+   * Writes an image as PNG at the default compression level.
+   *
+   * @param image The image
+   * @param file Output file
+   * @throws IOException If the file cannot be written
+   */
+  public static void write(BufferedImage image, Path file) throws IOException {
+    write(image, file, Integer.getInteger("tspart.pngLevel", DEFAULT_LEVEL));
+  }
+
+  /**
+   * Writes an image as PNG.
+   *
+   * @param image The image
+   * @param file Output file
+   * @param level Compression level from 0 (store) to 9 (smallest)
+   * @throws IOException If the file cannot be written
+   */
+  public static void write(BufferedImage image, Path file, int level) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+      write(image, out, level);
+    }
+  }
+
+  /**
+   * Writes an image as PNG to a stream, which is left open.
+   *
+   * @param image The image
+   * @param stream Output stream
+   * @param level Compression level from 0 (store) to 9 (smallest)
+   * @throws IOException If the stream cannot be written
+   */
+  public static void write(BufferedImage image, OutputStream stream, int level)
+      throws IOException {
+    if (level < 0 || level > 9) {
+      throw new IllegalArgumentException("Compression level must be between 0 and 9: " + level);
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int format = pixelFormat(image);
+    int rowBytes = rowBytes(format, width);
+    int rowsPerBlock = Math.max(1, BLOCK_BYTES / (rowBytes + 1));
+    int blocks = (height + rowsPerBlock - 1) / rowsPerBlock;
+
+    DataOutputStream out = new DataOutputStream(stream);
+    out.write(SIGNATURE);
+
+    byte[] header = new byte[13];
+    putInt(header, 0, width);
+    putInt(header, 4, height);
+    header[8] = (byte) (format == GRAY_1 ? 1 : 8);
+    header[9] = (byte) (format == GRAY_1 || format == GRAY_8 ? 0 : format == RGB ? 2 : 6);
+    writeChunk(out, "IHDR", header, header.length);
+
+    // Compress blocks ahead of the writer, but only a few, so memory stays bounded
+    int threads = Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      Deque<Future<Block>> pending = new ArrayDeque<>();
+      int submitted = 0;
+      long adler = 1;
+      for (int written = 0; written < blocks; written++) {
+        while (submitted < blocks && pending.size() < 2 * threads) {
+          int first = submitted * rowsPerBlock;
+          int last = Math.min(height, first + rowsPerBlock);
+          boolean finish = submitted == blocks - 1;
+          pending.add(
+              executor.submit(() -> compress(image, format, rowBytes, first, last, level, finish)));
+          submitted++;
+        }
+
+        Block block = pending.poll().get();
+        adler = combineAdler(adler, block.adler, block.length);
+
+        byte[] data = block.data;
+        int length = block.dataLength;
+        if (written == 0 || written == blocks - 1) {
+          // The zlib header leads the first chunk and the checksum trails the last
+          int extra = (written == 0 ? 2 : 0) + (written == blocks - 1 ? 4 : 0);
+          byte[] framed = new byte[length + extra];
+          int offset = 0;
+          if (written == 0) {
+            framed[offset++] = 0x78;
+            framed[offset++] = (byte) zlibLevelFlags(level);
+          }
+          System.arraycopy(data, 0, framed, offset, length);
+          if (written == blocks - 1) {
+            putInt(framed, offset + length, (int) adler);
+          }
+          data = framed;
+          length = framed.length;
+        }
+        writeChunk(out, "IDAT", data, length);
+      }
+    } catch (ExecutionException e) {
+      throw new IOException("PNG compression failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing PNG");
+    } finally {
+      executor.shutdownNow();
+    }
+
+    writeChunk(out, "IEND", new byte[0], 0);
+    out.flush();
+  }
+
+  /** Compressed rows of one block. */
+  private static final class Block {
+    final byte[] data;
+    final int dataLength;
+    final long adler;
+    final long length;
+
+    Block(byte[] data, int dataLength, long adler, long length) {
+      this.data = data;
+      this.dataLength = dataLength;
+      this.adler = adler;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Filters and deflates rows first to last - 1. The rows before the block are filtered again to
+   * rebuild the dictionary, which is cheaper than waiting for the block before to finish.
+   */
+  private static Block compress(
+      BufferedImage image,
+      int format,
+      int rowBytes,
+      int first,
+      int last,
+      int level,
+      boolean finish) {
+    int width = image.getWidth();
+    int stride = rowBytes + 1;
+    int[] argb = new int[width];
+    // Filters see a row of zeros above the first row
+    byte[] previous = new byte[rowBytes];
+    byte[] current = new byte[rowBytes];
+
+    // Filtered data of the rows that fill the window before the block, then of the block
+    int dictionaryRows = Math.min(first, (WINDOW + stride - 1) / stride);
+    int start = first - dictionaryRows;
+    byte[] filtered = new byte[(last - start) * stride];
+    byte[][] candidates = new byte[5][rowBytes];
+
+    if (start > 0) {
+      toBytes(image, format, start - 1, argb, previous);
+    }
+    for (int y = start; y < last; y++) {
+      toBytes(image, format, y, argb, current);
+      filterRow(format, current, previous, filtered, (y - start) * stride, candidates);
+      byte[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+
+    int dictionaryBytes = Math.min(WINDOW, dictionaryRows * stride);
+    int offset = dictionaryRows * stride;
+    int length = filtered.length - offset;
+
+    Adler32 adler = new Adler32();
+    adler.update(filtered, offset, length);
+
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (dictionaryBytes > 0) {
+        deflater.setDictionary(filtered, offset - dictionaryBytes, dictionaryBytes);
+      }
+      deflater.setInput(filtered, offset, length);
+      if (finish) {
+        deflater.finish();
+      }
+
+      byte[] output = new byte[Math.max(64, length / 4)];
+      int produced = 0;
+      while (true) {
+        if (produced == output.length) {
+          output = Arrays.copyOf(output, output.length * 2);
+        }
+        int n =
+            deflater.deflate(
+                output,
+                produced,
+                output.length - produced,
+                finish ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+        produced += n;
+        // Done once the deflater stops short of filling the buffer, or has finished
+        if (finish ? deflater.finished() : produced < output.length) {
+          break;
+        }
+      }
+      return new Block(output, produced, adler.getValue(), length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /** Picks the smallest PNG pixel format that holds every pixel of the image exactly. */
+  private static int pixelFormat(BufferedImage image) {
+    int width = image.getWidth();
+    boolean alpha = image.getColorModel().hasAlpha();
+    int[] flags =
+        IntStream.range(0, image.getHeight())
+            .parallel()
+            .map(
+                y -> {
+                  int[] row = image.getRGB(0, y, width, 1, null, 0, width);
+                  int found = 0;
+                  for (int pixel : row) {
+                    int r = (pixel >> 16) & 0xFF;
+                    int g = (pixel >> 8) & 0xFF;
+                    int b = pixel & 0xFF;
+                    if (r != g || g != b) {
+                      found |= 1;
+                    } else if (r != 0 && r != 0xFF) {
+                      found |= 2;
+                    }
+                    if (alpha && (pixel >>> 24) != 0xFF) {
+                      found |= 4;
+                    }
+                  }
+                  return found;
+                })
+            .toArray();
+
+    int found = 0;
+    for (int flag : flags) {
+      found |= flag;
+    }
+    if ((found & 4) != 0) {
+      return RGBA;
+    }
+    if ((found & 1) != 0) {
+      return RGB;
+    }
+    return (found & 2) != 0 ? GRAY_8 : GRAY_1;
+  }
+
+  private static int rowBytes(int format, int width) {
+    switch (format) {
+      case GRAY_1:
+        return (width + 7) / 8;
+      case GRAY_8:
+        return width;
+      case RGB:
+        return 3 * width;
+      default:
+        return 4 * width;
+    }
+  }
+
+  /**
+   * Checks whether the rows of an INT_RGB or INT_ARGB image lie back to back from the start of its
+   * pixel array. A subimage shares the array of its parent, so its rows are spaced by the width of
+   * the parent and start at an offset.
+   */
+  private static boolean isPacked(BufferedImage image) {
+    int type = image.getType();
+    if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+      return false;
+    }
+    WritableRaster raster = image.getRaster();
+    return raster.getSampleModel() instanceof SinglePixelPackedSampleModel model
+        && model.getScanlineStride() == image.getWidth()
+        && raster.getSampleModelTranslateX() == 0
+        && raster.getSampleModelTranslateY() == 0
+        && raster.getDataBuffer().getOffset() == 0;
+  }
+
+  /** Converts one row of the image into PNG pixel bytes. */
+  private static void toBytes(BufferedImage image, int format, int y, int[] argb, byte[] bytes) {
+    int width = image.getWidth();
+    int[] row;
+    int offset;
+    if (isPacked(image)) {
+      // Read the pixel array directly instead of converting pixel by pixel
+      row = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      offset = y * width;
+    } else {
+      row = image.getRGB(0, y, width, 1, argb, 0, width);
+      offset = 0;
+    }
+
+    switch (format) {
+      case GRAY_1:
+        Arrays.fill(bytes, (byte) 0);
+        for (int x = 0; x < width; x++) {
+          if ((row[offset + x] & 0xFF) != 0) {
+            bytes[x >> 3] |= (byte) (0x80 >>> (x & 7));
+          }
+        }
+        break;
+      case GRAY_8:
+        for (int x = 0; x < width; x++) {
+          bytes[x] = (byte) row[offset + x];
+        }
+        break;
+      case RGB:
+        for (int x = 0, i = 0; x < width; x++) {
+          int pixel = row[offset + x];
+          bytes[i++] = (byte) (pixel >> 16);
+          bytes[i++] = (byte) (pixel >> 8);
+          bytes[i++] = (byte) pixel;
+        }
+        break;
+      default:
+        for (int x = 0, i = 0; x < width; x++) {
+          int pixel = row[offset + x];
+          bytes[i++] = (byte) (pixel >> 16);
+          bytes[i++] = (byte) (pixel >> 8);
+          bytes[i++] = (byte) pixel;
+          bytes[i++] = (byte) (pixel >>> 24);
+        }
+    }
+  }
+
+  /**
+   * Writes the filter type byte and the filtered row at offset. 1-bit rows are left unfiltered, as
+   * the PNG specification recommends; 8-bit rows get whichever of the five filters gives the
+   * smallest sum of absolute differences.
+   */
+  private static void filterRow(
+      int format, byte[] row, byte[] above, byte[] out, int offset, byte[][] candidates) {
+    int length = row.length;
+    if (format == GRAY_1) {
+      out[offset] = 0;
+      System.arraycopy(row, 0, out, offset + 1, length);
+      return;
+    }
+
+    // All five filters in one pass over the row
+    int bpp = format == GRAY_8 ? 1 : format == RGB ? 3 : 4;
+    byte[] none = candidates[0];
+    byte[] sub = candidates[1];
+    byte[] up = candidates[2];
+    byte[] average = candidates[3];
+    byte[] paeth = candidates[4];
+    long[] sums = new long[5];
+    for (int i = 0; i < length; i++) {
+      int x = row[i];
+      int a = i >= bpp ? row[i - bpp] & 0xFF : 0;
+      int b = above[i] & 0xFF;
+      int c = i >= bpp ? above[i - bpp] & 0xFF : 0;
+      none[i] = (byte) x;
+      sub[i] = (byte) (x - a);
+      up[i] = (byte) (x - b);
+      average[i] = (byte) (x - ((a + b) >> 1));
+      paeth[i] = (byte) (x - paeth(a, b, c));
+      sums[0] += Math.abs(none[i]);
+      sums[1] += Math.abs(sub[i]);
+      sums[2] += Math.abs(up[i]);
+      sums[3] += Math.abs(average[i]);
+      sums[4] += Math.abs(paeth[i]);
+    }
+    int best = 0;
+    for (int filter = 1; filter < 5; filter++) {
+      if (sums[filter] < sums[best]) {
+        best = filter;
+      }
+    }
+
+    out[offset] = (byte) best;
+    System.arraycopy(candidates[best], 0, out, offset + 1, length);
+  }
+
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  /**
+   * Combines the Adler-32 checksums of two consecutive pieces of data into the checksum of both,
+   * as zlib's adler32_combine does.
+   */
+  private static long combineAdler(long adler1, long adler2, long length2) {
+    final long base = 65521;
+    long remainder = length2 % base;
+    long sum1 = adler1 & 0xFFFF;
+    long sum2 = (remainder * sum1) % base;
+    sum1 += (adler2 & 0xFFFF) + base - 1;
+    sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + base - remainder;
+    if (sum1 >= base) {
+      sum1 -= base;
+    }
+    if (sum1 >= base) {
+      sum1 -= base;
+    }
+    if (sum2 >= 2 * base) {
+      sum2 -= 2 * base;
+    }
+    if (sum2 >= base) {
+      sum2 -= base;
+    }
+    return sum1 | (sum2 << 16);
+  }
+
+  /** Second zlib header byte: the level hint, with the check bits that make the header valid. */
+  private static int zlibLevelFlags(int level) {
+    int hint = level <= 1 ? 0 : level <= 5 ? 1 : level == 6 ? 2 : 3;
+    int flags = hint << 6;
+    return flags + 31 - ((0x78 << 8) + flags) % 31;
+  }
+
+  private static void writeChunk(DataOutputStream out, String type, byte[] data, int length)
+      throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    out.writeInt((int) crc.getValue());
+  }
+
+  private static void putInt(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) (value >>> 24);
+    bytes[offset + 1] = (byte) (value >>> 16);
+    bytes[offset + 2] = (byte) (value >>> 8);
+    bytes[offset + 3] = (byte) value;
+  }
+}
@@ -1,7 +1,9 @@
 package edu.stockton.project;
 
-import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
 import org.cicirello.permutations.Permutation;
 import org.cicirello.search.SolutionCostPair;
 import org.cicirello.search.evo.FitnessProportionalSelection;
@@ -11,37 +13,45 @@ import org.cicirello.search.operators.permutations.EnhancedEdgeRecombination;
 import org.cicirello.search.operators.permutations.PermutationInitializer;
 import org.cicirello.search.operators.permutations.ReversalMutation;
 import org.cicirello.search.problems.tsp.TSP;
-import org.knowm.xchart.BitmapEncoder;
-import org.knowm.xchart.XYChart;
-import org.knowm.xchart.XYChartBuilder;
-import org.knowm.xchart.XYSeries;
-import org.knowm.xchart.style.lines.SeriesLines;
-import org.knowm.xchart.style.markers.SeriesMarkers;
 
 /** Test class for creating and drawing tours. */
 public class TSPArtExample {
   /* Private constructor to prevent instantiation. */
   private TSPArtExample() {}
 
-  public static double[][] generateTour(double[][] points) {
-    int maxGenerations = 100000;
+  /**
+   * Solves the TSP over the given points with a generational EA.
+   *
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @return Order in which the tour visits the points, as indices into points
+   */
+  public static int[] generateTour(double[][] points) {
+    return generateTour(points, 100, 10, 0.3, 0.1, 100000);
+  }
 
+  /**
+   * Solves the TSP over the given points with a generational EA of the given settings.
+   *
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param populationSize Population size
+   * @param numElite Number of elite solutions carried over to the next generation
+   * @param mutationRate Probability of a reversal mutation
+   * @param crossoverRate Probability of an edge recombination
+   * @param maxGenerations Number of generations
+   * @return Order in which the tour visits the points, as indices into points
+   */
+  public static int[] generateTour(
+      double[][] points,
+      int populationSize,
+      int numElite,
+      double mutationRate,
+      double crossoverRate,
+      int maxGenerations) {
     double[] xPoints = points[0];
     double[] yPoints = points[1];
 
-    // Print order of coordinates before EA
-    StringBuilder printValue = new StringBuilder();
-    for (int i = 0; i < xPoints.length; i++) {
-      printValue.append("(").append(xPoints[i]).append(", ").append(yPoints[i]).append(") -> ");
-    }
-
-    System.out.println(printValue);
-
     TSP.Double problem = new TSP.Double(xPoints, yPoints);
 
-    int populationSize = 100;
-    int numElite = 10;
-
     Permutation bestPermutation = null;
 
     System.out.println("-------------------------------------------------");
@@ -49,8 +59,6 @@ public class TSPArtExample {
     System.out.println("-------------------------------------------------");
     System.out.printf("%-25s%12s%n", "EA", "best-tour-length");
     System.out.println("-------------------------------------------------");
-    double mutationRate = 0.3;
-    double crossoverRate = 0.1;
     GenerationalEvolutionaryAlgorithm<Permutation> ea =
         new GenerationalEvolutionaryAlgorithm<Permutation>(
             populationSize,
@@ -70,76 +78,25 @@ public class TSPArtExample {
 
     bestPermutation = solutionPermutation;
 
-    // Obtain best coordinates
-    double[][] tour = new double[xPoints.length][2];
-
-    printValue = new StringBuilder();
-
-    int j = 0;
-    for (int i : bestPermutation.toArray()) {
-      tour[j] = new double[] {xPoints[i], yPoints[i]};
-      j++;
-
-      // Print order of coordinates after EA
-      printValue.append("(").append(xPoints[i]).append(", ").append(yPoints[i]).append(") -> ");
-    }
-
-    System.out.println(printValue);
-
-    return tour;
+    return bestPermutation.toArray();
   }
 
   /**
-   * Draws a tour on a graph using the XChart library.
+   * Draws a tour and saves it as a PNG image.
    *
-   * @param tour The tour that will be drawn
-   * @param outputPath The output path
-   * @param dimensions The dimensions of the graph
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param tour The tour that will be drawn, as indices into points
+   * @param outputPath The output path; ".png" is appended if missing
+   * @param dimensions The dimensions of the image
    * @throws IOException Image cannot be written to outputPath
    */
-  public static void drawTour(double[][] tour, String outputPath, int[] dimensions)
+  public static void drawTour(double[][] points, int[] tour, String outputPath, int[] dimensions)
       throws IOException {
-    // Extract x and y coordinates from the tour
-    double[] xData = new double[tour.length + 1];
-    double[] yData = new double[tour.length + 1];
-
-    for (int i = 0; i < tour.length; i++) {
-      xData[i] = tour[i][0];
-      yData[i] = dimensions[1] - tour[i][1]; // Invert y coordinates
-    }
-
-    // Close the tour by connecting back to the first point
-    xData[tour.length] = tour[0][0];
-    yData[tour.length] = tour[0][1];
-
-    // Create chart
-    XYChart chart = new XYChartBuilder().width(dimensions[0]).height(dimensions[1]).build();
-
-    // Customize chart
-    chart.getStyler().setChartBackgroundColor(Color.white);
-    chart.getStyler().setPlotBackgroundColor(Color.white);
-
-    chart.getStyler().setPlotBorderVisible(false);
-    chart.getStyler().setLegendVisible(false);
-    chart.getStyler().setAxisTicksVisible(false);
-    chart.getStyler().setAxisTicksLineVisible(false);
-    chart.getStyler().setAxisTitlesVisible(false);
-    chart.getStyler().setChartTitleVisible(false);
-    chart.getStyler().setPlotGridLinesVisible(false);
-
-    // Set Axis bounds to match dimensions
-    chart.getStyler().setXAxisMin(0.0);
-    chart.getStyler().setXAxisMax((double) dimensions[0]);
-    chart.getStyler().setYAxisMin(0.0);
-    chart.getStyler().setYAxisMax((double) dimensions[1]);
-
-    XYSeries series = chart.addSeries("TSP Tour", xData, yData);
-    series.setLineColor(Color.black);
-    series.setLineStyle(SeriesLines.SOLID);
-    series.setMarker(SeriesMarkers.NONE);
-    series.setLineWidth(1.0f);
+    BufferedImage image = TourRenderer.render(points, tour, dimensions[0], dimensions[1], 1.0);
 
     // Save final image
-    BitmapEncoder.saveBitmap(chart, outputPath, BitmapEncoder.BitmapFormat.PNG);
+    String path =
+        outputPath.toLowerCase(Locale.ROOT).endsWith(".png") ? outputPath : outputPath + ".png";
+    PngEncoder.write(image, Paths.get(path));
   }
 }
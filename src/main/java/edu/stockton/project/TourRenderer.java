@@ -0,0 +1,241 @@
+package edu.stockton.project;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Draws a closed tour as an anti-aliased black polyline on white, writing straight into the pixel
+ * array of the image. Each pixel near a segment is shaded by its distance to the segment, so lines
+ * have round caps and joints, and overlapping segments keep the darkest shade instead of adding up.
+ *
+ * <p>Large outputs are split into horizontal bands of rows that are rasterized in parallel. Every
+ * segment is first sorted into the bands it touches, so each band only visits its own segments and
+ * no two threads write the same pixel.
+ */
+public final class TourRenderer {
+
+  /** Rows per band of parallel rasterization. */
+  private static final int BAND_HEIGHT = 64;
+
+  /** Outputs smaller than this many pixels are drawn on the calling thread. */
+  private static final long PARALLEL_MIN_PIXELS = 1L << 21;
+
+  // White with the alpha byte set, so the raster also reads as opaque ARGB in the GUI viewer
+  private static final int WHITE = 0xFFFFFFFF;
+
+  /* Private constructor to prevent instantiation. */
+  private TourRenderer() {}
+
+  /**
+   * Draws a tour. Coordinates are in pixels with y pointing down, as in the input image.
+   *
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param tour Order in which the tour visits the points, as indices into points
+   * @param width Width of the output image
+   * @param height Height of the output image
+   * @param strokeWidth Width of the line in pixels; lines thinner than one pixel are drawn one
+   *     pixel wide and proportionally lighter
+   * @return RGB image of the tour
+   */
+  public static BufferedImage render(
+      double[][] points, int[] tour, int width, int height, double strokeWidth) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    Arrays.fill(raster, WHITE);
+    if (tour.length == 0) {
+      return image;
+    }
+
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+    double halfWidth = Math.max(strokeWidth, 1.0) / 2;
+    double opacity = Math.min(Math.max(strokeWidth, 0.0), 1.0);
+    double reach = halfWidth + 0.5;
+
+    // Sort the segments into the bands of rows they can shade. Segment s runs from tour[s] to
+    // tour[s + 1], and the last one closes the tour.
+    int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    int segments = tour.length;
+    int[] bandStart = new int[bands + 1];
+    for (int s = 0; s < segments; s++) {
+      int a = tour[s];
+      int b = tour[(s + 1) % segments];
+      int first = band(Math.min(yPoints[a], yPoints[b]) - reach, bands);
+      int last = band(Math.max(yPoints[a], yPoints[b]) + reach, bands);
+      for (int band = first; band <= last; band++) {
+        bandStart[band + 1]++;
+      }
+    }
+    for (int band = 0; band < bands; band++) {
+      bandStart[band + 1] += bandStart[band];
+    }
+    int[] bandSegments = new int[bandStart[bands]];
+    int[] fill = Arrays.copyOf(bandStart, bands);
+    for (int s = 0; s < segments; s++) {
+      int a = tour[s];
+      int b = tour[(s + 1) % segments];
+      int first = band(Math.min(yPoints[a], yPoints[b]) - reach, bands);
+      int last = band(Math.max(yPoints[a], yPoints[b]) + reach, bands);
+      for (int band = first; band <= last; band++) {
+        bandSegments[fill[band]++] = s;
+      }
+    }
+
+    IntStream range = IntStream.range(0, bands);
+    if ((long) width * height >= PARALLEL_MIN_PIXELS) {
+      range = range.parallel();
+    }
+    range.forEach(
+        band -> {
+          int rowMin = band * BAND_HEIGHT;
+          int rowMax = Math.min(height, rowMin + BAND_HEIGHT) - 1;
+          for (int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+            int s = bandSegments[k];
+            int a = tour[s];
+            int b = tour[(s + 1) % segments];
+            drawSegment(
+                raster,
+                width,
+                xPoints[a],
+                yPoints[a],
+                xPoints[b],
+                yPoints[b],
+                halfWidth,
+                opacity,
+                rowMin,
+                rowMax);
+          }
+        });
+
+    return image;
+  }
+
+  /**
+   * Draws one tour per ink and composites them like ink on paper: each layer is drawn on its own,
+   * and where layers overlap, the fractions of light that their inks let through multiply.
+   *
+   * @param points Points of each layer, as double[2][n] arrays
+   * @param tours Tour of each layer, as indices into its points
+   * @param inks Ink of each layer as 0xRRGGBB
+   * @param width Width of the output image
+   * @param height Height of the output image
+   * @param strokeWidth Width of the lines in pixels, as in {@link #render}
+   * @return RGB image of all layers
+   */
+  public static BufferedImage renderLayers(
+      double[][][] points, int[][] tours, int[] inks, int width, int height, double strokeWidth) {
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    Arrays.fill(raster, WHITE);
+
+    for (int layer = 0; layer < inks.length; layer++) {
+      int[] shades =
+          ((DataBufferInt) render(points[layer], tours[layer], width, height, strokeWidth)
+                  .getRaster()
+                  .getDataBuffer())
+              .getData();
+      int ink = inks[layer];
+      IntStream rows = IntStream.range(0, height);
+      if ((long) width * height >= PARALLEL_MIN_PIXELS) {
+        rows = rows.parallel();
+      }
+      rows.forEach(
+          y -> {
+            for (int index = y * width; index < (y + 1) * width; index++) {
+              int coverage = 255 - (shades[index] & 0xFF);
+              if (coverage != 0) {
+                raster[index] = multiply(raster[index], ink, coverage);
+              }
+            }
+          });
+    }
+    return image;
+  }
+
+  /** Covers a pixel with a fraction coverage / 255 of ink. */
+  private static int multiply(int pixel, int ink, int coverage) {
+    int result = 0xFF000000;
+    for (int shift = 0; shift <= 16; shift += 8) {
+      int absorbed = 255 - ((ink >> shift) & 0xFF);
+      int transmitted = 255 * 255 - coverage * absorbed; // in 255ths of 255ths
+      result |= (((pixel >> shift) & 0xFF) * transmitted / (255 * 255)) << shift;
+    }
+    return result;
+  }
+
+  /** Band that contains the row at y, clamped to the image. */
+  private static int band(double y, int bands) {
+    int band = (int) Math.floor(y / BAND_HEIGHT);
+    return Math.max(0, Math.min(bands - 1, band));
+  }
+
+  /**
+   * Shades the pixels within reach of one segment, restricted to the given rows. The segment is
+   * walked along its major axis, and at each step only the few pixels across it that can be within
+   * reach are tested against their exact distance to the segment.
+   */
+  private static void drawSegment(
+      int[] raster,
+      int width,
+      double x0,
+      double y0,
+      double x1,
+      double y1,
+      double halfWidth,
+      double opacity,
+      int rowMin,
+      int rowMax) {
+    double dx = x1 - x0;
+    double dy = y1 - y0;
+    double lengthSquared = dx * dx + dy * dy;
+    double reach = halfWidth + 0.5;
+    boolean xMajor = Math.abs(dx) >= Math.abs(dy);
+
+    // Major axis u, minor axis v
+    double u0 = xMajor ? x0 : y0;
+    double u1 = xMajor ? x1 : y1;
+    double v0 = xMajor ? y0 : x0;
+    double du = u1 - u0;
+    double slope = du == 0 ? 0 : (xMajor ? dy : dx) / du;
+    double across = reach * (1 + Math.abs(slope));
+
+    int majorMin = (int) Math.floor(Math.min(u0, u1) - reach);
+    int majorMax = (int) Math.ceil(Math.max(u0, u1) + reach);
+    int majorLimit = xMajor ? width - 1 : rowMax;
+    majorMin = Math.max(majorMin, xMajor ? 0 : rowMin);
+    majorMax = Math.min(majorMax, majorLimit);
+
+    for (int major = majorMin; major <= majorMax; major++) {
+      double center = v0 + (major + 0.5 - u0) * slope;
+      int minorMin = (int) Math.floor(center - across - 0.5);
+      int minorMax = (int) Math.ceil(center + across - 0.5);
+      minorMin = Math.max(minorMin, xMajor ? rowMin : 0);
+      minorMax = Math.min(minorMax, xMajor ? rowMax : width - 1);
+
+      for (int minor = minorMin; minor <= minorMax; minor++) {
+        int px = xMajor ? major : minor;
+        int py = xMajor ? minor : major;
+        double cx = px + 0.5 - x0;
+        double cy = py + 0.5 - y0;
+
+        // Distance from the pixel center to the closest point of the segment
+        double t = lengthSquared == 0 ? 0 : (cx * dx + cy * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double ex = cx - t * dx;
+        double ey = cy - t * dy;
+        double coverage = (reach - Math.sqrt(ex * ex + ey * ey)) * opacity;
+        if (coverage <= 0) {
+          continue;
+        }
+
+        int shade = (int) Math.round(255 * (1 - Math.min(coverage, opacity)));
+        int index = py * width + px;
+        if (shade < (raster[index] & 0xFF)) {
+          raster[index] = 0xFF000000 | shade * 0x010101;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,444 @@
+package edu.stockton.project;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Reads and writes stipples and tours, so that the pipeline can start from or stop at either.
+ * Files ending in {@code .tsp} and {@code .tour} are TSPLIB text, which other solvers and viewers
+ * understand; stipples are written as a Euclidean 2-D instance and tours as 1-based node numbers.
+ * EUC_2D rounds distances to integers and asks for integral coordinates, which pixel coordinates
+ * of stipples are not, so they are written multiplied by {@value #TSP_SCALE} and rounded. A
+ * COMMENT line records the scale, and reading such a file divides it out again.
+ *
+ * <p>Files ending in {@code .pts} and {@code .ord} use a compact little-endian binary format for
+ * large instances. Both start with a four byte magic, a version and the number of entries. A point
+ * file then holds all x coordinates followed by all y coordinates as doubles, the same layout as
+ * the {@code double[2][n]} arrays used everywhere else; a tour file holds the 0-based order as
+ * ints. They are memory-mapped on read and copied into the arrays in bulk.
+ */
+public final class TspFiles {
+
+  private static final int POINTS_MAGIC = 0x50505354; // "TSPP" in little-endian order
+  private static final int TOUR_MAGIC = 0x54505354; // "TSPT"
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 16;
+
+  /** Factor applied to coordinates in .tsp files, to keep sub-pixel detail as integers. */
+  private static final int TSP_SCALE = 1000;
+
+  private static final String SCALE_COMMENT = "Coordinates are pixels scaled by ";
+
+  /** Entries per buffer when writing binary files. */
+  private static final int CHUNK = 1 << 16;
+
+  /* Private constructor to prevent instantiation. */
+  private TspFiles() {}
+
+  /**
+   * Checks whether a file name has a point set extension.
+   *
+   * @param file File to check
+   * @return true for {@code .tsp} and {@code .pts} files
+   */
+  public static boolean isPointFile(Path file) {
+    String name = lowerName(file);
+    return name.endsWith(".tsp") || name.endsWith(".pts");
+  }
+
+  /**
+   * Checks whether a file name has a tour extension.
+   *
+   * @param file File to check
+   * @return true for {@code .tour} and {@code .ord} files
+   */
+  public static boolean isTourFile(Path file) {
+    String name = lowerName(file);
+    return name.endsWith(".tour") || name.endsWith(".ord");
+  }
+
+  /**
+   * Reads a point set in the format given by its extension.
+   *
+   * @param file A {@code .tsp} or {@code .pts} file
+   * @return double[2][n] array where [0] is x coords and [1] is y coords
+   * @throws IOException If the file cannot be read or is malformed
+   */
+  public static double[][] readPoints(Path file) throws IOException {
+    return lowerName(file).endsWith(".pts") ? readBinaryPoints(file) : readTsp(file);
+  }
+
+  /**
+   * Writes a point set in the format given by its extension.
+   *
+   * @param file A {@code .tsp} or {@code .pts} file
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @throws IOException If the file cannot be written
+   */
+  public static void writePoints(Path file, double[][] points) throws IOException {
+    if (lowerName(file).endsWith(".pts")) {
+      writeBinaryPoints(file, points);
+    } else {
+      writeTsp(file, points);
+    }
+  }
+
+  /**
+   * Reads a tour in the format given by its extension.
+   *
+   * @param file A {@code .tour} or {@code .ord} file
+   * @return Order in which the tour visits the points, as 0-based indices
+   * @throws IOException If the file cannot be read or is malformed
+   */
+  public static int[] readTour(Path file) throws IOException {
+    return lowerName(file).endsWith(".ord") ? readBinaryTour(file) : readTsplibTour(file);
+  }
+
+  /**
+   * Writes a tour in the format given by its extension.
+   *
+   * @param file A {@code .tour} or {@code .ord} file
+   * @param tour Order in which the tour visits the points, as 0-based indices
+   * @throws IOException If the file cannot be written
+   */
+  public static void writeTour(Path file, int[] tour) throws IOException {
+    if (lowerName(file).endsWith(".ord")) {
+      writeBinaryTour(file, tour);
+    } else {
+      writeTsplibTour(file, tour);
+    }
+  }
+
+  private static void writeTsp(Path file, double[][] points) throws IOException {
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+      writeHeader(out, file, "TSP", xPoints.length);
+      out.write("COMMENT : " + SCALE_COMMENT + TSP_SCALE + "\n");
+      out.write("EDGE_WEIGHT_TYPE : EUC_2D\n");
+      out.write("NODE_COORD_SECTION\n");
+      for (int i = 0; i < xPoints.length; i++) {
+        out.write(Integer.toString(i + 1));
+        out.write(' ');
+        out.write(Long.toString(Math.round(xPoints[i] * TSP_SCALE)));
+        out.write(' ');
+        out.write(Long.toString(Math.round(yPoints[i] * TSP_SCALE)));
+        out.write('\n');
+      }
+      out.write("EOF\n");
+    }
+  }
+
+  private static void writeTsplibTour(Path file, int[] tour) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+      writeHeader(out, file, "TOUR", tour.length);
+      out.write("TOUR_SECTION\n");
+      for (int city : tour) {
+        out.write(Integer.toString(city + 1));
+        out.write('\n');
+      }
+      out.write("-1\nEOF\n");
+    }
+  }
+
+  private static void writeHeader(BufferedWriter out, Path file, String type, int dimension)
+      throws IOException {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    out.write("NAME : " + (dot > 0 ? name.substring(0, dot) : name) + "\n");
+    out.write("TYPE : " + type + "\n");
+    out.write("DIMENSION : " + dimension + "\n");
+  }
+
+  /**
+   * Reads the node coordinates of a TSPLIB instance. Only the keywords that describe the
+   * coordinates are checked; any 2-D coordinate type is accepted. Coordinates are divided by the
+   * scale that {@link #writeTsp} notes in the comment, if there is one.
+   */
+  private static double[][] readTsp(Path file) throws IOException {
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+      int dimension = -1;
+      double scale = 1;
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.startsWith("NODE_COORD_SECTION")) {
+          break;
+        }
+        String key = keyword(line);
+        String value = value(line);
+        if (key.equals("DIMENSION")) {
+          dimension = parseInt(value, file);
+        } else if (key.equals("COMMENT")
+            && value.startsWith(SCALE_COMMENT.toUpperCase(Locale.ROOT))) {
+          scale = parseInt(value.substring(SCALE_COMMENT.length()), file);
+        } else if (key.equals("TYPE") && !value.startsWith("TSP")) {
+          throw new IOException(file.getFileName() + " is not a TSP instance: " + value);
+        } else if ((key.equals("EDGE_WEIGHT_TYPE") && value.endsWith("_3D"))
+            || (key.equals("NODE_COORD_TYPE") && value.equals("THREED_COORDS"))) {
+          throw new IOException("Only 2-D coordinates are supported: " + file.getFileName());
+        }
+      }
+      if (line == null) {
+        throw new IOException("No NODE_COORD_SECTION in " + file.getFileName());
+      }
+      if (dimension < 0) {
+        throw new IOException("No DIMENSION in " + file.getFileName());
+      }
+
+      double[] xPoints = new double[dimension];
+      double[] yPoints = new double[dimension];
+      boolean[] listed = new boolean[dimension];
+      for (int i = 0; i < dimension; i++) {
+        line = in.readLine();
+        if (line == null) {
+          throw new IOException(
+              file.getFileName() + " ends after " + i + " of " + dimension + " nodes");
+        }
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 3) {
+          throw new IOException("Malformed node in " + file.getFileName() + ": " + line);
+        }
+        int node = parseInt(fields[0], file) - 1;
+        if (node < 0 || node >= dimension) {
+          throw new IOException("Node number out of range in " + file.getFileName() + ": " + line);
+        }
+        if (listed[node]) {
+          throw new IOException("Node listed twice in " + file.getFileName() + ": " + line);
+        }
+        listed[node] = true;
+        xPoints[node] = parseDouble(fields[1], file) / scale;
+        yPoints[node] = parseDouble(fields[2], file) / scale;
+      }
+      return new double[][] {xPoints, yPoints};
+    }
+  }
+
+  /**
+   * Reads the first tour of a TSPLIB tour file. Nodes may be spread over lines in any way, and the
+   * list ends at -1 or at the end of the file.
+   */
+  private static int[] readTsplibTour(Path file) throws IOException {
+    try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+      int dimension = -1;
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.startsWith("TOUR_SECTION")) {
+          break;
+        }
+        if (keyword(line).equals("DIMENSION")) {
+          dimension = parseInt(value(line), file);
+        }
+      }
+      if (line == null) {
+        throw new IOException("No TOUR_SECTION in " + file.getFileName());
+      }
+      if (dimension < 0) {
+        throw new IOException("No DIMENSION in " + file.getFileName());
+      }
+
+      int[] tour = new int[dimension];
+      int count = readTourSection(in, tour, file);
+      if (count < dimension) {
+        throw new IOException(
+            file.getFileName() + " ends after " + count + " of " + dimension + " nodes");
+      }
+      checkVisitsOnce(tour, 1, file);
+      return tour;
+    }
+  }
+
+  /**
+   * Reads the nodes of a TOUR_SECTION, a whitespace-separated list on any number of lines that
+   * ends in -1, and stores them 0-based.
+   *
+   * @return Number of nodes read
+   */
+  private static int readTourSection(BufferedReader in, int[] tour, Path file)
+      throws IOException {
+    int count = 0;
+    String line;
+    while ((line = in.readLine()) != null) {
+      for (String token : line.trim().split("\\s+")) {
+        if (token.isEmpty()) {
+          continue;
+        }
+        if (token.equalsIgnoreCase("EOF")) {
+          return count;
+        }
+        int node = parseInt(token, file);
+        if (node == -1) {
+          return count;
+        }
+        if (node < 1 || node > tour.length) {
+          throw new IOException("Node number out of range in " + file.getFileName() + ": " + node);
+        }
+        if (count == tour.length) {
+          throw new IOException("More than " + tour.length + " nodes in " + file.getFileName());
+        }
+        tour[count++] = node - 1;
+      }
+    }
+    return count;
+  }
+
+  private static void writeBinaryPoints(Path file, double[][] points) throws IOException {
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+    try (FileChannel channel = openForWrite(file)) {
+      writeBinaryHeader(channel, POINTS_MAGIC, xPoints.length);
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      for (double[] coords : points) {
+        for (int start = 0; start < coords.length; start += CHUNK) {
+          int length = Math.min(CHUNK, coords.length - start);
+          buffer.clear();
+          buffer.asDoubleBuffer().put(coords, start, length);
+          buffer.limit(length * Double.BYTES);
+          writeFully(channel, buffer);
+        }
+      }
+    }
+  }
+
+  private static void writeBinaryTour(Path file, int[] tour) throws IOException {
+    try (FileChannel channel = openForWrite(file)) {
+      writeBinaryHeader(channel, TOUR_MAGIC, tour.length);
+      ByteBuffer buffer = ByteBuffer.allocate(CHUNK * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      for (int start = 0; start < tour.length; start += CHUNK) {
+        int length = Math.min(CHUNK, tour.length - start);
+        buffer.clear();
+        buffer.asIntBuffer().put(tour, start, length);
+        buffer.limit(length * Integer.BYTES);
+        writeFully(channel, buffer);
+      }
+    }
+  }
+
+  private static double[][] readBinaryPoints(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = map(channel, file, POINTS_MAGIC, 2L * Double.BYTES);
+      int n = mapped.getInt(8);
+      double[] xPoints = new double[n];
+      double[] yPoints = new double[n];
+      mapped.position(HEADER_BYTES);
+      mapped.asDoubleBuffer().get(xPoints).get(yPoints);
+      return new double[][] {xPoints, yPoints};
+    }
+  }
+
+  private static int[] readBinaryTour(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer mapped = map(channel, file, TOUR_MAGIC, Integer.BYTES);
+      int[] tour = new int[mapped.getInt(8)];
+      mapped.position(HEADER_BYTES);
+      mapped.asIntBuffer().get(tour);
+      for (int city : tour) {
+        if (city < 0 || city >= tour.length) {
+          throw new IOException("Node number out of range in " + file.getFileName() + ": " + city);
+        }
+      }
+      checkVisitsOnce(tour, 0, file);
+      return tour;
+    }
+  }
+
+  /**
+   * Checks that no node occurs twice in a tour of nodes in range, which makes the tour visit every
+   * node exactly once.
+   *
+   * @param base Number of the first node in the file, for the message
+   */
+  private static void checkVisitsOnce(int[] tour, int base, Path file) throws IOException {
+    boolean[] visited = new boolean[tour.length];
+    for (int city : tour) {
+      if (visited[city]) {
+        throw new IOException("Node visited twice in " + file.getFileName() + ": " + (city + base));
+      }
+      visited[city] = true;
+    }
+  }
+
+  /** Maps a binary file after checking its header and that its size matches its entry count. */
+  private static MappedByteBuffer map(
+      FileChannel channel, Path file, int magic, long bytesPerEntry) throws IOException {
+    long size = channel.size();
+    if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+      throw new IOException("Not a valid binary file: " + file.getFileName());
+    }
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+    if (mapped.getInt(0) != magic) {
+      throw new IOException("Wrong file type: " + file.getFileName());
+    }
+    if (mapped.getInt(4) != VERSION) {
+      throw new IOException("Unsupported version " + mapped.getInt(4) + ": " + file.getFileName());
+    }
+    int n = mapped.getInt(8);
+    if (n < 0 || HEADER_BYTES + n * bytesPerEntry != size) {
+      throw new IOException("Truncated or corrupt file: " + file.getFileName());
+    }
+    return mapped;
+  }
+
+  private static FileChannel openForWrite(Path file) throws IOException {
+    return FileChannel.open(
+        file,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE);
+  }
+
+  private static void writeBinaryHeader(FileChannel channel, int magic, int count)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(magic).putInt(VERSION).putInt(count).putInt(0).flip();
+    writeFully(channel, header);
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  private static String keyword(String line) {
+    int colon = line.indexOf(':');
+    return (colon < 0 ? line : line.substring(0, colon)).trim().toUpperCase(Locale.ROOT);
+  }
+
+  private static String value(String line) {
+    int colon = line.indexOf(':');
+    return colon < 0 ? "" : line.substring(colon + 1).trim().toUpperCase(Locale.ROOT);
+  }
+
+  private static int parseInt(String text, Path file) throws IOException {
+    try {
+      return Integer.parseInt(text.trim());
+    } catch (NumberFormatException e) {
+      throw new IOException("Expected an integer in " + file.getFileName() + ": " + text, e);
+    }
+  }
+
+  private static double parseDouble(String text, Path file) throws IOException {
+    try {
+      return Double.parseDouble(text);
+    } catch (NumberFormatException e) {
+      throw new IOException("Expected a number in " + file.getFileName() + ": " + text, e);
+    }
+  }
+
+  private static String lowerName(Path file) {
+    return file.getFileName().toString().toLowerCase(Locale.ROOT);
+  }
+}
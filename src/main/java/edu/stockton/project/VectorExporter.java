@@ -0,0 +1,302 @@
+package edu.stockton.project;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes tours and stipples as vector graphics, so that art can be printed at any size from the
+ * same small file. The format follows the file name: {@code .svg}, gzip-compressed {@code .svgz} or
+ * {@code .svg.gz}, or {@code .pdf}.
+ *
+ * <p>Coordinates are streamed from the point arrays through a buffered writer as they are
+ * formatted, with no document tree in between, so memory use does not grow with the number of
+ * points. A tour is a single closed path with round joins; stipples are zero-length segments with
+ * round caps, which every viewer draws as dots.
+ */
+public final class VectorExporter {
+
+  /** Points per line of path data, to keep the files readable in a text editor. */
+  private static final int POINTS_PER_LINE = 16;
+
+  /* Private constructor to prevent instantiation. */
+  private VectorExporter() {}
+
+  /**
+   * Checks whether a file name has an extension this exporter can write.
+   *
+   * @param file File to check
+   * @return true for SVG, compressed SVG, and PDF files
+   */
+  public static boolean isVectorFile(Path file) {
+    return format(file) != null;
+  }
+
+  /**
+   * Writes a closed tour.
+   *
+   * @param file Output file
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param tour Order in which the tour visits the points, as indices into points
+   * @param width Width of the drawing
+   * @param height Height of the drawing
+   * @param strokeWidth Width of the line
+   * @throws IOException If the file cannot be written
+   */
+  public static void writeTour(
+      Path file, double[][] points, int[] tour, int width, int height, double strokeWidth)
+      throws IOException {
+    write(file, points, tour, width, height, strokeWidth);
+  }
+
+  /**
+   * Writes stipples as round dots.
+   *
+   * @param file Output file
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param width Width of the drawing
+   * @param height Height of the drawing
+   * @param radius Radius of a dot
+   * @throws IOException If the file cannot be written
+   */
+  public static void writeStipples(
+      Path file, double[][] points, int width, int height, double radius) throws IOException {
+    write(file, points, null, width, height, 2 * radius);
+  }
+
+  private enum Format {
+    SVG,
+    SVGZ,
+    PDF
+  }
+
+  private static Format format(Path file) {
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    if (name.endsWith(".svg")) {
+      return Format.SVG;
+    }
+    if (name.endsWith(".svgz") || name.endsWith(".svg.gz")) {
+      return Format.SVGZ;
+    }
+    if (name.endsWith(".pdf")) {
+      return Format.PDF;
+    }
+    return null;
+  }
+
+  /** Writes a tour, or dots if the tour is null. */
+  private static void write(
+      Path path, double[][] points, int[] tour, int width, int height, double strokeWidth)
+      throws IOException {
+    Format format = format(path);
+    if (format == null) {
+      throw new IllegalArgumentException("Not an SVG or PDF file name: " + path);
+    }
+
+    OutputStream file = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+    try (OutputStream out = format == Format.SVGZ ? new GZIPOutputStream(file, 1 << 16) : file) {
+      if (format == Format.PDF) {
+        writePdf(out, points, tour, width, height, strokeWidth);
+      } else {
+        writeSvg(out, points, tour, width, height, strokeWidth);
+      }
+    }
+  }
+
+  private static void writeSvg(
+      OutputStream stream,
+      double[][] points,
+      int[] tour,
+      int width,
+      int height,
+      double strokeWidth)
+      throws IOException {
+    Writer out = asciiWriter(stream);
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    out.write("<svg xmlns=\"http://www.w3.org/2000/svg\"");
+    out.write(String.format(Locale.ROOT, " width=\"%d\" height=\"%d\"", width, height));
+    out.write(String.format(Locale.ROOT, " viewBox=\"0 0 %d %d\">\n", width, height));
+    out.write("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+    out.write("<path fill=\"none\" stroke=\"black\" stroke-linecap=\"round\"");
+    out.write(" stroke-linejoin=\"round\" stroke-width=\"");
+    writeNumber(out, strokeWidth);
+    out.write("\" d=\"");
+
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+    int count = tour != null ? tour.length : xPoints.length;
+    for (int i = 0; i < count; i++) {
+      int point = tour != null ? tour[i] : i;
+      out.write(i % POINTS_PER_LINE == 0 ? '\n' : ' ');
+      out.write(tour == null || i == 0 ? 'M' : 'L');
+      writeNumber(out, xPoints[point]);
+      out.write(' ');
+      writeNumber(out, yPoints[point]);
+      if (tour == null) {
+        out.write("h0");
+      }
+    }
+    if (tour != null && count > 0) {
+      out.write('Z');
+    }
+
+    out.write("\"/>\n</svg>\n");
+    out.flush();
+  }
+
+  /**
+   * Writes a one-page PDF. The objects are the catalog, the page tree, the page, its deflated
+   * content stream, and the length of that stream, which is only known once the stream has been
+   * written. The cross-reference table at the end lists the byte offset of each object.
+   */
+  private static void writePdf(
+      OutputStream stream,
+      double[][] points,
+      int[] tour,
+      int width,
+      int height,
+      double strokeWidth)
+      throws IOException {
+    CountingOutputStream out = new CountingOutputStream(stream);
+    long[] offsets = new long[6];
+
+    writeAscii(out, "%PDF-1.4\n");
+    out.write(new byte[] {'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'});
+
+    offsets[1] = out.count;
+    writeAscii(out, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+    offsets[2] = out.count;
+    writeAscii(out, "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
+    offsets[3] = out.count;
+    writeAscii(
+        out,
+        String.format(
+            Locale.ROOT,
+            "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 %d %d] /Contents 4 0 R >>\n"
+                + "endobj\n",
+            width,
+            height));
+
+    offsets[4] = out.count;
+    writeAscii(out, "4 0 obj\n<< /Length 5 0 R /Filter /FlateDecode >>\nstream\n");
+    long streamStart = out.count;
+    DeflaterOutputStream deflater = new DeflaterOutputStream(new NonClosing(out));
+    Writer content = asciiWriter(deflater);
+
+    // Flip the y axis so that the page uses the image coordinates
+    content.write(String.format(Locale.ROOT, "1 0 0 -1 0 %d cm\n", height));
+    content.write("0 G 1 J 1 j ");
+    writeNumber(content, strokeWidth);
+    content.write(" w\n");
+
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+    int count = tour != null ? tour.length : xPoints.length;
+    for (int i = 0; i < count; i++) {
+      int point = tour != null ? tour[i] : i;
+      writeNumber(content, xPoints[point]);
+      content.write(' ');
+      writeNumber(content, yPoints[point]);
+      if (tour == null) {
+        content.write(" m ");
+        writeNumber(content, xPoints[point]);
+        content.write(' ');
+        writeNumber(content, yPoints[point]);
+        content.write(" l\n");
+      } else {
+        content.write(i == 0 ? " m\n" : " l\n");
+      }
+    }
+    content.write(tour != null && count > 0 ? "h S\n" : "S\n");
+    content.close();
+    long streamLength = out.count - streamStart;
+    writeAscii(out, "\nendstream\nendobj\n");
+
+    offsets[5] = out.count;
+    writeAscii(out, "5 0 obj\n" + streamLength + "\nendobj\n");
+
+    long xref = out.count;
+    StringBuilder table = new StringBuilder("xref\n0 6\n0000000000 65535 f \n");
+    for (int i = 1; i < offsets.length; i++) {
+      table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offsets[i]));
+    }
+    table.append("trailer\n<< /Size 6 /Root 1 0 R >>\nstartxref\n");
+    table.append(xref).append("\n%%EOF\n");
+    writeAscii(out, table.toString());
+    out.flush();
+  }
+
+  private static Writer asciiWriter(OutputStream out) {
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+  }
+
+  private static void writeAscii(OutputStream out, String text) throws IOException {
+    out.write(text.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  /** Writes a number with at most two decimals and no exponent, which both SVG and PDF accept. */
+  private static void writeNumber(Writer out, double value) throws IOException {
+    long hundredths = Math.round(value * 100);
+    if (hundredths < 0) {
+      out.write('-');
+      hundredths = -hundredths;
+    }
+    out.write(Long.toString(hundredths / 100));
+    int fraction = (int) (hundredths % 100);
+    if (fraction != 0) {
+      out.write('.');
+      out.write('0' + fraction / 10);
+      if (fraction % 10 != 0) {
+        out.write('0' + fraction % 10);
+      }
+    }
+  }
+
+  /** Counts the bytes written, for the cross-reference table of a PDF. */
+  private static final class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+
+  /** Lets the content stream be closed, releasing its deflater, without closing the file. */
+  private static final class NonClosing extends FilterOutputStream {
+    NonClosing(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
@@ -1,16 +1,20 @@
 package edu.stockton.project;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
-import javax.imageio.ImageIO;
 
 /**
  * Weighted Voronoi Stippler based on Secord (2002). Generates stipple drawings from grayscale
  * images using Lloyd's algorithm.
  */
 public class VoronoiStippler {
+  /** Number of stipples used by {@link #stipple}. */
+  public static final int DEFAULT_STIPPLES = 2000;
+
   private final BufferedImage image;
   private final int width;
   private final int height;
@@ -33,6 +37,36 @@ public class VoronoiStippler {
     this.numStipples = numStipples;
   }
 
+  /**
+   * Constructor that shares the density function of another stippler, so that the same image can
+   * be stippled again with a different stipple count without recomputing it.
+   *
+   * @param other Stippler of the image, whose density function is only read
+   * @param numStipples The number of stipples that will be generated
+   */
+  public VoronoiStippler(VoronoiStippler other, int numStipples) {
+    this.image = other.image;
+    this.width = other.width;
+    this.height = other.height;
+    this.density = other.density;
+    this.numStipples = numStipples;
+  }
+
+  /**
+   * Constructor that stipples a density field rather than the brightness of an image, such as the
+   * coverage of one ink in a color separation.
+   *
+   * @param density density[y][x] in the range [0, 1], where 1 asks for the most stipples
+   * @param numStipples The number of stipples that will be generated
+   */
+  public VoronoiStippler(float[][] density, int numStipples) {
+    this.image = null;
+    this.width = density.length == 0 ? 0 : density[0].length;
+    this.height = density.length;
+    this.density = density;
+    this.numStipples = numStipples;
+  }
+
   /** Stores x-y coords in a single object. */
   public static class Point2D {
     public double x, y;
@@ -87,7 +121,10 @@ public class VoronoiStippler {
   }
 
   /**
-   * Initialize generators using rejection sampling weighted by density.
+   * Initialize generators using rejection sampling weighted by density. Rejection sampling gives up
+   * after 100 attempts per stipple, which is too few for a faint image such as a light ink layer;
+   * the stipples it still lacks are then drawn from the cumulative density, so the stippler always
+   * places numStipples unless the image is blank.
    *
    * @param numStipples The number of stipples/points to create
    */
@@ -120,9 +157,39 @@ public class VoronoiStippler {
       attempts++;
     }
 
+    if (added < numStipples && totalWeight > 0) {
+      sampleCumulative(numStipples - added);
+    }
+
     System.out.println("Initialized " + generators.size() + " generators");
   }
 
+  /**
+   * Adds generators at pixels drawn with probability proportional to density, by binary search in
+   * the cumulative density of the pixels in row-major order.
+   *
+   * @param count The number of generators to add
+   */
+  private void sampleCumulative(int count) {
+    double[] cumulative = new double[width * height];
+    double sum = 0;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        sum += density[y][x];
+        cumulative[y * width + x] = sum;
+      }
+    }
+
+    for (int i = 0; i < count; i++) {
+      int pixel = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      if (pixel < 0) {
+        pixel = -pixel - 1;
+      }
+      pixel = Math.min(pixel, cumulative.length - 1);
+      generators.add(new Point2D(pixel % width, pixel / width));
+    }
+  }
+
   /**
    * Compute Voronoi diagram: for each pixel, find the closest generator.
    *
@@ -230,6 +297,20 @@ public class VoronoiStippler {
     }
   }
 
+  /**
+   * Runs Lloyd's algorithm like {@link #iterateLloyd} without printing each iteration, for
+   * pipelines that stipple several images or layers at the same time.
+   *
+   * @param numIterations The maximum number of iterations
+   */
+  public void iterateLloydQuietly(int numIterations) {
+    for (int iteration = 0; iteration < numIterations && !generators.isEmpty(); iteration++) {
+      if (iterateLloydSingleIteration() < 0.1) {
+        break;
+      }
+    }
+  }
+
   /**
    * Performs a single iteration of Lloyd's algorithm for progress reporting.
    *
@@ -276,6 +357,18 @@ public class VoronoiStippler {
     return new double[][] {xList, yList};
   }
 
+  /**
+   * Replaces the stipples, for instance with ones kept from an earlier run.
+   *
+   * @param points double[][] where [0] is x coords and [1] is y coords
+   */
+  public void setStipplePoints(double[][] points) {
+    generators = new ArrayList<>(points[0].length);
+    for (int i = 0; i < points[0].length; i++) {
+      generators.add(new Point2D(points[0][i], points[1][i]));
+    }
+  }
+
   /**
    * Renders stipples to a BufferedImage.
    *
@@ -284,32 +377,30 @@ public class VoronoiStippler {
    */
   public BufferedImage renderStipples(float stippleRadius) {
     BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] raster = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
 
-    // Fill with white background
-    for (int i = 0; i < width; i++) {
-      for (int j = 0; j < height; j++) {
-        result.setRGB(i, j, 0xFFFFFF);
-      }
-    }
+    // Fill with white background. Pixels are written with an opaque alpha byte, which the RGB
+    // image ignores but lets the GUI display the raster without converting it.
+    Arrays.fill(raster, 0xFFFFFFFF);
 
     // Draw black stipples
     for (Point2D stipple : generators) {
-      drawCircle(result, (int) stipple.x, (int) stipple.y, (int) stippleRadius, 0x000000);
+      drawCircle(raster, (int) stipple.x, (int) stipple.y, (int) stippleRadius, 0xFF000000);
     }
 
     return result;
   }
 
   /**
-   * Draws a filled circle on a BufferedImage (Bresenham-like approximation).
+   * Draws a filled circle into the pixels of an image (Bresenham-like approximation).
    *
-   * @param img The BufferedImage being drawn on
+   * @param raster The pixels being drawn on, width * height ints in rows
    * @param cx The x-coord of the circle's center
    * @param cy The y-coord of the circle's center
    * @param radius The radius of the circle in pixels
    * @param color The color of the circle
    */
-  private void drawCircle(BufferedImage img, int cx, int cy, int radius, int color) {
+  private void drawCircle(int[] raster, int cx, int cy, int radius, int color) {
     int r2 = radius * radius;
 
     for (int dy = -radius; dy <= radius; dy++) {
@@ -318,7 +409,7 @@ public class VoronoiStippler {
           int x = cx + dx;
           int y = cy + dy;
           if (x >= 0 && x < width && y >= 0 && y < height) {
-            img.setRGB(x, y, color);
+            raster[y * width + x] = color;
           }
         }
       }
@@ -326,19 +417,32 @@ public class VoronoiStippler {
   }
 
   /**
-   * Reads a grayscale image.
+   * Reads a grayscale image at the working resolution for the default stipple count.
    *
    * @param imagePath The location of the image as a path
    * @return BufferedImage from the imagePath
    * @throws IOException Image cannot be found
    */
   public static BufferedImage loadGrayscaleImage(String imagePath) throws IOException {
+    return loadGrayscaleImage(imagePath, DEFAULT_STIPPLES);
+  }
+
+  /**
+   * Reads a grayscale image, subsampled to the working resolution for a stipple count.
+   *
+   * @param imagePath The location of the image as a path
+   * @param stippleCount Number of stipples the image will be stippled with
+   * @return BufferedImage from the imagePath
+   * @throws IOException Image cannot be found
+   */
+  public static BufferedImage loadGrayscaleImage(String imagePath, int stippleCount)
+      throws IOException {
     if (!new File(imagePath).exists()) {
       throw new Error(
           "Image not found: " + imagePath + "\n" + "Please provide an input image file.");
     }
 
-    return ImageIO.read(new File(imagePath));
+    return ImageLoader.loadGray(Paths.get(imagePath), ImageLoader.workingPixels(stippleCount));
   }
 
   /**
@@ -363,7 +467,7 @@ public class VoronoiStippler {
     }
 
     // Create stippler
-    VoronoiStippler stippler = new VoronoiStippler(image, 2000);
+    VoronoiStippler stippler = new VoronoiStippler(image, DEFAULT_STIPPLES);
 
     // Parameters
     int numIterations = 50;
@@ -394,7 +498,7 @@ public class VoronoiStippler {
       yList[i] = point.getY();
     }
 
-    ImageIO.write(output, "png", outputFile);
+    PngEncoder.write(output, outputFile.toPath());
     System.out.println("Saved to: " + outputFile.getAbsolutePath());
 
     return new double[][] {xList, yList};
@@ -0,0 +1,312 @@
+package edu.stockton.project.gui;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Snapshot of a single-EA run that can be resumed after a crash or cancel. It holds the stipples,
+ * the configuration with the rates and operators actually used, the best tour, and the progress of
+ * the run. For the steady-state EA it also holds the population and the seed of the random number
+ * generator that picks parents, so a resumed run carries on with the same population. A resumed run
+ * of any other EA reseeds its population around the best tour, as the EA does on a stagnation
+ * restart. The mutation and crossover operators draw from
+ * their own generators in either case, so a resumed run is not a bit-for-bit replay.
+ *
+ * <p>The file is a big-endian binary stream: a magic number and format version, the configuration,
+ * the progress counters, the stipple coordinates, the best tour, and the population if any.
+ */
+final class Checkpoint {
+
+  private static final int MAGIC = 0x54535043; // "TSPC"
+  private static final int VERSION = 4;
+
+  /** Population of a steady-state EA and the seed its parent selection continues from. */
+  static final class Population {
+    final int[][] members;
+    final long seed;
+
+    Population(int[][] members, long seed) {
+      this.members = members;
+      this.seed = seed;
+    }
+  }
+
+  final ParameterConfig config;
+  final double[] xPoints;
+  final double[] yPoints;
+  final int[] bestTour;
+  final double bestCost;
+  final long generations;
+  final int restarts;
+  final long elapsedMillis;
+  final Population population;
+
+  Checkpoint(
+      ParameterConfig config,
+      double[] xPoints,
+      double[] yPoints,
+      int[] bestTour,
+      double bestCost,
+      long generations,
+      int restarts,
+      long elapsedMillis,
+      Population population) {
+    this.config = config;
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.bestTour = bestTour;
+    this.bestCost = bestCost;
+    this.generations = generations;
+    this.restarts = restarts;
+    this.elapsedMillis = elapsedMillis;
+    this.population = population;
+  }
+
+  /**
+   * Returns the default checkpoint location, which is {@code ~/.tsp-art/checkpoint.bin} unless
+   * overridden by the {@code tspart.checkpoint} system property.
+   *
+   * @return The default checkpoint file
+   */
+  static Path defaultPath() {
+    String override = System.getProperty("tspart.checkpoint");
+    if (override != null) {
+      return Paths.get(override);
+    }
+    return Paths.get(System.getProperty("user.home"), ".tsp-art", "checkpoint.bin");
+  }
+
+  /**
+   * Checks whether this checkpoint was taken on the given stipples.
+   *
+   * @param x Array of x-coords
+   * @param y Array of y-coords
+   * @return true if the stipples are identical
+   */
+  boolean matches(double[] x, double[] y) {
+    return Arrays.equals(xPoints, x) && Arrays.equals(yPoints, y);
+  }
+
+  /**
+   * Writes the checkpoint. The data goes to a temporary file that then replaces the target, so a
+   * crash during the write leaves the previous checkpoint intact.
+   *
+   * @param file Location of the checkpoint
+   * @throws IOException If the file cannot be written
+   */
+  void write(Path file) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeConfig(out, config);
+      out.writeLong(generations);
+      out.writeInt(restarts);
+      out.writeLong(elapsedMillis);
+      out.writeDouble(bestCost);
+
+      out.writeInt(xPoints.length);
+      for (int i = 0; i < xPoints.length; i++) {
+        out.writeDouble(xPoints[i]);
+        out.writeDouble(yPoints[i]);
+      }
+      for (int city : bestTour) {
+        out.writeInt(city);
+      }
+
+      if (population == null) {
+        out.writeInt(0);
+      } else {
+        out.writeInt(population.members.length);
+        out.writeLong(population.seed);
+        for (int[] member : population.members) {
+          for (int city : member) {
+            out.writeInt(city);
+          }
+        }
+      }
+    }
+
+    try {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Reads a checkpoint. Every count and tour entry is checked against the rest of the file, so a
+   * truncated or corrupt checkpoint fails with an IOException rather than a runtime exception.
+   *
+   * @param file Location of the checkpoint
+   * @return The checkpoint
+   * @throws IOException If the file cannot be read or is not a valid checkpoint
+   */
+  static Checkpoint read(Path file) throws IOException {
+    // Read whole, so that counts can be checked against the bytes that are left
+    try (DataInputStream in =
+        new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a checkpoint file: " + file);
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported checkpoint version " + version + ": " + file);
+      }
+
+      ParameterConfig config = readConfig(in);
+      long generations = in.readLong();
+      int restarts = in.readInt();
+      long elapsedMillis = in.readLong();
+      double bestCost = in.readDouble();
+
+      int n = in.readInt();
+      if (n < 0 || n > config.getStippleCount()) {
+        throw new IOException("Stipple count " + n + " out of range in checkpoint: " + file);
+      }
+      if ((long) n * (2 * Double.BYTES + Integer.BYTES) > in.available()) {
+        throw new IOException("Truncated checkpoint: " + file);
+      }
+      double[] xPoints = new double[n];
+      double[] yPoints = new double[n];
+      for (int i = 0; i < n; i++) {
+        xPoints[i] = in.readDouble();
+        yPoints[i] = in.readDouble();
+      }
+      int[] bestTour = new int[n];
+      for (int i = 0; i < n; i++) {
+        bestTour[i] = in.readInt();
+      }
+      checkPermutation(bestTour, file);
+
+      Population population = null;
+      int size = in.readInt();
+      if (size < 0 || size > config.getPopulationSize()) {
+        throw new IOException("Population size " + size + " out of range in checkpoint: " + file);
+      }
+      if (size > 0) {
+        long seed = in.readLong();
+        if ((long) size * n * Integer.BYTES > in.available()) {
+          throw new IOException("Truncated checkpoint: " + file);
+        }
+        int[][] members = new int[size][n];
+        for (int[] member : members) {
+          for (int i = 0; i < n; i++) {
+            member[i] = in.readInt();
+          }
+          checkPermutation(member, file);
+        }
+        population = new Population(members, seed);
+      }
+
+      return new Checkpoint(
+          config,
+          xPoints,
+          yPoints,
+          bestTour,
+          bestCost,
+          generations,
+          restarts,
+          elapsedMillis,
+          population);
+    } catch (EOFException e) {
+      throw new IOException("Truncated checkpoint: " + file, e);
+    }
+  }
+
+  /** Checks that a tour read from a checkpoint visits every stipple exactly once. */
+  private static void checkPermutation(int[] tour, Path file) throws IOException {
+    boolean[] visited = new boolean[tour.length];
+    for (int city : tour) {
+      if (city < 0 || city >= tour.length) {
+        throw new IOException("Stipple index out of range in checkpoint " + file + ": " + city);
+      }
+      if (visited[city]) {
+        throw new IOException("Stipple visited twice in checkpoint " + file + ": " + city);
+      }
+      visited[city] = true;
+    }
+  }
+
+  private static void writeConfig(DataOutputStream out, ParameterConfig config)
+      throws IOException {
+    out.writeUTF(config.getParameterMode().name());
+    out.writeUTF(config.getMutationOperator());
+    out.writeUTF(config.getCrossoverOperator());
+    out.writeDouble(config.getCrossoverMin());
+    out.writeDouble(config.getCrossoverMax());
+    out.writeDouble(config.getCrossoverStep());
+    out.writeDouble(config.getMutationMin());
+    out.writeDouble(config.getMutationMax());
+    out.writeDouble(config.getMutationStep());
+    out.writeDouble(config.getManualCrossoverRate());
+    out.writeDouble(config.getManualMutationRate());
+    out.writeInt(config.getPopulationSize());
+    out.writeInt(config.getMaxGenerations());
+    out.writeInt(config.getEliteCount());
+    out.writeBoolean(config.isSteadyState());
+    out.writeDouble(config.getTimeBudgetSeconds());
+    out.writeInt(config.getStagnationGenerations());
+    out.writeDouble(config.getTargetGapPercent());
+    out.writeBoolean(config.isTiledSolving());
+    out.writeInt(config.getMaxTileSize());
+    out.writeInt(config.getWindowRounds());
+    out.writeInt(config.getWindowSize());
+    out.writeUTF(config.getCheckpointFile());
+    out.writeDouble(config.getCheckpointIntervalSeconds());
+    out.writeInt(config.getStippleCount());
+    out.writeDouble(config.getScaleFactor());
+    out.writeDouble(config.getStrokeWidth());
+  }
+
+  private static ParameterConfig readConfig(DataInputStream in) throws IOException {
+    ParameterConfig config = new ParameterConfig();
+    try {
+      config.setParameterMode(ParameterConfig.ParameterMode.valueOf(in.readUTF()));
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown parameter mode in checkpoint", e);
+    }
+    config.setMutationOperator(in.readUTF());
+    config.setCrossoverOperator(in.readUTF());
+    config.setCrossoverMin(in.readDouble());
+    config.setCrossoverMax(in.readDouble());
+    config.setCrossoverStep(in.readDouble());
+    config.setMutationMin(in.readDouble());
+    config.setMutationMax(in.readDouble());
+    config.setMutationStep(in.readDouble());
+    config.setManualCrossoverRate(in.readDouble());
+    config.setManualMutationRate(in.readDouble());
+    config.setPopulationSize(in.readInt());
+    config.setMaxGenerations(in.readInt());
+    config.setEliteCount(in.readInt());
+    config.setSteadyState(in.readBoolean());
+    config.setTimeBudgetSeconds(in.readDouble());
+    config.setStagnationGenerations(in.readInt());
+    config.setTargetGapPercent(in.readDouble());
+    config.setTiledSolving(in.readBoolean());
+    config.setMaxTileSize(in.readInt());
+    config.setWindowRounds(in.readInt());
+    config.setWindowSize(in.readInt());
+    config.setCheckpointFile(in.readUTF());
+    config.setCheckpointIntervalSeconds(in.readDouble());
+    config.setStippleCount(in.readInt());
+    config.setScaleFactor(in.readDouble());
+    config.setStrokeWidth(in.readDouble());
+    return config;
+  }
+}
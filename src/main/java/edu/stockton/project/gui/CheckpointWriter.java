@@ -0,0 +1,131 @@
+package edu.stockton.project.gui;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.cicirello.permutations.Permutation;
+
+/**
+ * Writes checkpoints of a running EA on a background thread, so that a slow disk never stalls
+ * generations. The search thread only copies the best tour and, for the steady-state EA, the
+ * population. If a write is still in progress when
+ * the next checkpoint is due, the pending one is replaced instead of queued, so at most one
+ * snapshot waits at any time.
+ */
+final class CheckpointWriter implements AutoCloseable {
+
+  private final Path file;
+  private final ParameterConfig config;
+  private final double[] xPoints;
+  private final double[] yPoints;
+  private final long intervalNanos;
+  private final long previousElapsedMillis;
+  private final long startNanos;
+
+  private final ExecutorService executor;
+  private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+  private long lastOfferNanos;
+
+  /**
+   * Creates a writer for one run.
+   *
+   * @param file Location of the checkpoint
+   * @param config Configuration to store, with the rates and operators the run actually uses
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param intervalSeconds Minimum time between two checkpoints
+   * @param previousElapsedMillis Run time before this writer was created, when resuming
+   */
+  CheckpointWriter(
+      Path file,
+      ParameterConfig config,
+      double[] xPoints,
+      double[] yPoints,
+      double intervalSeconds,
+      long previousElapsedMillis) {
+    this.file = file;
+    this.config = new ParameterConfig(config);
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.intervalNanos = (long) (intervalSeconds * 1e9);
+    this.previousElapsedMillis = previousElapsedMillis;
+    this.startNanos = System.nanoTime();
+    this.lastOfferNanos = startNanos;
+    this.executor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "checkpoint-writer");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Hands the current state of the run to the background thread if a checkpoint is due.
+   *
+   * @param generations Generations run so far
+   * @param restarts Restarts so far
+   * @param best Best tour so far
+   * @param cost Length of the best tour
+   * @param population Copies the population when a checkpoint is due (can be null)
+   * @param force Whether to write regardless of the interval, such as at the end of a run
+   */
+  void offer(
+      long generations,
+      int restarts,
+      Permutation best,
+      double cost,
+      Supplier<Checkpoint.Population> population,
+      boolean force) {
+    long now = System.nanoTime();
+    if (best == null || (!force && now - lastOfferNanos < intervalNanos)) {
+      return;
+    }
+    lastOfferNanos = now;
+
+    long elapsedMillis = previousElapsedMillis + (now - startNanos) / 1_000_000;
+    Checkpoint checkpoint =
+        new Checkpoint(
+            config,
+            xPoints,
+            yPoints,
+            best.toArray(),
+            cost,
+            generations,
+            restarts,
+            elapsedMillis,
+            population != null ? population.get() : null);
+    if (pending.getAndSet(checkpoint) == null) {
+      executor.execute(this::writePending);
+    }
+  }
+
+  private void writePending() {
+    Checkpoint checkpoint = pending.getAndSet(null);
+    if (checkpoint == null) {
+      return;
+    }
+    try {
+      checkpoint.write(file);
+    } catch (IOException e) {
+      System.err.println("Could not write checkpoint: " + e.getMessage());
+    }
+  }
+
+  /** Waits for the last pending checkpoint to be written. */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+        System.err.println("Timed out waiting for the checkpoint to be written");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
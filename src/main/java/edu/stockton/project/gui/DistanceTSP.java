@@ -0,0 +1,114 @@
+package edu.stockton.project.gui;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.problems.OptimizationProblem;
+
+/**
+ * Euclidean TSP whose cost function looks up precomputed distances on small instances. Up to
+ * {@link #matrixLimit()} stipples, all distances are stored as floats in a triangular matrix held
+ * off-heap, where it neither counts against the heap nor has to be scanned by the collector. A
+ * lookup only beats computing the square root while the matrix stays in the CPU caches, so larger
+ * instances compute distances directly.
+ *
+ * <p>With the matrix, the cost used by the search differs from the exact tour length by float
+ * rounding; {@link #value} always returns the exact length.
+ */
+final class DistanceTSP implements OptimizationProblem<Permutation> {
+
+  /** Default largest instance that gets a matrix, which then takes about 2 MB. */
+  private static final int DEFAULT_MATRIX_LIMIT = 1000;
+
+  /** Largest instance whose matrix fits into a single buffer. */
+  private static final int MAX_MATRIX_LIMIT = 32767;
+
+  private final double[] xPoints;
+  private final double[] yPoints;
+
+  // Distance of i > j at i * (i - 1) / 2 + j, or null above the matrix limit
+  private final FloatBuffer matrix;
+
+  /**
+   * Creates the problem, precomputing its distances if it is small enough.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   */
+  DistanceTSP(double[] xPoints, double[] yPoints) {
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    int n = xPoints.length;
+
+    if (n > 1 && n <= matrixLimit()) {
+      int entries = n * (n - 1) / 2;
+      matrix =
+          ByteBuffer.allocateDirect(entries * Float.BYTES)
+              .order(ByteOrder.nativeOrder())
+              .asFloatBuffer();
+      int index = 0;
+      for (int i = 1; i < n; i++) {
+        for (int j = 0; j < i; j++) {
+          matrix.put(index++, (float) computed(i, j));
+        }
+      }
+    } else {
+      matrix = null;
+    }
+  }
+
+  /**
+   * Largest instance that gets a distance matrix. Defaults to {@value #DEFAULT_MATRIX_LIMIT} and
+   * can be changed with the {@code tspart.distanceMatrixLimit} system property, up to {@value
+   * #MAX_MATRIX_LIMIT}; 0 turns the matrix off.
+   *
+   * @return Maximum number of stipples for the matrix
+   */
+  static int matrixLimit() {
+    return Math.min(
+        MAX_MATRIX_LIMIT, Integer.getInteger("tspart.distanceMatrixLimit", DEFAULT_MATRIX_LIMIT));
+  }
+
+  @Override
+  public double cost(Permutation candidate) {
+    if (matrix == null) {
+      return value(candidate);
+    }
+
+    int n = candidate.length();
+    double total = 0;
+    for (int i = 0, previous = candidate.get(n - 1); i < n; i++) {
+      int city = candidate.get(i);
+      int high = Math.max(previous, city);
+      int low = Math.min(previous, city);
+      if (high != low) {
+        total += matrix.get(high * (high - 1) / 2 + low);
+      }
+      previous = city;
+    }
+    return total;
+  }
+
+  @Override
+  public double value(Permutation candidate) {
+    int n = candidate.length();
+    if (n < 2) {
+      return 0;
+    }
+
+    double total = 0;
+    for (int i = 0, previous = candidate.get(n - 1); i < n; i++) {
+      int city = candidate.get(i);
+      total += computed(previous, city);
+      previous = city;
+    }
+    return total;
+  }
+
+  private double computed(int i, int j) {
+    double dx = xPoints[i] - xPoints[j];
+    double dy = yPoints[i] - yPoints[j];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+}
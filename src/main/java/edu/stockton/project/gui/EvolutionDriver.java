@@ -0,0 +1,293 @@
+package edu.stockton.project.gui;
+
+import java.util.function.Supplier;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.ProgressTracker;
+import org.cicirello.search.ReoptimizableMetaheuristic;
+import org.cicirello.search.operators.Initializer;
+import org.cicirello.search.operators.MutationOperator;
+
+/**
+ * Runs an EA in chunks of generations so that it can be observed and stopped between chunks. A run
+ * ends after a fixed number of generations, at a wall-clock deadline, or once the search control
+ * reports that the target optimality gap has been reached, whichever comes first. When a
+ * stagnation limit is set, a run that has not improved for that many generations is restarted from
+ * a population re-diversified around the best tour.
+ *
+ * <p>A steady-state EA hands its population to the checkpoint writer and gets it back on resume.
+ * Other EAs are resumed from a population reseeded around the best tour.
+ */
+class EvolutionDriver {
+
+  /** Creates a fresh EA that starts from the given initializer and reports to the given tracker. */
+  @FunctionalInterface
+  interface EAFactory {
+    ReoptimizableMetaheuristic<Permutation> create(
+        Initializer<Permutation> initializer, ProgressTracker<Permutation> tracker);
+  }
+
+  /** Chunks are sized to take about this long, bounding how late a deadline is noticed. */
+  private static final long TARGET_CHUNK_NANOS = 50_000_000L;
+
+  /** Minimum time between two progress reports, so the UI is not flooded with updates. */
+  private static final long REPORT_INTERVAL_NANOS = 200_000_000L;
+
+  /** Maximum number of mutations applied to each copy of the best tour on restart. */
+  private static final int RESTART_MUTATIONS = 10;
+
+  private final EAFactory factory;
+  private Initializer<Permutation> initializer;
+  private final MutationOperator<Permutation> perturbation;
+  private final SearchControl control;
+
+  private long maxGenerations = Long.MAX_VALUE;
+  private long deadlineNanos = Long.MAX_VALUE;
+  private int stagnationLimit;
+  private String label = "EA";
+  private TSPRunner.ProgressCallback callback;
+  private CheckpointWriter checkpointWriter;
+
+  private Checkpoint.Population resumePopulation;
+  private long generations;
+  private int restarts;
+  private long lastReportNanos;
+  private long lastReportGenerations;
+
+  /**
+   * Creates a driver for one EA run.
+   *
+   * @param factory Creates the EA, both initially and on restarts
+   * @param initializer Initializer for the first population
+   * @param perturbation Mutation operator used to re-diversify the population on restarts
+   * @param control Shared search state that receives the best tour after every chunk
+   */
+  EvolutionDriver(
+      EAFactory factory,
+      Initializer<Permutation> initializer,
+      MutationOperator<Permutation> perturbation,
+      SearchControl control) {
+    this.factory = factory;
+    this.initializer = initializer;
+    this.perturbation = perturbation;
+    this.control = control;
+  }
+
+  void setMaxGenerations(long maxGenerations) {
+    this.maxGenerations = maxGenerations;
+  }
+
+  /**
+   * Sets the deadline of the run.
+   *
+   * @param deadlineNanos Deadline as a {@link System#nanoTime()} value, or Long.MAX_VALUE for none
+   */
+  void setDeadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  /**
+   * Sets the number of generations without improvement after which the run is restarted.
+   *
+   * @param stagnationLimit The stagnation limit, or 0 to never restart
+   */
+  void setStagnationLimit(int stagnationLimit) {
+    this.stagnationLimit = stagnationLimit;
+  }
+
+  /**
+   * Sets where progress is reported. Reports are throttled to a few per second and given in
+   * thousandths of the generation limit or of the time budget, whichever is further along.
+   *
+   * @param label Prefix for progress messages
+   * @param callback Progress callback (can be null)
+   */
+  void setProgressCallback(String label, TSPRunner.ProgressCallback callback) {
+    this.label = label;
+    this.callback = callback;
+  }
+
+  /**
+   * Sets where the state of the run is periodically saved. The writer is offered the best tour
+   * after every chunk and once more when the run ends.
+   *
+   * @param checkpointWriter The checkpoint writer (can be null)
+   */
+  void setCheckpointWriter(CheckpointWriter checkpointWriter) {
+    this.checkpointWriter = checkpointWriter;
+  }
+
+  /**
+   * Continues an earlier run from a checkpoint, and counts its generations toward the generation
+   * limit. A steady-state EA continues from the stored population if there is one of the right
+   * size; otherwise the population is reseeded around the best tour of that run.
+   *
+   * @param best Best tour of the earlier run
+   * @param population Population of the earlier run (can be null)
+   * @param generations Generations of the earlier run
+   * @param restarts Restarts of the earlier run
+   */
+  void resumeFrom(
+      Permutation best, Checkpoint.Population population, long generations, int restarts) {
+    this.initializer = new SeededInitializer(best, perturbation, RESTART_MUTATIONS);
+    this.resumePopulation = population;
+    this.generations = generations;
+    this.lastReportGenerations = generations;
+    this.restarts = restarts;
+  }
+
+  long getGenerations() {
+    return generations;
+  }
+
+  int getRestarts() {
+    return restarts;
+  }
+
+  /**
+   * Runs the EA until the generation limit, the deadline, or a stop request. A stop request through
+   * the search control interrupts the EA at its next generation, not just between chunks.
+   *
+   * @return Best permutation found, or an initial candidate if stopped before the first generation
+   */
+  Permutation run() {
+    ProgressTracker<Permutation> tracker = new ProgressTracker<>();
+    control.register(tracker);
+
+    try {
+      ReoptimizableMetaheuristic<Permutation> ea = factory.create(initializer, tracker);
+      boolean started = false;
+      if (resumePopulation != null && ea instanceof SteadyStateEA steadyState) {
+        started = steadyState.restore(resumePopulation);
+      }
+      resumePopulation = null;
+      long startNanos = System.nanoTime();
+      long chunk = 1;
+      long lastImprovement = generations;
+      double lastCost = Double.MAX_VALUE;
+      lastReportNanos = startNanos;
+
+      while (generations < maxGenerations
+          && !tracker.isStopped()
+          && !control.isTargetReached()
+          && System.nanoTime() < deadlineNanos) {
+
+        int chunkGenerations = (int) Math.min(chunk, maxGenerations - generations);
+        long chunkStart = System.nanoTime();
+        if (started) {
+          ea.reoptimize(chunkGenerations);
+        } else {
+          ea.optimize(chunkGenerations);
+          started = true;
+        }
+        long now = System.nanoTime();
+        generations += chunkGenerations;
+
+        // Size the next chunk from the measured speed, without overshooting the deadline
+        double nanosPerGeneration = Math.max(1.0, (double) (now - chunkStart) / chunkGenerations);
+        chunk = Math.max(1, (long) (TARGET_CHUNK_NANOS / nanosPerGeneration));
+        if (deadlineNanos != Long.MAX_VALUE) {
+          chunk = Math.max(1, Math.min(chunk, (long) ((deadlineNanos - now) / nanosPerGeneration)));
+        }
+        if (stagnationLimit > 0) {
+          chunk = Math.min(chunk, stagnationLimit);
+        }
+        chunk = Math.min(chunk, Integer.MAX_VALUE);
+
+        double cost = tracker.getCostDouble();
+        control.offer(tracker.getSolution(), cost);
+        if (checkpointWriter != null) {
+          checkpointWriter.offer(
+              generations, restarts, tracker.getSolution(), cost, snapshot(ea, started), false);
+        }
+
+        if (cost < lastCost) {
+          lastCost = cost;
+          lastImprovement = generations;
+        } else if (stagnationLimit > 0 && generations - lastImprovement >= stagnationLimit) {
+          // Stagnated - restart from a population spread around the best tour
+          restarts++;
+          System.out.printf(
+              "%s: no improvement in %d generations, restart %d from length %.2f%n",
+              label, stagnationLimit, restarts, cost);
+          ea =
+              factory.create(
+                  new SeededInitializer(tracker.getSolution(), perturbation, RESTART_MUTATIONS),
+                  tracker);
+          started = false;
+          lastImprovement = generations;
+        }
+
+        if (now - lastReportNanos >= REPORT_INTERVAL_NANOS) {
+          reportProgress(ea, startNanos, now, cost);
+        }
+      }
+
+      if (generations > lastReportGenerations) {
+        reportProgress(ea, startNanos, System.nanoTime(), tracker.getCostDouble());
+      }
+      if (checkpointWriter != null) {
+        checkpointWriter.offer(
+            generations,
+            restarts,
+            tracker.getSolution(),
+            tracker.getCostDouble(),
+            snapshot(ea, started),
+            true);
+      }
+
+      Permutation best = tracker.getSolution();
+      return best != null ? best : initializer.createCandidateSolution();
+
+    } finally {
+      control.unregister(tracker);
+    }
+  }
+
+  /** Returns what copies the population for a checkpoint, or null if the EA cannot save one. */
+  private static Supplier<Checkpoint.Population> snapshot(
+      ReoptimizableMetaheuristic<Permutation> ea, boolean started) {
+    if (started && ea instanceof SteadyStateEA steadyState) {
+      return steadyState::snapshot;
+    }
+    return null;
+  }
+
+  private void reportProgress(
+      ReoptimizableMetaheuristic<Permutation> ea, long startNanos, long now, double cost) {
+    if (callback == null) {
+      return;
+    }
+
+    double fraction = 0;
+    if (maxGenerations != Long.MAX_VALUE) {
+      fraction = (double) generations / maxGenerations;
+    }
+    if (deadlineNanos != Long.MAX_VALUE) {
+      fraction = Math.max(fraction, (double) (now - startNanos) / (deadlineNanos - startNanos));
+    }
+
+    double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+    double generationsPerSecond = (generations - lastReportGenerations) / seconds;
+    lastReportNanos = now;
+    lastReportGenerations = generations;
+
+    String msg =
+        String.format(
+            "%s: generation %d, best length %.2f, %.0f gen/s",
+            label, generations, cost, generationsPerSecond);
+    double gap = control.getGapPercent(cost);
+    if (!Double.isNaN(gap)) {
+      msg += String.format(", gap %.2f%%", gap);
+    }
+    if (ea instanceof SelfAdaptiveEA adaptive) {
+      msg +=
+          String.format(
+              ", mean crossover rate %.2f, mean mutation rate %.2f",
+              adaptive.getMeanCrossoverRate(), adaptive.getMeanMutationRate());
+    }
+    if (restarts > 0) {
+      msg += String.format(" (%d restarts)", restarts);
+    }
+    callback.onProgress((int) (Math.min(1.0, fraction) * 1000), 1000, msg);
+  }
+}
@@ -0,0 +1,128 @@
+package edu.stockton.project.gui;
+
+import java.util.Arrays;
+
+/**
+ * Greedy-edge construction of a starting tour. Candidate edges to the nearest neighbours are taken
+ * shortest first whenever neither end already has two edges and the edge closes no cycle, which
+ * leaves a set of paths typically within 20% of optimal. The paths are then chained end to nearest
+ * end. Starting local search from such a tour instead of a random one saves most of the moves the
+ * search would otherwise spend undoing long edges.
+ */
+final class GreedyTour {
+
+  /* Private constructor to prevent instantiation. */
+  private GreedyTour() {}
+
+  /**
+   * Builds a greedy tour.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param neighbors Nearest-neighbour lists, which supply the candidate edges
+   * @return Order of the cities
+   */
+  static int[] build(double[] xPoints, double[] yPoints, int[][] neighbors) {
+    int n = xPoints.length;
+
+    // Sort candidate edges by length, packed as float bits above the edge index. An edge listed
+    // from both ends is met twice, and the second copy is rejected as closing a cycle.
+    int edges = 0;
+    for (int[] list : neighbors) {
+      edges += list.length;
+    }
+    int[] from = new int[edges];
+    int[] to = new int[edges];
+    for (int i = 0, e = 0; i < n; i++) {
+      for (int j : neighbors[i]) {
+        from[e] = i;
+        to[e] = j;
+        e++;
+      }
+    }
+    long[] order = new long[edges];
+    for (int e = 0; e < edges; e++) {
+      float length =
+          (float) Math.hypot(xPoints[from[e]] - xPoints[to[e]], yPoints[from[e]] - yPoints[to[e]]);
+      order[e] = ((long) Float.floatToIntBits(length) << 32) | e;
+    }
+    Arrays.sort(order);
+
+    // Take each edge that keeps every city on a single path
+    int[] link = new int[2 * n];
+    Arrays.fill(link, -1);
+    int[] degree = new int[n];
+    int[] root = new int[n];
+    for (int i = 0; i < n; i++) {
+      root[i] = i;
+    }
+    int taken = 0;
+    for (int k = 0; k < edges && taken < n - 1; k++) {
+      int e = (int) order[k];
+      int a = from[e];
+      int b = to[e];
+      if (degree[a] == 2 || degree[b] == 2) {
+        continue;
+      }
+      int rootA = find(root, a);
+      int rootB = find(root, b);
+      if (rootA == rootB) {
+        continue;
+      }
+      root[rootA] = rootB;
+      link[2 * a + degree[a]++] = b;
+      link[2 * b + degree[b]++] = a;
+      taken++;
+    }
+
+    // Chain the paths, always moving on to the nearest free end of another path
+    int[] ends = new int[n];
+    int endCount = 0;
+    for (int i = 0; i < n; i++) {
+      if (degree[i] < 2) {
+        ends[endCount++] = i;
+      }
+    }
+    int[] tour = new int[n];
+    boolean[] visited = new boolean[n];
+    int size = 0;
+    int start = endCount > 0 ? ends[0] : 0;
+    while (start >= 0) {
+      int previous = -1;
+      int city = start;
+      while (city >= 0) {
+        tour[size++] = city;
+        visited[city] = true;
+        int next = link[2 * city] != previous ? link[2 * city] : link[2 * city + 1];
+        previous = city;
+        city = next;
+      }
+
+      int last = tour[size - 1];
+      start = -1;
+      double nearest = Double.MAX_VALUE;
+      for (int k = 0; k < endCount; k++) {
+        int end = ends[k];
+        if (visited[end]) {
+          continue;
+        }
+        double dx = xPoints[end] - xPoints[last];
+        double dy = yPoints[end] - yPoints[last];
+        double distance = dx * dx + dy * dy;
+        if (distance < nearest) {
+          nearest = distance;
+          start = end;
+        }
+      }
+    }
+    return tour;
+  }
+
+  private static int find(int[] root, int i) {
+    while (root[i] != i) {
+      root[i] = root[root[i]];
+      i = root[i];
+    }
+    return i;
+  }
+}
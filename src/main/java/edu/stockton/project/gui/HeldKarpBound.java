@@ -0,0 +1,409 @@
+package edu.stockton.project.gui;
+
+import java.util.Arrays;
+
+/**
+ * Held-Karp lower bound on the optimal tour length of a stipple instance. A minimum 1-tree (a
+ * spanning tree on all points but one, plus the two cheapest edges of that point) is never longer
+ * than the optimal tour. Node penalties are raised by subgradient optimization to push every node
+ * towards degree 2, which tightens the bound to within about 1% of optimal on Euclidean instances.
+ *
+ * <p>The subgradient iterations build 1-trees on a sparse candidate graph of nearest neighbours
+ * instead of the complete graph, so each of them runs in O(n log n). Restricting the graph can
+ * lengthen a 1-tree, which would overstate the bound, so the sparse trees only steer the
+ * penalties: the bound returned is the 1-tree under the best penalties found, built once more on
+ * the complete graph in O(n^2) time. It is therefore a true lower bound for any penalties.
+ *
+ * <p>Both phases watch the search control, so that a cancelled run does not wait for the bound.
+ */
+public final class HeldKarpBound {
+
+  private static final int NEIGHBORS = 10;
+  private static final int DEFAULT_ITERATIONS = 200;
+
+  private final double[] xPoints;
+  private final double[] yPoints;
+  private final int[] offsets;
+  private final int[] adjacency;
+  private final int n;
+  private final SearchControl control;
+
+  // Reused across iterations
+  private final double[] key;
+  private final int[] parent;
+  private final boolean[] inTree;
+  private final int[] degree;
+  private final IndexedHeap heap;
+
+  private HeldKarpBound(double[] xPoints, double[] yPoints, SearchControl control) {
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.n = xPoints.length;
+    this.control = control;
+    int[][] graph = NeighborLists.symmetric(NeighborLists.nearest(xPoints, yPoints, NEIGHBORS));
+    this.offsets = graph[0];
+    this.adjacency = graph[1];
+    this.key = new double[n];
+    this.parent = new int[n];
+    this.inTree = new boolean[n];
+    this.degree = new int[n];
+    this.heap = new IndexedHeap(n);
+  }
+
+  /**
+   * Computes the Held-Karp lower bound with the default number of subgradient iterations.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param control Search control whose stop request abandons the computation
+   * @return A lower bound on the length of every tour through the points, or NaN if stopped
+   */
+  public static double compute(double[] xPoints, double[] yPoints, SearchControl control) {
+    return compute(xPoints, yPoints, DEFAULT_ITERATIONS, control);
+  }
+
+  /**
+   * Computes the Held-Karp lower bound.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param maxIterations Maximum number of subgradient iterations
+   * @param control Search control whose stop request abandons the computation
+   * @return A lower bound on the length of every tour through the points, or NaN if stopped
+   */
+  public static double compute(
+      double[] xPoints, double[] yPoints, int maxIterations, SearchControl control) {
+    int n = xPoints.length;
+    if (n < 2) {
+      return 0;
+    }
+    if (n == 2) {
+      return 2 * Math.hypot(xPoints[0] - xPoints[1], yPoints[0] - yPoints[1]);
+    }
+    return new HeldKarpBound(xPoints, yPoints, control).ascend(maxIterations);
+  }
+
+  /**
+   * Subgradient ascent on the node penalties. The step size follows Polyak's rule towards an
+   * estimated tour length and is halved whenever the bound stops improving.
+   */
+  private double ascend(int maxIterations) {
+    double[] penalty = new double[n];
+    double[] bestPenalty = new double[n];
+    double upperBound = stripTourLength();
+    double best = -Double.MAX_VALUE;
+    double lambda = 2.0;
+    int sinceImprovement = 0;
+
+    for (int iteration = 0; iteration < maxIterations; iteration++) {
+      if (control.isStopped()) {
+        return Double.NaN;
+      }
+      double length = minimumOneTree(penalty);
+      if (length > best) {
+        best = length;
+        System.arraycopy(penalty, 0, bestPenalty, 0, n);
+        sinceImprovement = 0;
+      } else if (++sinceImprovement >= 10) {
+        lambda /= 2;
+        sinceImprovement = 0;
+        if (lambda < 1e-4) {
+          break;
+        }
+      }
+
+      double norm = 0;
+      for (int i = 0; i < n; i++) {
+        norm += (degree[i] - 2) * (degree[i] - 2);
+      }
+      if (norm == 0) {
+        // The 1-tree is a tour, so the bound is optimal
+        break;
+      }
+
+      double step = lambda * Math.max(upperBound - length, 1e-3 * length) / norm;
+      for (int i = 0; i < n; i++) {
+        penalty[i] += step * (degree[i] - 2);
+      }
+    }
+
+    return completeOneTree(bestPenalty);
+  }
+
+  /**
+   * Builds the minimum 1-tree under the given penalties on the complete graph, with Prim's
+   * algorithm on a distance array rather than a heap, and attaches node 0 by its two cheapest
+   * edges to any node.
+   *
+   * @param penalty Node penalties
+   * @return Penalized 1-tree length minus twice the penalty sum, or NaN if stopped
+   */
+  private double completeOneTree(double[] penalty) {
+    Arrays.fill(key, Double.MAX_VALUE);
+    Arrays.fill(inTree, false);
+
+    double total = 0;
+    int v = 1;
+    key[1] = 0;
+    for (int added = 1; added < n; added++) {
+      if (control.isStopped()) {
+        return Double.NaN;
+      }
+      inTree[v] = true;
+      total += key[v];
+      int next = -1;
+      double nextKey = Double.MAX_VALUE;
+      for (int u = 1; u < n; u++) {
+        if (inTree[u]) {
+          continue;
+        }
+        double cost = cost(v, u, penalty);
+        if (cost < key[u]) {
+          key[u] = cost;
+        }
+        if (key[u] < nextKey) {
+          nextKey = key[u];
+          next = u;
+        }
+      }
+      v = next;
+    }
+
+    double first = Double.MAX_VALUE;
+    double second = Double.MAX_VALUE;
+    for (int u = 1; u < n; u++) {
+      double cost = cost(0, u, penalty);
+      if (cost < first) {
+        second = first;
+        first = cost;
+      } else if (cost < second) {
+        second = cost;
+      }
+    }
+    total += first + second;
+
+    double penaltySum = 0;
+    for (double p : penalty) {
+      penaltySum += p;
+    }
+
+    return total - 2 * penaltySum;
+  }
+
+  /**
+   * Builds the minimum 1-tree under the given penalties with Prim's algorithm on the candidate
+   * graph, rooted away from node 0, which is then attached by its two cheapest edges.
+   *
+   * @param penalty Node penalties
+   * @return Penalized 1-tree length minus twice the penalty sum
+   */
+  private double minimumOneTree(double[] penalty) {
+    Arrays.fill(key, Double.MAX_VALUE);
+    Arrays.fill(parent, -1);
+    Arrays.fill(inTree, false);
+    Arrays.fill(degree, 0);
+    inTree[0] = true;
+
+    double total = 0;
+    int treeSize = 1;
+    int nextUnreached = 1;
+    key[1] = 0;
+    heap.push(1, 0);
+
+    while (treeSize < n) {
+      if (heap.isEmpty()) {
+        // Candidate graph is disconnected - join the next component by its cheapest edge
+        while (inTree[nextUnreached]) {
+          nextUnreached++;
+        }
+        int v = nextUnreached;
+        for (int u = 1; u < n; u++) {
+          if (inTree[u]) {
+            double cost = cost(u, v, penalty);
+            if (cost < key[v]) {
+              key[v] = cost;
+              parent[v] = u;
+            }
+          }
+        }
+        heap.push(v, key[v]);
+      }
+
+      int v = heap.pop();
+      inTree[v] = true;
+      treeSize++;
+      if (parent[v] >= 0) {
+        total += key[v];
+        degree[v]++;
+        degree[parent[v]]++;
+      }
+
+      for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+        int u = adjacency[e];
+        if (inTree[u]) {
+          continue;
+        }
+        double cost = cost(v, u, penalty);
+        if (cost < key[u]) {
+          key[u] = cost;
+          parent[u] = v;
+          heap.push(u, cost);
+        }
+      }
+    }
+
+    // Attach node 0 by its two cheapest candidate edges
+    double first = Double.MAX_VALUE;
+    double second = Double.MAX_VALUE;
+    int firstNode = -1;
+    int secondNode = -1;
+    for (int e = offsets[0]; e < offsets[1]; e++) {
+      int u = adjacency[e];
+      double cost = cost(0, u, penalty);
+      if (cost < first) {
+        second = first;
+        secondNode = firstNode;
+        first = cost;
+        firstNode = u;
+      } else if (cost < second) {
+        second = cost;
+        secondNode = u;
+      }
+    }
+    total += first + second;
+    degree[0] = 2;
+    degree[firstNode]++;
+    degree[secondNode]++;
+
+    double penaltySum = 0;
+    for (double p : penalty) {
+      penaltySum += p;
+    }
+
+    return total - 2 * penaltySum;
+  }
+
+  private double cost(int i, int j, double[] penalty) {
+    double dx = xPoints[i] - xPoints[j];
+    double dy = yPoints[i] - yPoints[j];
+    return Math.sqrt(dx * dx + dy * dy) + penalty[i] + penalty[j];
+  }
+
+  /**
+   * Length of a boustrophedon tour through horizontal strips, used only to scale the subgradient
+   * steps.
+   */
+  private double stripTourLength() {
+    double minY = Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (double y : yPoints) {
+      minY = Math.min(minY, y);
+      maxY = Math.max(maxY, y);
+    }
+    int strips = Math.max(1, (int) Math.sqrt(n / 2.0));
+    double stripHeight = Math.max(maxY - minY, 1e-9) / strips;
+
+    Integer[] order = new Integer[n];
+    int[] strip = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+      strip[i] = Math.min(strips - 1, (int) ((yPoints[i] - minY) / stripHeight));
+    }
+    Arrays.sort(
+        order,
+        (a, b) -> {
+          if (strip[a] != strip[b]) {
+            return Integer.compare(strip[a], strip[b]);
+          }
+          int direction = strip[a] % 2 == 0 ? 1 : -1;
+          return direction * Double.compare(xPoints[a], xPoints[b]);
+        });
+
+    double length = 0;
+    for (int i = 0; i < n; i++) {
+      int a = order[i];
+      int b = order[(i + 1) % n];
+      length += Math.hypot(xPoints[a] - xPoints[b], yPoints[a] - yPoints[b]);
+    }
+    return length;
+  }
+
+  /** Binary min-heap over node indices with decrease-key. */
+  private static final class IndexedHeap {
+    private final int[] nodes;
+    private final int[] position;
+    private final double[] priority;
+    private int size;
+
+    IndexedHeap(int capacity) {
+      nodes = new int[capacity];
+      position = new int[capacity];
+      priority = new double[capacity];
+      Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    /** Inserts a node, or lowers its priority if it is already in the heap. */
+    void push(int node, double value) {
+      priority[node] = value;
+      if (position[node] < 0) {
+        nodes[size] = node;
+        position[node] = size;
+        size++;
+      }
+      siftUp(position[node]);
+    }
+
+    int pop() {
+      int top = nodes[0];
+      position[top] = -1;
+      size--;
+      if (size > 0) {
+        nodes[0] = nodes[size];
+        position[nodes[0]] = 0;
+        siftDown(0);
+      }
+      return top;
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        int up = (index - 1) / 2;
+        if (priority[nodes[up]] <= priority[nodes[index]]) {
+          break;
+        }
+        swap(index, up);
+        index = up;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        int left = 2 * index + 1;
+        int smallest = index;
+        if (left < size && priority[nodes[left]] < priority[nodes[smallest]]) {
+          smallest = left;
+        }
+        if (left + 1 < size && priority[nodes[left + 1]] < priority[nodes[smallest]]) {
+          smallest = left + 1;
+        }
+        if (smallest == index) {
+          return;
+        }
+        swap(index, smallest);
+        index = smallest;
+      }
+    }
+
+    private void swap(int a, int b) {
+      int nodeA = nodes[a];
+      nodes[a] = nodes[b];
+      nodes[b] = nodeA;
+      position[nodes[a]] = a;
+      position[nodes[b]] = b;
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package edu.stockton.project.gui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Mipmap pyramid of an image, cut into tiles that JavaFX can draw. Level 0 is the image itself and
+ * each further level halves its width and height, down to a single tile. Pixels are kept as opaque
+ * premultiplied ARGB ints, the format JavaFX textures use, so tiles wrap the pixel arrays in a
+ * {@link PixelBuffer} instead of copying them. Opaque RGB images, such as the renders of tours and
+ * stipples, share their raster with level 0.
+ *
+ * <p>A tile is a strip of rows across the whole level, which is contiguous in the pixel array.
+ * Levels wider than the largest texture are cut into columns, which have to be copied; those tiles
+ * are only made when drawn, and only the most recently drawn are kept.
+ */
+final class ImagePyramid {
+
+  /** Rows per tile. */
+  static final int TILE_HEIGHT = 256;
+
+  /** Widest tile; every graphics card takes textures this wide. */
+  static final int MAX_TILE_WIDTH = 4096;
+
+  /** Levels stop once both sides fit into this many pixels. */
+  private static final int SMALLEST_LEVEL = 512;
+
+  /** Tiles kept alive, with their textures. */
+  static final int CACHED_TILES = 128;
+
+  private static final Map<BufferedImage, ImagePyramid> PYRAMIDS = new WeakHashMap<>();
+
+  private final int[][] pixels;
+  private final int[] widths;
+  private final int[] heights;
+  private final Map<Long, WritableImage> tiles =
+      new LinkedHashMap<>(CACHED_TILES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, WritableImage> eldest) {
+          return size() > CACHED_TILES;
+        }
+      };
+
+  /**
+   * Returns the pyramid of an image, building it on first use. Images must not be changed after
+   * their pyramid has been built.
+   *
+   * @param image The image
+   * @return Its pyramid
+   */
+  static ImagePyramid of(BufferedImage image) {
+    synchronized (PYRAMIDS) {
+      return PYRAMIDS.computeIfAbsent(image, ImagePyramid::new);
+    }
+  }
+
+  private ImagePyramid(BufferedImage image) {
+    int levels = 1;
+    for (int w = image.getWidth(), h = image.getHeight();
+        w > SMALLEST_LEVEL || h > SMALLEST_LEVEL;
+        w = (w + 1) / 2, h = (h + 1) / 2) {
+      levels++;
+    }
+
+    pixels = new int[levels][];
+    widths = new int[levels];
+    heights = new int[levels];
+    widths[0] = image.getWidth();
+    heights[0] = image.getHeight();
+    pixels[0] = premultipliedPixels(image);
+    for (int level = 1; level < levels; level++) {
+      widths[level] = (widths[level - 1] + 1) / 2;
+      heights[level] = (heights[level - 1] + 1) / 2;
+      pixels[level] = downsample(pixels[level - 1], widths[level - 1], heights[level - 1]);
+    }
+  }
+
+  int getLevels() {
+    return pixels.length;
+  }
+
+  int getWidth(int level) {
+    return widths[level];
+  }
+
+  int getHeight(int level) {
+    return heights[level];
+  }
+
+  /** Width of the tiles of a level. */
+  int getTileWidth(int level) {
+    return Math.min(widths[level], MAX_TILE_WIDTH);
+  }
+
+  /**
+   * Returns a tile of a level.
+   *
+   * @param level The level
+   * @param column Column of the tile, counted in tile widths
+   * @param row Row of the tile, counted in tile heights
+   * @return The tile, which may be smaller than a full tile at the right and bottom edges
+   */
+  synchronized WritableImage tile(int level, int column, int row) {
+    long key = ((long) level << 48) | ((long) column << 24) | row;
+    WritableImage tile = tiles.get(key);
+    if (tile == null) {
+      tile = createTile(level, column, row);
+      tiles.put(key, tile);
+    }
+    return tile;
+  }
+
+  private WritableImage createTile(int level, int column, int row) {
+    int width = widths[level];
+    int tileWidth = getTileWidth(level);
+    int x = column * tileWidth;
+    int y = row * TILE_HEIGHT;
+    int w = Math.min(tileWidth, width - x);
+    int h = Math.min(TILE_HEIGHT, heights[level] - y);
+
+    IntBuffer buffer;
+    if (w == width) {
+      // The rows are contiguous, so the tile is a view of the level
+      buffer = IntBuffer.wrap(pixels[level], y * width, w * h).slice();
+    } else {
+      int[] copy = new int[w * h];
+      for (int r = 0; r < h; r++) {
+        System.arraycopy(pixels[level], (y + r) * width + x, copy, r * w, w);
+      }
+      buffer = IntBuffer.wrap(copy);
+    }
+    return new WritableImage(
+        new PixelBuffer<>(w, h, buffer, PixelFormat.getIntArgbPreInstance()));
+  }
+
+  /**
+   * Pixels of an image as opaque premultiplied ARGB. The raster is shared when it already has
+   * that form, which {@link edu.stockton.project.TourRenderer} and {@link
+   * edu.stockton.project.VoronoiStippler} produce.
+   */
+  private static int[] premultipliedPixels(BufferedImage image) {
+    int type = image.getType();
+    if (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB_PRE) {
+      int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      int length = image.getWidth() * image.getHeight();
+      if (type == BufferedImage.TYPE_INT_ARGB_PRE
+          || IntStream.range(0, length).parallel().allMatch(i -> raster[i] >>> 24 == 0xFF)) {
+        return raster;
+      }
+    }
+
+    int width = image.getWidth();
+    int[] pixels = new int[width * image.getHeight()];
+    IntStream.range(0, image.getHeight())
+        .parallel()
+        .forEach(
+            y -> {
+              image.getRGB(0, y, width, 1, pixels, y * width, width);
+              for (int i = y * width; i < (y + 1) * width; i++) {
+                pixels[i] = premultiply(pixels[i]);
+              }
+            });
+    return pixels;
+  }
+
+  private static int premultiply(int argb) {
+    int alpha = argb >>> 24;
+    if (alpha == 0xFF) {
+      return argb;
+    }
+    int r = ((argb >> 16) & 0xFF) * alpha / 0xFF;
+    int g = ((argb >> 8) & 0xFF) * alpha / 0xFF;
+    int b = (argb & 0xFF) * alpha / 0xFF;
+    return (alpha << 24) | (r << 16) | (g << 8) | b;
+  }
+
+  /** Halves a level by averaging blocks of 2x2 pixels; odd edges repeat their last pixel. */
+  private static int[] downsample(int[] source, int width, int height) {
+    int halfWidth = (width + 1) / 2;
+    int halfHeight = (height + 1) / 2;
+    int[] target = new int[halfWidth * halfHeight];
+    IntStream.range(0, halfHeight)
+        .parallel()
+        .forEach(
+            y -> {
+              int top = 2 * y * width;
+              int bottom = Math.min(2 * y + 1, height - 1) * width;
+              for (int x = 0; x < halfWidth; x++) {
+                int left = 2 * x;
+                int right = Math.min(2 * x + 1, width - 1);
+                target[y * halfWidth + x] =
+                    average(
+                        source[top + left],
+                        source[top + right],
+                        source[bottom + left],
+                        source[bottom + right]);
+              }
+            });
+    return target;
+  }
+
+  private static int average(int a, int b, int c, int d) {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 8) {
+      int sum =
+          ((a >>> shift) & 0xFF)
+              + ((b >>> shift) & 0xFF)
+              + ((c >>> shift) & 0xFF)
+              + ((d >>> shift) & 0xFF);
+      result |= ((sum + 2) >> 2) << shift;
+    }
+    return result;
+  }
+}
@@ -11,14 +11,16 @@
 
 package edu.stockton.project.gui;
 
+import edu.stockton.project.DiskCache;
+import edu.stockton.project.ImageLoader;
+import edu.stockton.project.PngEncoder;
+import edu.stockton.project.VectorExporter;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javax.imageio.ImageIO;
@@ -33,6 +35,9 @@ public class MainController {
   @FXML private ComboBox<String> crossoverComboBox;
   @FXML private RadioButton gridSearchRadio;
   @FXML private RadioButton manualSelectRadio;
+  @FXML private RadioButton learnedRadio;
+  @FXML private RadioButton adaptiveRadio;
+  @FXML private RadioButton portfolioRadio;
   @FXML private ToggleGroup parameterModeGroup;
 
   // Grid Search Controls
@@ -59,15 +64,28 @@ public class MainController {
   @FXML private Spinner<Integer> populationSpinner;
   @FXML private Spinner<Integer> generationsSpinner;
   @FXML private Spinner<Integer> eliteSpinner;
+  @FXML private CheckBox steadyStateCheckBox;
+  @FXML private Spinner<Integer> timeBudgetSpinner;
+  @FXML private Spinner<Integer> stagnationSpinner;
+  @FXML private Spinner<Double> targetGapSpinner;
+  @FXML private CheckBox tiledSolvingCheckBox;
+  @FXML private Spinner<Integer> maxTileSizeSpinner;
+  @FXML private Spinner<Integer> windowRoundsSpinner;
+  @FXML private Spinner<Integer> windowSizeSpinner;
+  @FXML private CheckBox repairTourCheckBox;
+  @FXML private CheckBox saveCheckpointsCheckBox;
+  @FXML private CheckBox resumeCheckpointCheckBox;
   @FXML private Spinner<Integer> stippleCountSpinner;
   @FXML private Spinner<Double> scaleFactorSpinner;
+  @FXML private Spinner<Double> strokeWidthSpinner;
 
   // Action Button
   @FXML private Button runTspButton;
 
   // FXML Components - Display Area
-  @FXML private ImageView stippledImageView;
-  @FXML private ImageView tspArtImageView;
+  @FXML private TiledImageView stippledImageView;
+  @FXML private TiledImageView tspArtImageView;
+  @FXML private PreviewCanvas tspPreview;
   @FXML private Label stepLabel;
   @FXML private Button previousStepButton;
   @FXML private Button nextStepButton;
@@ -80,11 +98,20 @@ public class MainController {
 
   // State variables
   private BufferedImage originalImage;
+  private File originalFile;
+  private long originalBudget; // pixel budget the original was decoded with
+  private boolean originalSubsampled;
   private BufferedImage stippledImage;
   private BufferedImage tspArtImage;
+  private double[][] stipplePoints;
+  private double[][] tourPoints;
+  private double tourStrokeWidth; // line width tspArtImage was drawn with
+  private int[] previousTour;
+  private double[][] previousPoints;
   private int currentStep = 0; // 0 = original, 1 = stippled, 2 = tsp
   private boolean isProcessing = false;
   private ProcessingTask currentTask;
+  private final StageCache stageCache = new StageCache(DiskCache.getDefault());
 
   @FXML
   public void initialize() {
@@ -92,6 +119,9 @@ public class MainController {
     parameterModeGroup = new ToggleGroup();
     gridSearchRadio.setToggleGroup(parameterModeGroup);
     manualSelectRadio.setToggleGroup(parameterModeGroup);
+    learnedRadio.setToggleGroup(parameterModeGroup);
+    adaptiveRadio.setToggleGroup(parameterModeGroup);
+    portfolioRadio.setToggleGroup(parameterModeGroup);
     gridSearchRadio.setSelected(true);
 
     // Initialize ComboBoxes with operator options
@@ -127,11 +157,16 @@ public class MainController {
                 gridSearchPanel.setManaged(true);
                 manualSelectionPanel.setVisible(false);
                 manualSelectionPanel.setManaged(false);
-              } else if (newToggle == manualSelectRadio) {
+              } else if (newToggle == manualSelectRadio || newToggle == portfolioRadio) {
                 gridSearchPanel.setVisible(false);
                 gridSearchPanel.setManaged(false);
                 manualSelectionPanel.setVisible(true);
                 manualSelectionPanel.setManaged(true);
+              } else if (newToggle == learnedRadio || newToggle == adaptiveRadio) {
+                gridSearchPanel.setVisible(false);
+                gridSearchPanel.setManaged(false);
+                manualSelectionPanel.setVisible(false);
+                manualSelectionPanel.setManaged(false);
               }
             });
 
@@ -185,6 +220,39 @@ public class MainController {
     SpinnerValueFactory<Integer> eliteFactory =
         new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 50, 1, 1);
     eliteSpinner.setValueFactory(eliteFactory);
+    // The steady-state EA keeps its best tours by only ever replacing the worst
+    eliteSpinner.disableProperty().bind(steadyStateCheckBox.selectedProperty());
+
+    // Time budget in seconds: 0-86400, default 0 (run for max generations)
+    SpinnerValueFactory<Integer> timeBudgetFactory =
+        new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 86400, 0, 10);
+    timeBudgetSpinner.setValueFactory(timeBudgetFactory);
+
+    // Generations without improvement before a restart: 10-1000000, default 500
+    SpinnerValueFactory<Integer> stagnationFactory =
+        new SpinnerValueFactory.IntegerSpinnerValueFactory(10, 1000000, 500, 10);
+    stagnationSpinner.setValueFactory(stagnationFactory);
+
+    // Target optimality gap: 0.0-100.0%, default 0.0 (off), step 0.5
+    SpinnerValueFactory<Double> targetGapFactory =
+        new SpinnerValueFactory.DoubleSpinnerValueFactory(0.0, 100.0, 0.0, 0.5);
+    targetGapSpinner.setValueFactory(targetGapFactory);
+
+    // Points per tile for tiled solving: 100-50000, default 1000
+    SpinnerValueFactory<Integer> maxTileSizeFactory =
+        new SpinnerValueFactory.IntegerSpinnerValueFactory(100, 50000, 1000, 100);
+    maxTileSizeSpinner.setValueFactory(maxTileSizeFactory);
+    maxTileSizeSpinner.disableProperty().bind(tiledSolvingCheckBox.selectedProperty().not());
+
+    // Window re-optimization rounds: 0-100, default 0 (off)
+    SpinnerValueFactory<Integer> windowRoundsFactory =
+        new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 100, 0, 1);
+    windowRoundsSpinner.setValueFactory(windowRoundsFactory);
+
+    // Edges per window: 5-200, default 40
+    SpinnerValueFactory<Integer> windowSizeFactory =
+        new SpinnerValueFactory.IntegerSpinnerValueFactory(5, 200, 40, 5);
+    windowSizeSpinner.setValueFactory(windowSizeFactory);
 
     // Stipple count: 10-50000, default 1000
     SpinnerValueFactory<Integer> stippleFactory =
@@ -196,6 +264,11 @@ public class MainController {
         new SpinnerValueFactory.DoubleSpinnerValueFactory(1.0, 5.0, 1.0, 0.5);
     scaleFactorSpinner.setValueFactory(scaleFactory);
 
+    // Tour line width in output pixels: 0.25-10.0, default 1.0, step 0.25
+    SpinnerValueFactory<Double> strokeWidthFactory =
+        new SpinnerValueFactory.DoubleSpinnerValueFactory(0.25, 10.0, 1.0, 0.25);
+    strokeWidthSpinner.setValueFactory(strokeWidthFactory);
+
     // Crossover/Mutation step spinners (for grid search)
     SpinnerValueFactory<Double> crossoverStepFactory =
         new SpinnerValueFactory.DoubleSpinnerValueFactory(0.05, 0.5, 0.2, 0.05);
@@ -259,12 +332,16 @@ public class MainController {
 
     if (selectedFile != null) {
       try {
-        originalImage = ImageIO.read(selectedFile);
+        loadOriginal(selectedFile, stippleCountSpinner.getValue());
         fileNameLabel.setText(selectedFile.getName());
 
         // Clear previous results
         stippledImage = null;
         tspArtImage = null;
+        stipplePoints = null;
+        tourPoints = null;
+        previousTour = null;
+        previousPoints = null;
 
         // Display original image
         currentStep = 0;
@@ -279,6 +356,19 @@ public class MainController {
     }
   }
 
+  /**
+   * Decodes the original image at the working resolution for a stipple count, subsampling large
+   * files while they are decoded.
+   */
+  private void loadOriginal(File file, int stippleCount) throws IOException {
+    long budget = ImageLoader.workingPixels(stippleCount);
+    Dimension size = ImageLoader.readSize(file.toPath());
+    originalImage = ImageLoader.loadGray(file.toPath(), budget);
+    originalFile = file;
+    originalBudget = budget;
+    originalSubsampled = (long) size.width * size.height > budget;
+  }
+
   @FXML
   private void onRunTSP() {
     if (originalImage == null) {
@@ -294,8 +384,62 @@ public class MainController {
     // Build configuration from UI
     ParameterConfig config = buildConfigFromUI();
 
+    // Decode the image again if the stipple count needs more pixels than it was loaded with.
+    // Earlier tours are in the old coordinates, so they cannot be repaired.
+    if (originalSubsampled
+        && ImageLoader.workingPixels(config.getStippleCount()) > originalBudget) {
+      try {
+        loadOriginal(originalFile, config.getStippleCount());
+      } catch (IOException e) {
+        showError("Failed to load image", e.getMessage());
+        return;
+      }
+      previousTour = null;
+      previousPoints = null;
+    }
+
+    // Admission control: scale the job down if it would run out of heap
+    int width = originalImage.getWidth();
+    int height = originalImage.getHeight();
+    long available = ResourceEstimator.availableHeap();
+    ResourceEstimator.Estimate estimate = ResourceEstimator.estimate(config, width, height);
+    System.out.println(estimate);
+    ParameterConfig fitted = ResourceEstimator.fitToMemory(config, width, height, available);
+    if (fitted == null) {
+      showError(
+          "Not Enough Memory",
+          String.format(
+              "This job needs about %s of heap but only %s is available, even with the"
+                  + " smallest population and stipple count. Reduce the image size or scale"
+                  + " factor, or start the JVM with a larger -Xmx.",
+              ResourceEstimator.formatBytes(estimate.getRequiredBytes()),
+              ResourceEstimator.formatBytes(available)));
+      return;
+    }
+    if (fitted != config) {
+      Alert alert = new Alert(Alert.AlertType.INFORMATION);
+      alert.setTitle("Job Scaled Down");
+      alert.setHeaderText(null);
+      alert.setContentText(
+          String.format(
+              "The job needs about %s of heap but only %s is available.%n"
+                  + "Running with population %d and %d stipples instead.",
+              ResourceEstimator.formatBytes(estimate.getRequiredBytes()),
+              ResourceEstimator.formatBytes(available),
+              fitted.getPopulationSize(),
+              fitted.getStippleCount()));
+      alert.showAndWait();
+      config = fitted;
+    }
+
     // Create and configure the background task
-    currentTask = new ProcessingTask(originalImage, config);
+    int[] repairFrom = repairTourCheckBox.isSelected() ? previousTour : null;
+    currentTask =
+        new ProcessingTask(originalImage, config, repairFrom, previousPoints, stageCache);
+
+    // Show stipples and tours live in place of the result while the task runs
+    tspArtImageView.setImage(null);
+    tspPreview.start(currentTask.getPreview());
 
     // Bind progress and status
     progressBar.progressProperty().bind(currentTask.progressProperty());
@@ -304,10 +448,16 @@ public class MainController {
     // Handle task completion
     currentTask.setOnSucceeded(
         event -> {
+          tspPreview.stop();
           ProcessingResult result = currentTask.getValue();
           if (result != null) {
             stippledImage = result.stippledImage;
             tspArtImage = result.tspArtImage;
+            stipplePoints = result.stipplePoints;
+            tourPoints = result.tourPoints;
+            tourStrokeWidth = result.strokeWidth;
+            previousTour = result.tspTour;
+            previousPoints = result.stipplePoints;
 
             // Display results
             currentStep = 2; // Jump to final result
@@ -327,6 +477,8 @@ public class MainController {
     // Handle task failure
     currentTask.setOnFailed(
         event -> {
+          tspPreview.stop();
+          tspArtImageView.setImage(tspArtImage);
           Throwable error = currentTask.getException();
           showError("Processing Error", "An error occurred: " + error.getMessage());
           error.printStackTrace();
@@ -344,6 +496,8 @@ public class MainController {
     // Handle task cancellation
     currentTask.setOnCancelled(
         event -> {
+          tspPreview.stop();
+          tspArtImageView.setImage(tspArtImage);
           isProcessing = false;
           currentTask = null;
           statusLabel.textProperty().unbind();
@@ -374,7 +528,17 @@ public class MainController {
     config.setCrossoverOperator(crossoverComboBox.getValue());
 
     // Mode
-    config.setGridSearch(gridSearchRadio.isSelected());
+    if (gridSearchRadio.isSelected()) {
+      config.setParameterMode(ParameterConfig.ParameterMode.GRID_SEARCH);
+    } else if (learnedRadio.isSelected()) {
+      config.setParameterMode(ParameterConfig.ParameterMode.LEARNED);
+    } else if (adaptiveRadio.isSelected()) {
+      config.setParameterMode(ParameterConfig.ParameterMode.ADAPTIVE);
+    } else if (portfolioRadio.isSelected()) {
+      config.setParameterMode(ParameterConfig.ParameterMode.PORTFOLIO);
+    } else {
+      config.setParameterMode(ParameterConfig.ParameterMode.MANUAL);
+    }
 
     // Grid search parameters
     config.setCrossoverMin(crossoverMinSlider.getValue());
@@ -392,8 +556,20 @@ public class MainController {
     config.setPopulationSize(populationSpinner.getValue());
     config.setMaxGenerations(generationsSpinner.getValue());
     config.setEliteCount(eliteSpinner.getValue());
+    config.setSteadyState(steadyStateCheckBox.isSelected());
+    config.setTimeBudgetSeconds(timeBudgetSpinner.getValue());
+    config.setStagnationGenerations(stagnationSpinner.getValue());
+    config.setTargetGapPercent(targetGapSpinner.getValue());
+    config.setTiledSolving(tiledSolvingCheckBox.isSelected());
+    config.setMaxTileSize(maxTileSizeSpinner.getValue());
+    config.setWindowRounds(windowRoundsSpinner.getValue());
+    config.setWindowSize(windowSizeSpinner.getValue());
+    config.setCheckpointFile(
+        saveCheckpointsCheckBox.isSelected() ? Checkpoint.defaultPath().toString() : "");
+    config.setResumeFromCheckpoint(resumeCheckpointCheckBox.isSelected());
     config.setStippleCount(stippleCountSpinner.getValue());
     config.setScaleFactor(scaleFactorSpinner.getValue());
+    config.setStrokeWidth(strokeWidthSpinner.getValue());
 
     return config;
   }
@@ -401,13 +577,11 @@ public class MainController {
   /** Display both stippled and TSP art results side by side */
   private void displayResults() {
     if (stippledImage != null) {
-      Image fxStippled = SwingFXUtils.toFXImage(stippledImage, null);
-      stippledImageView.setImage(fxStippled);
+      stippledImageView.setImage(stippledImage);
     }
 
     if (tspArtImage != null) {
-      Image fxTspArt = SwingFXUtils.toFXImage(tspArtImage, null);
-      tspArtImageView.setImage(fxTspArt);
+      tspArtImageView.setImage(tspArtImage);
     }
 
     stepLabel.setText("Step 3 of 3: TSP Art Complete");
@@ -473,6 +647,8 @@ public class MainController {
         .addAll(
             new FileChooser.ExtensionFilter("PNG Image", "*.png"),
             new FileChooser.ExtensionFilter("JPEG Image", "*.jpg", "*.jpeg"),
+            new FileChooser.ExtensionFilter("SVG Vector Image", "*.svg", "*.svgz"),
+            new FileChooser.ExtensionFilter("PDF Document", "*.pdf"),
             new FileChooser.ExtensionFilter("All Files", "*.*"));
 
     // Show save dialog
@@ -480,23 +656,43 @@ public class MainController {
 
     if (saveFile != null) {
       try {
-        // Determine format from extension
+        if (VectorExporter.isVectorFile(saveFile.toPath())) {
+          // Vector formats are drawn from the points rather than the bitmap
+          if (currentStep == 1 && stipplePoints != null) {
+            VectorExporter.writeStipples(
+                saveFile.toPath(),
+                stipplePoints,
+                stippledImage.getWidth(),
+                stippledImage.getHeight(),
+                1.0);
+          } else if (currentStep == 2 && previousTour != null) {
+            VectorExporter.writeTour(
+                saveFile.toPath(),
+                tourPoints,
+                previousTour,
+                tspArtImage.getWidth(),
+                tspArtImage.getHeight(),
+                tourStrokeWidth);
+          } else {
+            showError(
+                "No Vector Data",
+                "Only the stippled image and the TSP art can be saved as vectors.");
+            return;
+          }
+          statusLabel.setText("Image saved: " + saveFile.getName());
+          showSavedAlert(saveFile);
+          return;
+        }
+
+        // Determine format from extension; PNG is the default
         String fileName = saveFile.getName().toLowerCase();
-        String format = "png"; // default
         if (fileName.endsWith(".jpg") || fileName.endsWith(".jpeg")) {
-          format = "jpg";
+          ImageIO.write(imageToSave, "jpg", saveFile);
+        } else {
+          PngEncoder.write(imageToSave, saveFile.toPath());
         }
-
-        // Save the image
-        ImageIO.write(imageToSave, format, saveFile);
         statusLabel.setText("Image saved: " + saveFile.getName());
-
-        // Show success message
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Image Saved");
-        alert.setHeaderText(null);
-        alert.setContentText("Image saved successfully to:\n" + saveFile.getAbsolutePath());
-        alert.showAndWait();
+        showSavedAlert(saveFile);
 
       } catch (IOException e) {
         showError("Save Failed", "Failed to save image: " + e.getMessage());
@@ -505,6 +701,15 @@ public class MainController {
     }
   }
 
+  /** Show success message for a saved image. */
+  private void showSavedAlert(File saveFile) {
+    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+    alert.setTitle("Image Saved");
+    alert.setHeaderText(null);
+    alert.setContentText("Image saved successfully to:\n" + saveFile.getAbsolutePath());
+    alert.showAndWait();
+  }
+
   @FXML
   private void onCancel() {
     if (currentTask != null && isProcessing) {
@@ -537,16 +742,9 @@ public class MainController {
 
     stepLabel.setText("Step " + (currentStep + 1) + " of 3: " + stepName);
 
-    if (imageToDisplay != null) {
-      Image fxImage = SwingFXUtils.toFXImage(imageToDisplay, null);
-
-      // For now, display in the stippled view
-      // Later we'll have better layout logic
-      stippledImageView.setImage(fxImage);
-      stippledImageView.setPreserveRatio(true);
-    } else {
-      stippledImageView.setImage(null);
-    }
+    // For now, display in the stippled view
+    // Later we'll have better layout logic
+    stippledImageView.setImage(imageToDisplay);
   }
 
   private void updateButtonStates() {
@@ -0,0 +1,171 @@
+package edu.stockton.project.gui;
+
+import java.util.stream.IntStream;
+
+/**
+ * Candidate-neighbour lists for a stipple instance. Points are bucketed into a uniform grid with
+ * about two points per cell, so the k nearest neighbours of every point are found by scanning a few
+ * rings of cells around it instead of all n points.
+ */
+final class NeighborLists {
+
+  /* Private constructor to prevent instantiation. */
+  private NeighborLists() {}
+
+  /**
+   * Finds the k nearest neighbours of every point.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param k Number of neighbours per point, capped at n - 1
+   * @return neighbors[i] holds the indices of the nearest neighbours of i, closest first
+   */
+  static int[][] nearest(double[] xPoints, double[] yPoints, int k) {
+    int n = xPoints.length;
+    int count = Math.max(0, Math.min(k, n - 1));
+
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int i = 0; i < n; i++) {
+      minX = Math.min(minX, xPoints[i]);
+      maxX = Math.max(maxX, xPoints[i]);
+      minY = Math.min(minY, yPoints[i]);
+      maxY = Math.max(maxY, yPoints[i]);
+    }
+
+    // Grid with about two points per cell
+    double area = Math.max(maxX - minX, 1.0) * Math.max(maxY - minY, 1.0);
+    double cellSize = Math.max(Math.sqrt(2.0 * area / Math.max(1, n)), 1e-9);
+    int cols = (int) ((maxX - minX) / cellSize) + 1;
+    int rows = (int) ((maxY - minY) / cellSize) + 1;
+
+    // Counting sort of the points into their cells
+    int[] cellOf = new int[n];
+    int[] cellStart = new int[cols * rows + 1];
+    for (int i = 0; i < n; i++) {
+      int cx = (int) ((xPoints[i] - minX) / cellSize);
+      int cy = (int) ((yPoints[i] - minY) / cellSize);
+      cellOf[i] = cy * cols + cx;
+      cellStart[cellOf[i] + 1]++;
+    }
+    for (int c = 0; c < cols * rows; c++) {
+      cellStart[c + 1] += cellStart[c];
+    }
+    int[] cellPoints = new int[n];
+    int[] fill = cellStart.clone();
+    for (int i = 0; i < n; i++) {
+      cellPoints[fill[cellOf[i]]++] = i;
+    }
+
+    final double gridMinX = minX;
+    final double gridMinY = minY;
+    int[][] neighbors = new int[n][];
+
+    IntStream.range(0, n)
+        .parallel()
+        .forEach(
+            i -> {
+              int[] bestIndex = new int[count];
+              double[] bestDist = new double[count];
+              int found = 0;
+              int cx = (int) ((xPoints[i] - gridMinX) / cellSize);
+              int cy = (int) ((yPoints[i] - gridMinY) / cellSize);
+
+              for (int ring = 0; ring <= Math.max(cols, rows); ring++) {
+                for (int gy = cy - ring; gy <= cy + ring; gy++) {
+                  if (gy < 0 || gy >= rows) {
+                    continue;
+                  }
+                  // Inner rows of the ring only contribute their two end cells
+                  int step = (gy == cy - ring || gy == cy + ring) ? 1 : Math.max(1, 2 * ring);
+                  for (int gx = cx - ring; gx <= cx + ring; gx += step) {
+                    if (gx < 0 || gx >= cols) {
+                      continue;
+                    }
+                    int cell = gy * cols + gx;
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                      int j = cellPoints[p];
+                      if (j == i) {
+                        continue;
+                      }
+                      double dx = xPoints[i] - xPoints[j];
+                      double dy = yPoints[i] - yPoints[j];
+                      double dist = dx * dx + dy * dy;
+                      if (found < count || dist < bestDist[found - 1]) {
+                        // Insertion into the sorted candidate list
+                        int pos = found < count ? found++ : found - 1;
+                        while (pos > 0 && bestDist[pos - 1] > dist) {
+                          bestDist[pos] = bestDist[pos - 1];
+                          bestIndex[pos] = bestIndex[pos - 1];
+                          pos--;
+                        }
+                        bestDist[pos] = dist;
+                        bestIndex[pos] = j;
+                      }
+                    }
+                  }
+                }
+
+                // Every unscanned point is at least ring * cellSize away
+                double reach = ring * cellSize;
+                if (found == count && (count == 0 || bestDist[count - 1] <= reach * reach)) {
+                  break;
+                }
+              }
+
+              neighbors[i] = bestIndex;
+            });
+
+    return neighbors;
+  }
+
+  /**
+   * Turns k-nearest-neighbour lists into a symmetric adjacency structure in compressed row form,
+   * where j is a neighbour of i if either is among the nearest neighbours of the other.
+   *
+   * @param neighbors Nearest-neighbour lists from {@link #nearest}
+   * @return int[2][] where [0] holds the row offsets (length n + 1) and [1] the neighbour indices
+   */
+  static int[][] symmetric(int[][] neighbors) {
+    int n = neighbors.length;
+    int[] degree = new int[n];
+    for (int i = 0; i < n; i++) {
+      for (int j : neighbors[i]) {
+        degree[i]++;
+        if (!contains(neighbors[j], i)) {
+          degree[j]++;
+        }
+      }
+    }
+
+    int[] offsets = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      offsets[i + 1] = offsets[i] + degree[i];
+    }
+
+    int[] adjacency = new int[offsets[n]];
+    int[] fill = new int[n];
+    System.arraycopy(offsets, 0, fill, 0, n);
+    for (int i = 0; i < n; i++) {
+      for (int j : neighbors[i]) {
+        adjacency[fill[i]++] = j;
+        if (!contains(neighbors[j], i)) {
+          adjacency[fill[j]++] = i;
+        }
+      }
+    }
+
+    return new int[][] {offsets, adjacency};
+  }
+
+  private static boolean contains(int[] list, int value) {
+    for (int v : list) {
+      if (v == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -1,10 +1,27 @@
 package edu.stockton.project.gui;
 
+import java.util.Arrays;
+import java.util.List;
+
 /** Configuration holder for all EA and stippling parameters */
 public class ParameterConfig {
 
+  /** How the crossover and mutation rates for the EA are chosen. */
+  public enum ParameterMode {
+    /** Sweep every crossover/mutation combination in the configured ranges. */
+    GRID_SEARCH,
+    /** Single run with the manually selected rates. */
+    MANUAL,
+    /** Single run with the best-known rates for similar instances from the run history. */
+    LEARNED,
+    /** Single run of a self-adaptive EA that evolves its own rates alongside the tours. */
+    ADAPTIVE,
+    /** Local search, simulated annealing and the manually configured EA racing on all cores. */
+    PORTFOLIO
+  }
+
   // Mode
-  private boolean gridSearch;
+  private ParameterMode parameterMode;
 
   // Operators
   private String mutationOperator;
@@ -26,16 +43,38 @@ public class ParameterConfig {
   private int populationSize;
   private int maxGenerations;
   private int eliteCount;
+  private boolean steadyState;
+
+  // Time budget parameters
+  private double timeBudgetSeconds;
+  private int stagnationGenerations;
+
+  // Early stopping
+  private double targetGapPercent;
+
+  // Tiled solving for large instances
+  private boolean tiledSolving;
+  private int maxTileSize;
+
+  // Window re-optimization of the finished tour
+  private int windowRounds;
+  private int windowSize;
+
+  // Checkpointing of long EA runs
+  private String checkpointFile;
+  private double checkpointIntervalSeconds;
+  private boolean resumeFromCheckpoint;
 
   // Stippling parameter
   private int stippleCount;
 
   // Output scaling
   private double scaleFactor;
+  private double strokeWidth;
 
   public ParameterConfig() {
     // Default values
-    this.gridSearch = true;
+    this.parameterMode = ParameterMode.GRID_SEARCH;
     this.mutationOperator = "Reversal Mutation";
     this.crossoverOperator = "Enhanced Edge Recombination";
     this.crossoverMin = 0.1;
@@ -49,18 +88,74 @@ public class ParameterConfig {
     this.populationSize = 100;
     this.maxGenerations = 100;
     this.eliteCount = 1;
+    this.steadyState = false;
+    this.timeBudgetSeconds = 0;
+    this.stagnationGenerations = 500;
+    this.targetGapPercent = 0;
+    this.tiledSolving = false;
+    this.maxTileSize = 1000;
+    this.windowRounds = 0;
+    this.windowSize = 40;
+    this.checkpointFile = "";
+    this.checkpointIntervalSeconds = 60;
+    this.resumeFromCheckpoint = false;
     this.stippleCount = 10000;
     this.scaleFactor = 1.0;
+    this.strokeWidth = 1.0;
+  }
+
+  /**
+   * Creates a copy of another configuration, so that a sub-search can adjust its own parameters.
+   *
+   * @param other The configuration to copy
+   */
+  public ParameterConfig(ParameterConfig other) {
+    this.parameterMode = other.parameterMode;
+    this.mutationOperator = other.mutationOperator;
+    this.crossoverOperator = other.crossoverOperator;
+    this.crossoverMin = other.crossoverMin;
+    this.crossoverMax = other.crossoverMax;
+    this.crossoverStep = other.crossoverStep;
+    this.mutationMin = other.mutationMin;
+    this.mutationMax = other.mutationMax;
+    this.mutationStep = other.mutationStep;
+    this.manualCrossoverRate = other.manualCrossoverRate;
+    this.manualMutationRate = other.manualMutationRate;
+    this.populationSize = other.populationSize;
+    this.maxGenerations = other.maxGenerations;
+    this.eliteCount = other.eliteCount;
+    this.steadyState = other.steadyState;
+    this.timeBudgetSeconds = other.timeBudgetSeconds;
+    this.stagnationGenerations = other.stagnationGenerations;
+    this.targetGapPercent = other.targetGapPercent;
+    this.tiledSolving = other.tiledSolving;
+    this.maxTileSize = other.maxTileSize;
+    this.windowRounds = other.windowRounds;
+    this.windowSize = other.windowSize;
+    this.checkpointFile = other.checkpointFile;
+    this.checkpointIntervalSeconds = other.checkpointIntervalSeconds;
+    this.resumeFromCheckpoint = other.resumeFromCheckpoint;
+    this.stippleCount = other.stippleCount;
+    this.scaleFactor = other.scaleFactor;
+    this.strokeWidth = other.strokeWidth;
   }
 
   // Getters and Setters
 
+  public ParameterMode getParameterMode() {
+    return parameterMode;
+  }
+
+  public void setParameterMode(ParameterMode parameterMode) {
+    this.parameterMode = parameterMode;
+  }
+
   public boolean isGridSearch() {
-    return gridSearch;
+    return parameterMode == ParameterMode.GRID_SEARCH;
   }
 
   public void setGridSearch(boolean gridSearch) {
-    this.gridSearch = gridSearch;
+    this.parameterMode = gridSearch ? ParameterMode.GRID_SEARCH : ParameterMode.MANUAL;
   }
 
   public String getMutationOperator() {
@@ -167,6 +262,134 @@ public class ParameterConfig {
     this.eliteCount = eliteCount;
   }
 
+  /**
+   * Whether the EA replaces the worst members one offspring at a time instead of replacing the
+   * whole population every generation. The elite count does not apply to the steady-state EA.
+   *
+   * @return true if the steady-state EA is used
+   */
+  public boolean isSteadyState() {
+    return steadyState;
+  }
+
+  public void setSteadyState(boolean steadyState) {
+    this.steadyState = steadyState;
+  }
+
+  /**
+   * Gets the wall-clock budget for the TSP search. When positive, the EA runs until the budget is
+   * used up instead of for a fixed number of generations.
+   *
+   * @return The time budget in seconds, or 0 to run for the maximum number of generations
+   */
+  public double getTimeBudgetSeconds() {
+    return timeBudgetSeconds;
+  }
+
+  public void setTimeBudgetSeconds(double timeBudgetSeconds) {
+    this.timeBudgetSeconds = timeBudgetSeconds;
+  }
+
+  public int getStagnationGenerations() {
+    return stagnationGenerations;
+  }
+
+  public void setStagnationGenerations(int stagnationGenerations) {
+    this.stagnationGenerations = stagnationGenerations;
+  }
+
+  /**
+   * Gets the optimality gap at which the search ends early. The gap is measured against a
+   * Held-Karp lower bound computed before the search starts.
+   *
+   * @return The target gap in percent, or 0 to never stop early
+   */
+  public double getTargetGapPercent() {
+    return targetGapPercent;
+  }
+
+  public void setTargetGapPercent(double targetGapPercent) {
+    this.targetGapPercent = targetGapPercent;
+  }
+
+  /**
+   * Whether instances larger than the maximum tile size are split into tiles that are solved in
+   * parallel and stitched together.
+   *
+   * @return true if tiled solving is enabled
+   */
+  public boolean isTiledSolving() {
+    return tiledSolving;
+  }
+
+  public void setTiledSolving(boolean tiledSolving) {
+    this.tiledSolving = tiledSolving;
+  }
+
+  public int getMaxTileSize() {
+    return maxTileSize;
+  }
+
+  public void setMaxTileSize(int maxTileSize) {
+    this.maxTileSize = maxTileSize;
+  }
+
+  /**
+   * Number of rounds of window re-optimization applied to the finished tour.
+   *
+   * @return Number of rounds, or 0 to skip the stage
+   */
+  public int getWindowRounds() {
+    return windowRounds;
+  }
+
+  public void setWindowRounds(int windowRounds) {
+    this.windowRounds = windowRounds;
+  }
+
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  public void setWindowSize(int windowSize) {
+    this.windowSize = windowSize;
+  }
+
+  /**
+   * File that single-EA runs periodically save their state to.
+   *
+   * @return Path of the checkpoint file, or an empty string if checkpointing is off
+   */
+  public String getCheckpointFile() {
+    return checkpointFile;
+  }
+
+  public void setCheckpointFile(String checkpointFile) {
+    this.checkpointFile = checkpointFile == null ? "" : checkpointFile;
+  }
+
+  public double getCheckpointIntervalSeconds() {
+    return checkpointIntervalSeconds;
+  }
+
+  public void setCheckpointIntervalSeconds(double checkpointIntervalSeconds) {
+    this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+  }
+
+  /**
+   * Whether a run continues from the checkpoint file instead of starting over, if the checkpoint
+   * was taken on the same stipples.
+   *
+   * @return true if runs resume from the checkpoint file
+   */
+  public boolean isResumeFromCheckpoint() {
+    return resumeFromCheckpoint;
+  }
+
+  public void setResumeFromCheckpoint(boolean resumeFromCheckpoint) {
+    this.resumeFromCheckpoint = resumeFromCheckpoint;
+  }
+
   public int getStippleCount() {
     return stippleCount;
   }
@@ -183,11 +406,56 @@ public class ParameterConfig {
     this.scaleFactor = scaleFactor;
   }
 
+  /**
+   * Width of the tour line in pixels of the output image.
+   *
+   * @return Stroke width
+   */
+  public double getStrokeWidth() {
+    return strokeWidth;
+  }
+
+  public void setStrokeWidth(double strokeWidth) {
+    this.strokeWidth = strokeWidth;
+  }
+
+  /**
+   * Values of every field that can change the tour found for a set of stipples. Stipple count,
+   * scale factor, line width and checkpoint settings are left out.
+   *
+   * @return List that is equal for configurations that solve alike
+   */
+  List<Object> solverKey() {
+    return Arrays.asList(
+        parameterMode,
+        mutationOperator,
+        crossoverOperator,
+        crossoverMin,
+        crossoverMax,
+        crossoverStep,
+        mutationMin,
+        mutationMax,
+        mutationStep,
+        manualCrossoverRate,
+        manualMutationRate,
+        populationSize,
+        maxGenerations,
+        eliteCount,
+        steadyState,
+        timeBudgetSeconds,
+        stagnationGenerations,
+        targetGapPercent,
+        tiledSolving,
+        maxTileSize,
+        windowRounds,
+        windowSize);
+  }
+
   @Override
   public String toString() {
     return "ParameterConfig{"
-        + "gridSearch="
-        + gridSearch
+        + "parameterMode="
+        + parameterMode
         + ", mutationOperator='"
         + mutationOperator
         + '\''
@@ -200,10 +468,35 @@ public class ParameterConfig {
         + maxGenerations
         + ", eliteCount="
         + eliteCount
+        + ", steadyState="
+        + steadyState
+        + ", timeBudgetSeconds="
+        + timeBudgetSeconds
+        + ", stagnationGenerations="
+        + stagnationGenerations
+        + ", targetGapPercent="
+        + targetGapPercent
+        + ", tiledSolving="
+        + tiledSolving
+        + ", maxTileSize="
+        + maxTileSize
+        + ", windowRounds="
+        + windowRounds
+        + ", windowSize="
+        + windowSize
+        + ", checkpointFile='"
+        + checkpointFile
+        + '\''
+        + ", checkpointIntervalSeconds="
+        + checkpointIntervalSeconds
+        + ", resumeFromCheckpoint="
+        + resumeFromCheckpoint
         + ", stippleCount="
         + stippleCount
         + ", scaleFactor="
         + scaleFactor
+        + ", strokeWidth="
+        + strokeWidth
         + '}';
   }
 }
@@ -0,0 +1,392 @@
+package edu.stockton.project.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.ProgressTracker;
+import org.cicirello.search.SolutionCostPair;
+import org.cicirello.search.operators.MutationOperator;
+import org.cicirello.search.operators.permutations.PermutationInitializer;
+import org.cicirello.search.operators.permutations.ReversalMutation;
+import org.cicirello.search.sa.SimulatedAnnealing;
+
+/**
+ * Races several metaheuristics on the same instance. Every worker thread repeatedly picks a
+ * strategy, runs it for a short time slice starting from the shared best tour, and offers the
+ * result back to the search control. Strategies are picked with probability proportional to how
+ * fast their recent slices shortened the tour, so threads drift toward whatever works on the
+ * current image while every strategy keeps a small share to notice when that changes.
+ */
+final class PortfolioSolver {
+
+  /** Each slice is sized to take about this long. */
+  private static final long SLICE_NANOS = 250_000_000L;
+
+  /** Minimum time between two progress reports. */
+  private static final long REPORT_INTERVAL_NANOS = 200_000_000L;
+
+  /** Without a deadline, the race ends once the best tour has not improved for this long. */
+  private static final long STALL_NANOS = 10_000_000_000L;
+
+  /** Probability of picking a strategy uniformly instead of by its improvement rate. */
+  private static final double EXPLORATION = 0.1;
+
+  /** Weight of the latest slice in the smoothed improvement rate of a strategy. */
+  private static final double SMOOTHING = 0.3;
+
+  private static final int NEIGHBORS = 8;
+  private static final int RESTART_MUTATIONS = 10;
+
+  private final double[] xPoints;
+  private final double[] yPoints;
+  private final DistanceTSP problem;
+  private final SearchControl control;
+  private final int[][] neighbors;
+  private final List<Strategy> strategies = new ArrayList<>();
+
+  private final AtomicLong lastImprovementNanos = new AtomicLong();
+  private long lastReportNanos;
+
+  /**
+   * Creates a portfolio of an iterated 2-opt local search, simulated annealing, and the configured
+   * EA.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param problem The TSP problem instance
+   * @param eaFactory Creates the EA of the portfolio
+   * @param eaMutation Mutation operator used to seed the EA population around the best tour
+   * @param control Shared search state that holds the incumbent tour
+   */
+  PortfolioSolver(
+      double[] xPoints,
+      double[] yPoints,
+      DistanceTSP problem,
+      EvolutionDriver.EAFactory eaFactory,
+      MutationOperator<Permutation> eaMutation,
+      SearchControl control) {
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.problem = problem;
+    this.control = control;
+
+    this.neighbors = NeighborLists.nearest(xPoints, yPoints, NEIGHBORS);
+    strategies.add(new LocalSearchStrategy());
+    strategies.add(new AnnealingStrategy());
+    strategies.add(new EvolutionStrategy(eaFactory, eaMutation));
+  }
+
+  /**
+   * Runs the race until the deadline, the target gap, or a stop request.
+   *
+   * @param threads Number of worker threads
+   * @param deadlineNanos Deadline as a {@link System#nanoTime()} value, or Long.MAX_VALUE to run
+   *     until the best tour stalls
+   * @param callback Progress callback (can be null)
+   * @return The best tour found
+   */
+  Permutation run(int threads, long deadlineNanos, TSPRunner.ProgressCallback callback) {
+    long startNanos = System.nanoTime();
+
+    // Start the race from a greedy tour improved by 2-opt
+    int[] start = GreedyTour.build(xPoints, yPoints, neighbors);
+    TourImprover.twoOpt(start, xPoints, yPoints, neighbors, control);
+    Permutation initial = new Permutation(start);
+    control.offer(initial, problem.value(initial));
+    lastImprovementNanos.set(System.nanoTime());
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      List<Future<?>> workers = new ArrayList<>();
+      for (int t = 0; t < Math.max(1, threads); t++) {
+        workers.add(executor.submit(() -> work(startNanos, deadlineNanos, callback)));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      control.stop();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Portfolio strategy failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (Strategy strategy : strategies) {
+      System.out.printf(
+          "Portfolio: %s ran %d slices, saved %.2f%n",
+          strategy.name, strategy.slices, strategy.totalGain);
+    }
+    return control.getBestSoFar();
+  }
+
+  private void work(long startNanos, long deadlineNanos, TSPRunner.ProgressCallback callback) {
+    while (!control.isStopped() && !control.isTargetReached()) {
+      long now = System.nanoTime();
+      if (now >= deadlineNanos
+          || (deadlineNanos == Long.MAX_VALUE && now - lastImprovementNanos.get() > STALL_NANOS)) {
+        break;
+      }
+
+      Strategy strategy = pick();
+      Permutation incumbent = control.getBestSoFar();
+      double startCost = problem.value(incumbent);
+      long sliceEnd = Math.min(deadlineNanos, now + SLICE_NANOS);
+
+      double cost = strategy.runSlice(incumbent, startCost, sliceEnd);
+      double seconds = Math.max(1e-3, (System.nanoTime() - now) / 1e9);
+      strategy.record(Math.max(0, startCost - cost), seconds);
+      if (cost < startCost) {
+        lastImprovementNanos.set(System.nanoTime());
+      }
+
+      report(startNanos, deadlineNanos, callback);
+    }
+  }
+
+  /** Picks a strategy by roulette over the smoothed improvement rates. */
+  private Strategy pick() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    double total = 0;
+    for (Strategy strategy : strategies) {
+      total += strategy.getRate();
+    }
+    if (total <= 0 || random.nextDouble() < EXPLORATION) {
+      return strategies.get(random.nextInt(strategies.size()));
+    }
+
+    double r = random.nextDouble() * total;
+    for (Strategy strategy : strategies) {
+      r -= strategy.getRate();
+      if (r <= 0) {
+        return strategy;
+      }
+    }
+    return strategies.get(strategies.size() - 1);
+  }
+
+  private synchronized void report(
+      long startNanos, long deadlineNanos, TSPRunner.ProgressCallback callback) {
+    long now = System.nanoTime();
+    if (callback == null || now - lastReportNanos < REPORT_INTERVAL_NANOS) {
+      return;
+    }
+    lastReportNanos = now;
+
+    double total = 0;
+    for (Strategy strategy : strategies) {
+      total += strategy.getRate();
+    }
+    StringBuilder shares = new StringBuilder();
+    for (Strategy strategy : strategies) {
+      double share = total > 0 ? strategy.getRate() / total * 100 : 100.0 / strategies.size();
+      shares.append(String.format(" %s %.0f%%", strategy.name, share));
+    }
+
+    double best = control.getBestCost();
+    double gap = control.getGapPercent(best);
+    String message =
+        String.format("Portfolio: best %.2f", best)
+            + (Double.isNaN(gap) ? "" : String.format(" (gap %.2f%%)", gap))
+            + " |"
+            + shares;
+
+    if (deadlineNanos == Long.MAX_VALUE) {
+      callback.onProgress(0, 1, message);
+    } else {
+      long elapsed = now - startNanos;
+      long budget = Math.max(1, deadlineNanos - startNanos);
+      callback.onProgress((int) Math.min(1000, elapsed * 1000 / budget), 1000, message);
+    }
+  }
+
+  /** A metaheuristic in the portfolio together with its recent performance. */
+  private abstract class Strategy {
+    final String name;
+    private double rate;
+    private int slices;
+    private double totalGain;
+
+    Strategy(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Runs one slice from the incumbent and offers every improvement to the search control.
+     *
+     * @param incumbent Copy of the best tour so far
+     * @param incumbentCost Length of the incumbent
+     * @param sliceEndNanos When the slice should end, as a {@link System#nanoTime()} value
+     * @return Length of the best tour found in the slice
+     */
+    abstract double runSlice(Permutation incumbent, double incumbentCost, long sliceEndNanos);
+
+    synchronized void record(double gain, double seconds) {
+      double observed = gain / seconds;
+      rate = slices == 0 ? observed : (1 - SMOOTHING) * rate + SMOOTHING * observed;
+      slices++;
+      totalGain += gain;
+    }
+
+    synchronized double getRate() {
+      return rate;
+    }
+  }
+
+  /**
+   * Iterated local search: random local double-bridge kicks, each followed by neighbour-list 2-opt
+   * around the kicked cities, keeping the result only if it is shorter. The kick and the 2-opt
+   * moves are all reversals on one tour, and a rejected kick is undone by reverting them, so a
+   * kick costs time proportional to the segments it touches rather than to the tour.
+   */
+  private final class LocalSearchStrategy extends Strategy {
+    private static final int KICK_SPAN = 50;
+
+    LocalSearchStrategy() {
+      super("2-opt ILS");
+    }
+
+    @Override
+    double runSlice(Permutation incumbent, double incumbentCost, long sliceEndNanos) {
+      int[] current = incumbent.toArray();
+      int n = current.length;
+      if (n < 8) {
+        return incumbentCost;
+      }
+
+      TourImprover improver = new TourImprover(xPoints, yPoints, neighbors, current);
+      int[] dirty = new int[6];
+      double cost = incumbentCost;
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+
+      while (System.nanoTime() < sliceEndNanos && !control.isStopped()) {
+        improver.mark();
+        double kick = doubleBridge(improver, n, random, dirty);
+        double gain = improver.improve(control, dirty);
+        if (kick - gain < -1e-9) {
+          cost += kick - gain;
+        } else {
+          improver.rollback();
+        }
+      }
+
+      if (cost < incumbentCost) {
+        control.offer(new Permutation(current), cost);
+      }
+      return cost;
+    }
+
+    /**
+     * Swaps two adjacent segments within a short stretch of the tour, by reversing the stretch and
+     * then each segment. The stretch is at most half the tour, so every reversal stays inside it.
+     *
+     * @return The change in tour length
+     */
+    private double doubleBridge(
+        TourImprover improver, int n, ThreadLocalRandom random, int[] dirty) {
+      int span = Math.min(KICK_SPAN, n / 2);
+      int offset = random.nextInt(n);
+      int a = 1 + random.nextInt(span - 2);
+      int b = a + 1 + random.nextInt(span - a - 1);
+
+      // Stretch s0 | s1..sa | sa+1..sb | sb+1 becomes s0 | sa+1..sb | s1..sa | sb+1
+      dirty[0] = improver.cityAt(offset);
+      dirty[1] = improver.cityAt((offset + 1) % n);
+      dirty[2] = improver.cityAt((offset + a) % n);
+      dirty[3] = improver.cityAt((offset + a + 1) % n);
+      dirty[4] = improver.cityAt((offset + b) % n);
+      dirty[5] = improver.cityAt((offset + b + 1) % n);
+      double before =
+          distance(dirty[0], dirty[1])
+              + distance(dirty[2], dirty[3])
+              + distance(dirty[4], dirty[5]);
+      double after =
+          distance(dirty[0], dirty[3])
+              + distance(dirty[4], dirty[1])
+              + distance(dirty[2], dirty[5]);
+
+      improver.reverse((offset + 1) % n, (offset + b) % n);
+      improver.reverse((offset + 1) % n, (offset + b - a) % n);
+      improver.reverse((offset + b - a + 1) % n, (offset + b) % n);
+      return after - before;
+    }
+
+    private double distance(int i, int j) {
+      double dx = xPoints[i] - xPoints[j];
+      double dy = yPoints[i] - yPoints[j];
+      return Math.sqrt(dx * dx + dy * dy);
+    }
+  }
+
+  /** Simulated annealing with reversal moves, restarted from the incumbent every slice. */
+  private final class AnnealingStrategy extends Strategy {
+    private volatile double evaluationsPerSecond = 10_000;
+
+    AnnealingStrategy() {
+      super("SA");
+    }
+
+    @Override
+    double runSlice(Permutation incumbent, double incumbentCost, long sliceEndNanos) {
+      long startNanos = System.nanoTime();
+      double seconds = (sliceEndNanos - startNanos) / 1e9;
+      int evaluations =
+          (int) Math.max(100, Math.min(Integer.MAX_VALUE, evaluationsPerSecond * seconds));
+
+      ProgressTracker<Permutation> tracker = new ProgressTracker<>();
+      control.register(tracker);
+      try {
+        SimulatedAnnealing<Permutation> annealing =
+            new SimulatedAnnealing<>(
+                problem,
+                new ReversalMutation(),
+                new PermutationInitializer(xPoints.length),
+                tracker);
+        SolutionCostPair<Permutation> result = annealing.optimize(evaluations, incumbent);
+        if (result == null) {
+          return incumbentCost;
+        }
+
+        double elapsed = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        evaluationsPerSecond = evaluations / elapsed;
+        // Offer the exact length, not the single-precision matrix sum the annealer tracks
+        double cost = problem.value(result.getSolution());
+        control.offer(result.getSolution(), cost);
+        return cost;
+      } finally {
+        control.unregister(tracker);
+      }
+    }
+  }
+
+  /** The configured EA, seeded with a population around the incumbent every slice. */
+  private final class EvolutionStrategy extends Strategy {
+    private final EvolutionDriver.EAFactory factory;
+    private final MutationOperator<Permutation> mutation;
+
+    EvolutionStrategy(EvolutionDriver.EAFactory factory, MutationOperator<Permutation> mutation) {
+      super("EA");
+      this.factory = factory;
+      this.mutation = mutation;
+    }
+
+    @Override
+    double runSlice(Permutation incumbent, double incumbentCost, long sliceEndNanos) {
+      EvolutionDriver driver =
+          new EvolutionDriver(
+              factory,
+              new SeededInitializer(incumbent, mutation.split(), RESTART_MUTATIONS),
+              mutation.split(),
+              control);
+      driver.setDeadline(sliceEndNanos);
+      return problem.value(driver.run());
+    }
+  }
+}
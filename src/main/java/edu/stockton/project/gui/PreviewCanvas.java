@@ -0,0 +1,156 @@
+package edu.stockton.project.gui;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+
+/**
+ * Draws the snapshots of a {@link PreviewChannel} while a job runs. Frames are capped at {@value
+ * #FRAMES_PER_SECOND} per second, and each frame draws at most {@value #ELEMENTS_PER_FRAME} dots or
+ * segments, so a snapshot of a large instance is built up over several frames rather than stalling
+ * the FX thread. A newer snapshot replaces the one being drawn.
+ */
+public class PreviewCanvas extends Region {
+
+  private static final int FRAMES_PER_SECOND = 30;
+  private static final long FRAME_NANOS = 1_000_000_000L / FRAMES_PER_SECOND;
+  private static final int ELEMENTS_PER_FRAME = 20_000;
+
+  private final Canvas canvas = new Canvas();
+  private final AnimationTimer timer =
+      new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+          if (now - lastFrameNanos >= FRAME_NANOS) {
+            lastFrameNanos = now;
+            drawFrame();
+          }
+        }
+      };
+
+  private PreviewChannel channel;
+  private PreviewChannel.Snapshot snapshot;
+  private int drawn; // elements of the snapshot drawn so far
+  private long lastFrameNanos;
+
+  // Transform from snapshot coordinates to the canvas
+  private double scale;
+  private double offsetX;
+  private double offsetY;
+
+  /** Creates an idle preview. */
+  public PreviewCanvas() {
+    getChildren().add(canvas);
+    setMouseTransparent(true);
+  }
+
+  /**
+   * Starts drawing the snapshots of a channel.
+   *
+   * @param channel The channel of a running job
+   */
+  void start(PreviewChannel channel) {
+    this.channel = channel;
+    snapshot = null;
+    clear();
+    timer.start();
+  }
+
+  /** Stops drawing and clears the preview. */
+  void stop() {
+    timer.stop();
+    channel = null;
+    snapshot = null;
+    clear();
+  }
+
+  @Override
+  protected void layoutChildren() {
+    if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+      canvas.setWidth(getWidth());
+      canvas.setHeight(getHeight());
+      if (snapshot != null) {
+        begin(snapshot);
+      }
+    }
+  }
+
+  private void drawFrame() {
+    PreviewChannel.Snapshot next = channel.take();
+    if (next != null) {
+      begin(next);
+    }
+    if (snapshot == null) {
+      return;
+    }
+
+    GraphicsContext graphics = canvas.getGraphicsContext2D();
+    double[] xPoints = snapshot.points[0];
+    double[] yPoints = snapshot.points[1];
+    int[] tour = snapshot.tour;
+    int total = tour != null ? tour.length : xPoints.length;
+    int end = Math.min(total, drawn + ELEMENTS_PER_FRAME);
+
+    if (tour != null) {
+      // Continue the tour from the last point drawn, and close it at the end
+      graphics.beginPath();
+      int start = tour[Math.max(0, drawn - 1)];
+      graphics.moveTo(x(xPoints[start]), y(yPoints[start]));
+      for (int i = drawn; i < end; i++) {
+        graphics.lineTo(x(xPoints[tour[i]]), y(yPoints[tour[i]]));
+      }
+      if (end == total && total > 0) {
+        graphics.lineTo(x(xPoints[tour[0]]), y(yPoints[tour[0]]));
+      }
+      graphics.stroke();
+    } else {
+      double size = Math.max(1, Math.min(3, scale));
+      for (int i = drawn; i < end; i++) {
+        graphics.fillRect(x(xPoints[i]) - size / 2, y(yPoints[i]) - size / 2, size, size);
+      }
+    }
+
+    drawn = end;
+    if (drawn == total) {
+      snapshot = null;
+    }
+  }
+
+  /** Clears the canvas and fits a snapshot into it. */
+  private void begin(PreviewChannel.Snapshot next) {
+    snapshot = next;
+    drawn = 0;
+    clear();
+
+    double width = canvas.getWidth();
+    double height = canvas.getHeight();
+    scale = Math.min(width / next.width, height / next.height);
+    offsetX = (width - next.width * scale) / 2;
+    offsetY = (height - next.height * scale) / 2;
+
+    GraphicsContext graphics = canvas.getGraphicsContext2D();
+    graphics.setFill(Color.WHITE);
+    graphics.fillRect(offsetX, offsetY, next.width * scale, next.height * scale);
+    graphics.setFill(Color.BLACK);
+    graphics.setStroke(Color.BLACK);
+    graphics.setLineWidth(1);
+    graphics.setLineCap(StrokeLineCap.ROUND);
+    graphics.setLineJoin(StrokeLineJoin.ROUND);
+  }
+
+  private void clear() {
+    canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+  }
+
+  private double x(double x) {
+    return offsetX + x * scale;
+  }
+
+  private double y(double y) {
+    return offsetY + y * scale;
+  }
+}
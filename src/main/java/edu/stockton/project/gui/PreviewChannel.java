@@ -0,0 +1,106 @@
+package edu.stockton.project.gui;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands snapshots of a running job from the worker thread to the GUI. The worker publishes
+ * immutable snapshots into a single slot, replacing any the GUI has not taken yet, so neither side
+ * ever waits for the other and a slow display only skips snapshots. Publishers check {@link
+ * #isDue} first, which keeps the cost of copying out snapshots to a few per second.
+ */
+final class PreviewChannel {
+
+  /** Minimum time between two published snapshots. */
+  private static final long INTERVAL_NANOS = 250_000_000L;
+
+  /** State of the job at one moment. Neither the snapshot nor its arrays are changed later. */
+  static final class Snapshot {
+    final double[][] points;
+    final int[] tour;
+    final double width;
+    final double height;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param points Stipples as double[2][n] where [0] is x coords and [1] is y coords
+     * @param tour Order in which the tour visits the points, or null for stipples only
+     * @param width Width of the area the coordinates lie in
+     * @param height Height of the area the coordinates lie in
+     */
+    Snapshot(double[][] points, int[] tour, double width, double height) {
+      this.points = points;
+      this.tour = tour;
+      this.width = width;
+      this.height = height;
+    }
+  }
+
+  private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+  private volatile long lastPublishNanos = System.nanoTime() - INTERVAL_NANOS;
+
+  // Points and area of the tours, set before the search starts
+  private volatile double[][] tourPoints;
+  private volatile double tourWidth;
+  private volatile double tourHeight;
+
+  /**
+   * Checks whether enough time has passed since the last snapshot for another one.
+   *
+   * @return true if a snapshot published now would not exceed the rate limit
+   */
+  boolean isDue() {
+    return System.nanoTime() - lastPublishNanos >= INTERVAL_NANOS;
+  }
+
+  /**
+   * Publishes stipples.
+   *
+   * @param points Stipples, which must not be changed afterwards
+   * @param width Width of the image the stipples lie in
+   * @param height Height of the image the stipples lie in
+   */
+  void publishStipples(double[][] points, double width, double height) {
+    publish(new Snapshot(points, null, width, height));
+  }
+
+  /**
+   * Sets the points that tours published with {@link #publishTour} visit.
+   *
+   * @param points Stipples in output coordinates, which must not be changed afterwards
+   * @param width Width of the output
+   * @param height Height of the output
+   */
+  void setTourPoints(double[][] points, double width, double height) {
+    tourWidth = width;
+    tourHeight = height;
+    tourPoints = points;
+  }
+
+  /**
+   * Publishes a tour over the points set with {@link #setTourPoints}. Tours of a different size,
+   * such as the tours of single tiles, are ignored.
+   *
+   * @param tour The tour, which must not be changed afterwards
+   */
+  void publishTour(int[] tour) {
+    double[][] points = tourPoints;
+    if (points != null && points[0].length == tour.length) {
+      publish(new Snapshot(points, tour, tourWidth, tourHeight));
+    }
+  }
+
+  private void publish(Snapshot snapshot) {
+    lastPublishNanos = System.nanoTime();
+    latest.set(snapshot);
+  }
+
+  /**
+   * Takes the latest snapshot, if one was published since the last call.
+   *
+   * @return The snapshot, or null if there is none
+   */
+  Snapshot take() {
+    return latest.getAndSet(null);
+  }
+}
@@ -1,7 +1,10 @@
 package edu.stockton.project.gui;
 
+import edu.stockton.project.DiskCache;
+import edu.stockton.project.TourRenderer;
 import edu.stockton.project.VoronoiStippler;
 import java.awt.image.BufferedImage;
+import java.util.List;
 import javafx.concurrent.Task;
 
 /**
@@ -12,10 +15,45 @@ public class ProcessingTask extends Task<ProcessingResult> {
 
   private final BufferedImage inputImage;
   private final ParameterConfig config;
+  private final int[] previousTour;
+  private final double[][] previousPoints;
+  private final StageCache cache;
+  private final SearchControl searchControl = new SearchControl();
+  private final PreviewChannel preview = new PreviewChannel();
+  private String stipplesDiskKey;
 
   public ProcessingTask(BufferedImage inputImage, ParameterConfig config) {
+    this(inputImage, config, null, null, new StageCache());
+  }
+
+  /**
+   * Creates a task that reuses the outputs of earlier runs where its configuration allows, and
+   * optionally repairs a tour from an earlier run for the new stipples instead of solving from
+   * scratch.
+   *
+   * @param inputImage Image to stipple
+   * @param config Parameter configuration
+   * @param previousTour Tour of an earlier run, or null to solve from scratch
+   * @param previousPoints Stipples the earlier tour visits, in the same coordinates as its run
+   * @param cache Stage outputs of earlier runs, which receives the outputs of this run
+   */
+  ProcessingTask(
+      BufferedImage inputImage,
+      ParameterConfig config,
+      int[] previousTour,
+      double[][] previousPoints,
+      StageCache cache) {
     this.inputImage = inputImage;
     this.config = config;
+    this.previousTour = previousTour;
+    this.previousPoints = previousPoints;
+    this.cache = cache;
+    searchControl.setPreview(preview);
+  }
+
+  /** Channel on which the task publishes stipples and tours while it runs. */
+  PreviewChannel getPreview() {
+    return preview;
   }
 
   @Override
@@ -24,76 +62,102 @@ public class ProcessingTask extends Task<ProcessingResult> {
 
     try {
       // Step 1: Stippling (0% - 50%)
-      updateMessage("Initializing stippling...");
-      updateProgress(0, 100);
-
-      VoronoiStippler stippler = new VoronoiStippler(inputImage, config.getStippleCount());
+      Object generatorsKey = StageCache.generatorsKey(inputImage, config);
+      result.stipplePoints = cache.generators.get(generatorsKey);
+      if (result.stipplePoints == null && cache.disk != null) {
+        result.stipplePoints = cache.disk.getPoints(stipplesDiskKey());
+        if (result.stipplePoints != null) {
+          cache.generators.put(generatorsKey, result.stipplePoints);
+        }
+      }
+      if (result.stipplePoints == null) {
+        result.stipplePoints = stipple();
+        if (result.stipplePoints == null) {
+          return null;
+        }
+        cache.generators.put(generatorsKey, result.stipplePoints);
+        if (cache.disk != null) {
+          cache.disk.putPoints(stipplesDiskKey(), result.stipplePoints);
+        }
+      } else {
+        updateMessage("Reusing stipples...");
+      }
 
-      updateMessage("Initializing stipple points...");
-      updateProgress(5, 100);
-      stippler.initializeGenerators(config.getStippleCount());
+      result.stippledImage = cache.stippleRender.get(generatorsKey);
+      if (result.stippledImage == null) {
+        updateMessage("Rendering stippled image...");
+        updateProgress(45, 100);
+        VoronoiStippler stippler = densityStippler();
+        stippler.setStipplePoints(result.stipplePoints);
+        result.stippledImage = stippler.renderStipples(1f);
+        cache.stippleRender.put(generatorsKey, result.stippledImage);
+      }
 
-      updateMessage("Running Lloyd's algorithm...");
-      updateProgress(10, 100);
+      updateProgress(50, 100);
 
-      // Run Lloyd's with progress updates
-      int numIterations = 50;
-      for (int i = 0; i < numIterations; i++) {
+      // Step 2: TSP Solving (50% - 95%), on the unscaled stipples
+      Object tourKey = StageCache.tourKey(generatorsKey, config, tourOrigin());
+      // Repaired and resumed tours depend on state that does not outlive the session
+      boolean fresh = previousTour == null && !config.isResumeFromCheckpoint();
+      String tourDiskKey =
+          cache.disk != null && fresh
+              ? DiskCache.tourKey(stipplesDiskKey(), config.solverKey())
+              : null;
+      if (!config.isResumeFromCheckpoint()) {
+        result.tspTour = cache.tour.get(tourKey);
+        if (result.tspTour == null && tourDiskKey != null) {
+          result.tspTour = cache.disk.getTour(tourDiskKey);
+          if (result.tspTour != null) {
+            cache.tour.put(tourKey, result.tspTour);
+          }
+        }
+      }
+      if (result.tspTour == null) {
+        result.tspTour = solve(result.stipplePoints);
         if (isCancelled()) {
           return null;
         }
-
-        stippler.iterateLloydSingleIteration();
-
-        // Progress from 10% to 45%
-        double progress = 10 + (35.0 * i / numIterations);
-        updateProgress(progress, 100);
-        updateMessage(String.format("Lloyd's algorithm: iteration %d/%d", i + 1, numIterations));
+        cache.tour.put(tourKey, result.tspTour);
+        if (tourDiskKey != null) {
+          cache.disk.putTour(tourDiskKey, result.tspTour);
+        }
+      } else {
+        updateMessage("Reusing tour...");
       }
 
-      updateMessage("Rendering stippled image...");
-      updateProgress(45, 100);
-      result.stippledImage = stippler.renderStipples(1f);
-      result.stipplePoints = stippler.getStipplePointsArray();
-
-      updateProgress(50, 100);
-
       // Scale points if scale factor > 1.0
       double scaleFactor = config.getScaleFactor();
-      double[][] scaledPoints = result.stipplePoints;
-
+      result.tourPoints = result.stipplePoints;
+      result.strokeWidth = config.getStrokeWidth();
       if (scaleFactor > 1.0) {
         updateMessage("Scaling coordinates...");
-        scaledPoints = scalePoints(result.stipplePoints, scaleFactor);
+        result.tourPoints = scalePoints(result.stipplePoints, scaleFactor);
       }
 
-      // Step 2: TSP Solving (50% - 100%)
-      updateMessage("Solving TSP...");
-      updateProgress(55, 100);
-
-      result.tspTour =
-          TSPRunner.generateTour(
-              scaledPoints,
-              config,
-              (current, total, message) -> {
-                if (isCancelled()) {
-                  return;
-                }
-                // Progress from 55% to 95%
-                double progress = 55 + (40.0 * current / total);
-                updateProgress(progress, 100);
-                updateMessage("TSP: " + message);
-              });
-
-      updateMessage("Drawing TSP art...");
-      updateProgress(95, 100);
-
-      // Scale dimensions for output
-      int outputWidth = (int) (inputImage.getWidth() * scaleFactor);
-      int outputHeight = (int) (inputImage.getHeight() * scaleFactor);
-      int[] dimensions = new int[] {outputWidth, outputHeight};
-
-      result.tspArtImage = TSPRunner.drawTourToImage(result.tspTour, dimensions);
+      // Step 3: Drawing (95% - 100%)
+      Object tourRenderKey = StageCache.tourRenderKey(tourKey, config);
+      result.tspArtImage = cache.tourRender.get(tourRenderKey);
+      if (result.tspArtImage == null) {
+        updateMessage("Drawing TSP art...");
+        updateProgress(95, 100);
+
+        // Scale dimensions for output
+        int outputWidth = (int) (inputImage.getWidth() * scaleFactor);
+        int outputHeight = (int) (inputImage.getHeight() * scaleFactor);
+
+        result.tspArtImage =
+            TourRenderer.render(
+                result.tourPoints,
+                result.tspTour,
+                outputWidth,
+                outputHeight,
+                config.getStrokeWidth());
+        cache.tourRender.put(tourRenderKey, result.tspArtImage);
+      }
+
+      // Build the display pyramids here rather than on the FX thread
+      TiledImageView.prepare(result.stippledImage);
+      TiledImageView.prepare(result.tspArtImage);
 
       updateMessage("Complete!");
       updateProgress(100, 100);
@@ -106,6 +170,112 @@ public class ProcessingTask extends Task<ProcessingResult> {
     }
   }
 
+  /** Returns the key of the stipples in the disk cache, hashing the input image on first use. */
+  private String stipplesDiskKey() {
+    if (stipplesDiskKey == null) {
+      stipplesDiskKey =
+          DiskCache.stipplesKey(DiskCache.imageHash(inputImage), config.getStippleCount());
+    }
+    return stipplesDiskKey;
+  }
+
+  /**
+   * Describes where the search for the tour starts: from scratch, from the earlier tour it repairs,
+   * or from the checkpoint it resumes.
+   */
+  private Object tourOrigin() {
+    if (previousTour != null) {
+      return List.of("repaired", previousTour);
+    } else if (config.isResumeFromCheckpoint()) {
+      return List.of("resumed", config.getCheckpointFile());
+    }
+    return "solved";
+  }
+
+  /** Returns a stippler that holds the density function of the input image. */
+  private VoronoiStippler densityStippler() {
+    Object densityKey = StageCache.densityKey(inputImage);
+    VoronoiStippler stippler = cache.density.get(densityKey);
+    if (stippler == null) {
+      updateMessage("Initializing stippling...");
+      stippler = new VoronoiStippler(inputImage, config.getStippleCount());
+      cache.density.put(densityKey, stippler);
+    }
+    return new VoronoiStippler(stippler, config.getStippleCount());
+  }
+
+  /**
+   * Places the stipples with Lloyd's algorithm.
+   *
+   * @return The stipples, or null if the task was cancelled
+   */
+  private double[][] stipple() {
+    updateProgress(0, 100);
+    VoronoiStippler stippler = densityStippler();
+
+    updateMessage("Initializing stipple points...");
+    updateProgress(5, 100);
+    stippler.initializeGenerators(config.getStippleCount());
+
+    updateMessage("Running Lloyd's algorithm...");
+    updateProgress(10, 100);
+
+    // Run Lloyd's with progress updates
+    int numIterations = 50;
+    for (int i = 0; i < numIterations; i++) {
+      if (isCancelled()) {
+        return null;
+      }
+
+      stippler.iterateLloydSingleIteration();
+      if (preview.isDue()) {
+        preview.publishStipples(
+            stippler.getStipplePointsArray(), inputImage.getWidth(), inputImage.getHeight());
+      }
+
+      // Progress from 10% to 45%
+      double progress = 10 + (35.0 * i / numIterations);
+      updateProgress(progress, 100);
+      updateMessage(String.format("Lloyd's algorithm: iteration %d/%d", i + 1, numIterations));
+    }
+
+    return stippler.getStipplePointsArray();
+  }
+
+  /** Solves, repairs or resumes the tour over the stipples. */
+  private int[] solve(double[][] points) {
+    preview.setTourPoints(points, inputImage.getWidth(), inputImage.getHeight());
+    updateMessage("Solving TSP...");
+    updateProgress(55, 100);
+
+    TSPRunner.ProgressCallback callback =
+        (current, total, message) -> {
+          if (isCancelled()) {
+            return;
+          }
+          // Progress from 55% to 95%
+          double progress = 55 + (40.0 * current / total);
+          updateProgress(progress, 100);
+          updateMessage("TSP: " + message);
+        };
+
+    if (previousTour != null) {
+      return TSPRunner.repairTour(
+          previousTour, previousPoints, points, config, callback, searchControl);
+    } else if (config.isResumeFromCheckpoint()) {
+      return TSPRunner.resumeTour(points, config, callback, searchControl);
+    } else {
+      return TSPRunner.generateTour(points, config, callback, searchControl);
+    }
+  }
+
+  /** Stops a running TSP search at its next generation instead of letting it run to the end. */
+  @Override
+  protected void cancelled() {
+    super.cancelled();
+    searchControl.stop();
+  }
+
   /**
    * Scale coordinates for higher resolution output.
    *
@@ -134,5 +304,13 @@ class ProcessingResult {
   public BufferedImage stippledImage;
   public BufferedImage tspArtImage;
   public double[][] stipplePoints;
-  public double[][] tspTour;
+
+  /** Stipples in output coordinates, which are the stipple points scaled by the scale factor. */
+  public double[][] tourPoints;
+
+  /** Order in which the tour visits the stipples, as indices into stipplePoints and tourPoints. */
+  public int[] tspTour;
+
+  /** Line width the tour was drawn with, in output pixels. */
+  public double strokeWidth;
 }
@@ -0,0 +1,300 @@
+package edu.stockton.project.gui;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Predicts the peak heap use of a stippling and TSP job from its configuration and image size, so
+ * that jobs that would run out of memory can be rejected or scaled down before they start. The
+ * estimate counts the large arrays of each phase and takes the largest phase as the peak, on top
+ * of what stays alive across phases.
+ */
+public final class ResourceEstimator {
+
+  /** Allowance for garbage that the collector has not yet reclaimed and for JVM overhead. */
+  private static final double SAFETY_FACTOR = 1.3;
+
+  /** Smallest population that {@link #fitToMemory} reduces to. */
+  private static final int MIN_POPULATION = 10;
+
+  /** Smallest stipple count that {@link #fitToMemory} reduces to. */
+  private static final int MIN_STIPPLES = 1000;
+
+  // As in PngEncoder
+  private static final long PNG_BLOCK_BYTES = 256 * 1024;
+  private static final long PNG_WINDOW = 32 * 1024;
+
+  private static final long ARRAY_HEADER = 16;
+  private static final long OBJECT_HEADER = 16;
+  private static final long REFERENCE = 8;
+
+  /* Private constructor to prevent instantiation. */
+  private ResourceEstimator() {}
+
+  /** Estimated heap use of a job, split by component. */
+  public static final class Estimate {
+    private final Map<String, Long> components;
+    private final long peakBytes;
+
+    private Estimate(Map<String, Long> components, long peakBytes) {
+      this.components = Collections.unmodifiableMap(components);
+      this.peakBytes = peakBytes;
+    }
+
+    /**
+     * Gets the estimated peak heap use, without safety margin.
+     *
+     * @return Peak heap use in bytes
+     */
+    public long getPeakBytes() {
+      return peakBytes;
+    }
+
+    /**
+     * Gets the heap that should be free before the job starts, including a margin for uncollected
+     * garbage.
+     *
+     * @return Required free heap in bytes
+     */
+    public long getRequiredBytes() {
+      return (long) (peakBytes * SAFETY_FACTOR);
+    }
+
+    /**
+     * Checks whether the job fits into the given amount of free heap.
+     *
+     * @param availableBytes Free heap in bytes
+     * @return true if the job is expected to complete without running out of memory
+     */
+    public boolean fits(long availableBytes) {
+      return getRequiredBytes() <= availableBytes;
+    }
+
+    /**
+     * Gets the size of the largest structures of the job.
+     *
+     * @return Bytes per component, in the order the job allocates them
+     */
+    public Map<String, Long> getComponents() {
+      return components;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb =
+          new StringBuilder(String.format("Estimated peak heap %s", formatBytes(peakBytes)));
+      for (Map.Entry<String, Long> component : components.entrySet()) {
+        sb.append(
+            String.format("%n  %-22s %s", component.getKey(), formatBytes(component.getValue())));
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Estimates the peak heap use of a job.
+   *
+   * @param config Parameter configuration of the job
+   * @param imageWidth Width of the input image in pixels
+   * @param imageHeight Height of the input image in pixels
+   * @return The estimate
+   */
+  public static Estimate estimate(ParameterConfig config, int imageWidth, int imageHeight) {
+    long pixels = (long) imageWidth * imageHeight;
+    long n = config.getStippleCount();
+    double scale = Math.max(1.0, config.getScaleFactor());
+    long outputPixels = (long) (pixels * scale * scale);
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    Map<String, Long> components = new LinkedHashMap<>();
+
+    // Alive for the whole job: the input is decoded as 1-byte indexed gray, and its display
+    // pyramid holds it once more as premultiplied ARGB; the stage cache keeps the density map
+    long inputImage = pixels;
+    long inputPyramid = pixels * 4 + pyramidBytes(imageWidth, imageHeight);
+    long densityMap = imageHeight * (ARRAY_HEADER + REFERENCE) + pixels * 4;
+    components.put("Input image", inputImage);
+    components.put("Input image pyramid", inputPyramid);
+    components.put("Density map", densityMap);
+
+    // The stage cache and the window keep the results of the previous run, and the pyramids
+    // built for their display, until this run replaces them
+    long stippledImage = pixels * 4 + pyramidBytes(imageWidth, imageHeight);
+    long tspArtImage =
+        outputPixels * 4
+            + pyramidBytes((long) (imageWidth * scale), (long) (imageHeight * scale));
+    long points = 3 * 2 * (ARRAY_HEADER + n * 8);
+    long results = stippledImage + tspArtImage + points + tourBytes(n);
+    components.put("Previous results", results);
+    long alive = inputImage + inputPyramid + densityMap + results;
+
+    // Stippling: the label map is int[h][w]
+    long labelMap = densityMap;
+    long generators = 2 * n * (OBJECT_HEADER + 16 + REFERENCE);
+    components.put("Voronoi label map", labelMap);
+    components.put("Stipple generators", generators);
+    long stippling = labelMap + generators;
+
+    // Kept from stippling through rendering, with its pyramid
+    components.put("Stippled image", stippledImage);
+    components.put("Stipple coordinates", points);
+
+    long solver = solverBytes(config, n, threads);
+    components.put("TSP solver", solver);
+
+    // The renderer draws straight into an image of the output size and bins the segments by band,
+    // and the image gets its pyramid before it is shown
+    long render = tspArtImage + 2 * (ARRAY_HEADER + n * 4);
+    components.put("TSP art rendering", render);
+
+    // Saving as PNG compresses a few blocks of rows per core at once
+    long encoder = pngBytes((long) (imageWidth * scale), threads);
+    components.put("PNG encoder", encoder);
+
+    long peak =
+        alive
+            + Math.max(
+                stippling,
+                stippledImage
+                    + points
+                    + Math.max(solver, Math.max(render, tspArtImage + encoder) + tourBytes(n)));
+    return new Estimate(components, peak);
+  }
+
+  /**
+   * Returns a copy of the configuration scaled down until the job fits into the given heap. The
+   * population is halved first, down to {@value #MIN_POPULATION}, since it affects the art least;
+   * after that the stipple count is reduced, down to {@value #MIN_STIPPLES}.
+   *
+   * @param config Parameter configuration of the job
+   * @param imageWidth Width of the input image in pixels
+   * @param imageHeight Height of the input image in pixels
+   * @param availableBytes Free heap in bytes
+   * @return The configuration itself if it fits, a scaled-down copy, or null if even the smallest
+   *     job does not fit
+   */
+  public static ParameterConfig fitToMemory(
+      ParameterConfig config, int imageWidth, int imageHeight, long availableBytes) {
+    if (estimate(config, imageWidth, imageHeight).fits(availableBytes)) {
+      return config;
+    }
+
+    ParameterConfig fitted = new ParameterConfig(config);
+    while (!estimate(fitted, imageWidth, imageHeight).fits(availableBytes)) {
+      if (fitted.getPopulationSize() > MIN_POPULATION) {
+        fitted.setPopulationSize(Math.max(MIN_POPULATION, fitted.getPopulationSize() / 2));
+        fitted.setEliteCount(Math.min(fitted.getEliteCount(), fitted.getPopulationSize() - 1));
+      } else if (fitted.getStippleCount() > MIN_STIPPLES) {
+        fitted.setStippleCount(Math.max(MIN_STIPPLES, fitted.getStippleCount() * 3 / 4));
+      } else {
+        return null;
+      }
+    }
+    return fitted;
+  }
+
+  /**
+   * Gets the heap that can still be allocated, counting memory the JVM has not yet claimed from the
+   * operating system up to its maximum heap size.
+   *
+   * @return Free heap in bytes
+   */
+  public static long availableHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+  }
+
+  /** Heap used by the TSP solve of n stipples. */
+  private static long solverBytes(ParameterConfig config, long n, int threads) {
+    long problem = 2 * (ARRAY_HEADER + n * 8);
+    long bytes = problem;
+
+    if (config.isTiledSolving() && n > config.getMaxTileSize()) {
+      // Tiles run one per thread; stitching adds the tile tours and a 2-opt pass
+      long tile = Math.min(n, config.getMaxTileSize());
+      long concurrentTiles = Math.min(threads, (n + tile - 1) / tile);
+      bytes += concurrentTiles * (2 * (ARRAY_HEADER + tile * 8) + searchBytes(config, tile, 1));
+      bytes += tourBytes(n) + neighborBytes(n, 8) + 3 * n * 4;
+    } else {
+      bytes += searchBytes(config, n, threads);
+    }
+
+    if (config.getTargetGapPercent() > 0) {
+      // Held-Karp: 10-NN lists, their symmetric closure and the per-node work arrays
+      bytes += neighborBytes(n, 10) + n * 20 * 4 + n * (8 + 4 + 1 + 4 + 8 + 4 + 8 + 8);
+    }
+    if (config.getWindowRounds() > 0) {
+      bytes += 2 * tourBytes(n);
+    }
+    return bytes;
+  }
+
+  /** Heap used by the search itself on an instance of n stipples. */
+  private static long searchBytes(ParameterConfig config, long n, int threads) {
+    // A generational EA holds its population and the offspring that replace it, while a
+    // steady-state EA breeds into two spare tours
+    long population =
+        config.isSteadyState()
+            ? (config.getPopulationSize() + 2L) * tourBytes(n)
+            : 2L * config.getPopulationSize() * tourBytes(n);
+    if (config.getParameterMode() == ParameterConfig.ParameterMode.PORTFOLIO) {
+      // Worst case: every worker runs the EA at once
+      return threads * population + neighborBytes(n, 8) + threads * 2 * tourBytes(n);
+    }
+    return population;
+  }
+
+  /**
+   * Heap of the levels of a display pyramid below level 0, which are about a third of the image,
+   * and of the tiles copied out of levels wider than a texture, of which the pyramid keeps a
+   * bounded number.
+   */
+  private static long pyramidBytes(long width, long height) {
+    long levels = width * height * 4 / 3;
+    long copied = 0;
+    for (long w = width, h = height;
+        w > ImagePyramid.MAX_TILE_WIDTH;
+        w = (w + 1) / 2, h = (h + 1) / 2) {
+      copied += w * h * 4;
+    }
+    long cached =
+        (long) ImagePyramid.CACHED_TILES * ImagePyramid.MAX_TILE_WIDTH * ImagePyramid.TILE_HEIGHT;
+    return levels + Math.min(copied, cached * 4);
+  }
+
+  /**
+   * Heap of the PNG encoder for RGB rows of the given width: each block in flight holds its
+   * filtered rows, the rows that fill the window before it, its compressed output and per-row
+   * scratch arrays.
+   */
+  private static long pngBytes(long width, int threads) {
+    long rowBytes = 3 * width;
+    long block = Math.max(PNG_BLOCK_BYTES, rowBytes + 1) + PNG_WINDOW;
+    return 2L * threads * (2 * block + 8 * rowBytes + 4 * width);
+  }
+
+  /** Size of one tour as a Permutation object. */
+  private static long tourBytes(long n) {
+    return OBJECT_HEADER + ARRAY_HEADER + align(n * 4);
+  }
+
+  /** Size of k-nearest-neighbour lists as int[n][k]. */
+  private static long neighborBytes(long n, int k) {
+    return ARRAY_HEADER + n * (REFERENCE + ARRAY_HEADER + align(k * 4L));
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  static String formatBytes(long bytes) {
+    if (bytes >= 1L << 30) {
+      return String.format("%.2f GB", bytes / (double) (1L << 30));
+    }
+    if (bytes >= 1L << 20) {
+      return String.format("%.1f MB", bytes / (double) (1L << 20));
+    }
+    return String.format("%.1f KB", bytes / 1024.0);
+  }
+}
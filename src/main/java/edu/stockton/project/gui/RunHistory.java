@@ -0,0 +1,365 @@
+package edu.stockton.project.gui;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Append-only log of finished EA runs. Every run is stored together with statistics about the
+ * stipple instance it was run on, so that the best-known parameters for a similar instance can be
+ * reused instead of repeating a grid search.
+ */
+public class RunHistory {
+
+  private static final String HEADER =
+      "# stipples\taspect\tclustering\tmutation\tcrossover\tcrossoverRate\tmutationRate"
+          + "\tpopulation\telite\tgenerations\tlength\tnormalizedLength\tmillis";
+
+  /** Maximum feature distance for two instances to be considered similar. */
+  private static final double MAX_SIMILARITY_DISTANCE = 0.5;
+
+  /** Shared by all instances, since parallel solvers may log to the same file. */
+  private static final Object LOCK = new Object();
+
+  private final Path file;
+
+  /**
+   * Creates a run history backed by the given file. The file is created on the first append.
+   *
+   * @param file Location of the log file
+   */
+  public RunHistory(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the run history in the default location, which is {@code ~/.tsp-art/run-history.tsv}
+   * unless overridden by the {@code tspart.history} system property.
+   *
+   * @return The default run history
+   */
+  public static RunHistory getDefault() {
+    String override = System.getProperty("tspart.history");
+    if (override != null) {
+      return new RunHistory(Paths.get(override));
+    }
+    return new RunHistory(
+        Paths.get(System.getProperty("user.home"), ".tsp-art", "run-history.tsv"));
+  }
+
+  /**
+   * Appends a finished run to the log. Failures are reported but never abort the calling run.
+   *
+   * @param record The run to store
+   */
+  public void append(Record record) {
+    synchronized (LOCK) {
+      appendLine(record);
+    }
+  }
+
+  private void appendLine(Record record) {
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      boolean isNew = !Files.exists(file);
+      try (BufferedWriter writer =
+          Files.newBufferedWriter(
+              file,
+              StandardCharsets.UTF_8,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND)) {
+        if (isNew) {
+          writer.write(HEADER);
+          writer.newLine();
+        }
+        writer.write(record.toLine());
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      System.err.println("Could not write run history: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Reads every run in the log. Malformed lines are skipped.
+   *
+   * @return All stored runs, oldest first
+   */
+  public List<Record> readAll() {
+    List<Record> records = new ArrayList<>();
+    List<String> lines;
+
+    synchronized (LOCK) {
+      if (!Files.exists(file)) {
+        return records;
+      }
+      try {
+        lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        System.err.println("Could not read run history: " + e.getMessage());
+        return records;
+      }
+    }
+
+    for (String line : lines) {
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+      Record record = Record.fromLine(line);
+      if (record != null) {
+        records.add(record);
+      }
+    }
+
+    return records;
+  }
+
+  /**
+   * Finds the best-known run for instances similar to the given one. Runs are compared by their
+   * normalized tour length, so instances of slightly different size and extent are comparable.
+   * Longer runs reach shorter tours with almost any parameters, so only runs of about the same
+   * effort are compared: runs are bucketed by powers of two of their generations, or of their wall
+   * time when the new run has a time budget, and only the bucket nearest to the budget of the new
+   * run is searched.
+   *
+   * @param features Statistics of the instance about to be solved
+   * @param maxGenerations Generation limit of the new run
+   * @param timeBudgetSeconds Time budget of the new run, or 0 if it is limited by generations
+   * @return The best similar run, or null if no similar instance has been solved before
+   */
+  public Record findBest(InstanceFeatures features, int maxGenerations, double timeBudgetSeconds) {
+    boolean timed = timeBudgetSeconds > 0;
+    int target = effortBucket(timed ? timeBudgetSeconds * 1000 : maxGenerations);
+
+    Record best = null;
+    int bestBucket = 0;
+    for (Record record : readAll()) {
+      // Adaptive runs have no fixed rates to reuse
+      if (Double.isNaN(record.crossoverRate) || Double.isNaN(record.mutationRate)) {
+        continue;
+      }
+      if (features.distanceTo(record.features) > MAX_SIMILARITY_DISTANCE) {
+        continue;
+      }
+      int bucket = effortBucket(timed ? record.wallTimeMillis : record.generations);
+      if (best == null
+          || Math.abs(bucket - target) < Math.abs(bestBucket - target)
+          || (bucket == bestBucket && record.normalizedLength < best.normalizedLength)) {
+        best = record;
+        bestBucket = bucket;
+      }
+    }
+    return best;
+  }
+
+  /** Rounds the base-2 logarithm of an amount of effort, such as generations or milliseconds. */
+  private static int effortBucket(double effort) {
+    return (int) Math.round(Math.log(Math.max(1, effort)) / Math.log(2));
+  }
+
+  /** Point-distribution statistics used to decide whether two stipple instances are similar. */
+  public static class InstanceFeatures {
+    public final int stippleCount;
+    public final double aspectRatio;
+    public final double clustering;
+    private final double area;
+
+    InstanceFeatures(int stippleCount, double aspectRatio, double clustering, double area) {
+      this.stippleCount = stippleCount;
+      this.aspectRatio = aspectRatio;
+      this.clustering = clustering;
+      this.area = area;
+    }
+
+    /**
+     * Computes the statistics of a point set in linear time. Clustering is the coefficient of
+     * variation of point counts over a uniform grid with about four points per cell, so it is 0 for
+     * evenly spread stipples and grows as the stipples concentrate in dark regions.
+     *
+     * @param xPoints Array of x-coords
+     * @param yPoints Array of y-coords
+     * @return The instance features
+     */
+    public static InstanceFeatures of(double[] xPoints, double[] yPoints) {
+      int n = xPoints.length;
+      double minX = Double.MAX_VALUE;
+      double minY = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE;
+      double maxY = -Double.MAX_VALUE;
+      for (int i = 0; i < n; i++) {
+        minX = Math.min(minX, xPoints[i]);
+        maxX = Math.max(maxX, xPoints[i]);
+        minY = Math.min(minY, yPoints[i]);
+        maxY = Math.max(maxY, yPoints[i]);
+      }
+      double width = Math.max(maxX - minX, 1.0);
+      double height = Math.max(maxY - minY, 1.0);
+
+      // Count points per grid cell
+      int cellsPerSide = Math.max(1, (int) Math.sqrt(n / 4.0));
+      int[] counts = new int[cellsPerSide * cellsPerSide];
+      for (int i = 0; i < n; i++) {
+        int cx = Math.min(cellsPerSide - 1, (int) ((xPoints[i] - minX) / width * cellsPerSide));
+        int cy = Math.min(cellsPerSide - 1, (int) ((yPoints[i] - minY) / height * cellsPerSide));
+        counts[cy * cellsPerSide + cx]++;
+      }
+
+      double mean = (double) n / counts.length;
+      double variance = 0;
+      for (int count : counts) {
+        variance += (count - mean) * (count - mean);
+      }
+      variance /= counts.length;
+      double clustering = mean > 0 ? Math.sqrt(variance) / mean : 0;
+
+      return new InstanceFeatures(n, width / height, clustering, width * height);
+    }
+
+    /**
+     * Normalizes a tour length by the expected length of a random uniform instance of the same size
+     * and extent, which grows with sqrt(n * area).
+     *
+     * @param tourLength The tour length to normalize
+     * @return The normalized tour length
+     */
+    public double normalize(double tourLength) {
+      return tourLength / Math.sqrt(Math.max(1, stippleCount) * area);
+    }
+
+    /**
+     * Distance between two instances in feature space. Sizes and aspect ratios are compared on a
+     * log scale, so doubling the stipple count is as far as halving it.
+     *
+     * @param other The instance to compare against
+     * @return A non-negative distance, 0 for identical features
+     */
+    public double distanceTo(InstanceFeatures other) {
+      return Math.abs(Math.log((double) stippleCount / other.stippleCount)) * 2
+          + Math.abs(Math.log(aspectRatio / other.aspectRatio))
+          + Math.abs(clustering - other.clustering);
+    }
+  }
+
+  /** A single finished EA run. */
+  public static class Record {
+    public final InstanceFeatures features;
+    public final String mutationOperator;
+    public final String crossoverOperator;
+    public final double crossoverRate;
+    public final double mutationRate;
+    public final int populationSize;
+    public final int eliteCount;
+    public final int generations;
+    public final double tourLength;
+    public final double normalizedLength;
+    public final long wallTimeMillis;
+
+    public Record(
+        InstanceFeatures features,
+        String mutationOperator,
+        String crossoverOperator,
+        double crossoverRate,
+        double mutationRate,
+        int populationSize,
+        int eliteCount,
+        int generations,
+        double tourLength,
+        long wallTimeMillis) {
+      this(
+          features,
+          mutationOperator,
+          crossoverOperator,
+          crossoverRate,
+          mutationRate,
+          populationSize,
+          eliteCount,
+          generations,
+          tourLength,
+          features.normalize(tourLength),
+          wallTimeMillis);
+    }
+
+    private Record(
+        InstanceFeatures features,
+        String mutationOperator,
+        String crossoverOperator,
+        double crossoverRate,
+        double mutationRate,
+        int populationSize,
+        int eliteCount,
+        int generations,
+        double tourLength,
+        double normalizedLength,
+        long wallTimeMillis) {
+      this.features = features;
+      this.mutationOperator = mutationOperator;
+      this.crossoverOperator = crossoverOperator;
+      this.crossoverRate = crossoverRate;
+      this.mutationRate = mutationRate;
+      this.populationSize = populationSize;
+      this.eliteCount = eliteCount;
+      this.generations = generations;
+      this.tourLength = tourLength;
+      this.normalizedLength = normalizedLength;
+      this.wallTimeMillis = wallTimeMillis;
+    }
+
+    private String toLine() {
+      return String.format(
+          Locale.ROOT,
+          "%d\t%.6f\t%.6f\t%s\t%s\t%.4f\t%.4f\t%d\t%d\t%d\t%.4f\t%.8f\t%d",
+          features.stippleCount,
+          features.aspectRatio,
+          features.clustering,
+          mutationOperator,
+          crossoverOperator,
+          crossoverRate,
+          mutationRate,
+          populationSize,
+          eliteCount,
+          generations,
+          tourLength,
+          normalizedLength,
+          wallTimeMillis);
+    }
+
+    private static Record fromLine(String line) {
+      String[] fields = line.split("\t");
+      if (fields.length != 13) {
+        return null;
+      }
+
+      try {
+        InstanceFeatures features =
+            new InstanceFeatures(
+                Integer.parseInt(fields[0]),
+                Double.parseDouble(fields[1]),
+                Double.parseDouble(fields[2]),
+                0);
+        return new Record(
+            features,
+            fields[3],
+            fields[4],
+            Double.parseDouble(fields[5]),
+            Double.parseDouble(fields[6]),
+            Integer.parseInt(fields[7]),
+            Integer.parseInt(fields[8]),
+            Integer.parseInt(fields[9]),
+            Double.parseDouble(fields[10]),
+            Double.parseDouble(fields[11]),
+            Long.parseLong(fields[12]));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package edu.stockton.project.gui;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.ProgressTracker;
+
+/**
+ * Shared state of a running TSP search. Keeps the best tour found so far across every EA run of a
+ * search, so callers can take the current best at any moment, and stops all running EAs on request.
+ */
+public class SearchControl {
+
+  private final List<ProgressTracker<Permutation>> trackers = new CopyOnWriteArrayList<>();
+  private final List<SearchControl> children = new CopyOnWriteArrayList<>();
+  private volatile boolean stopped;
+
+  private Permutation bestPermutation;
+  private double bestCost = Double.MAX_VALUE;
+
+  private volatile double lowerBound;
+  private volatile double targetCost = -Double.MAX_VALUE;
+
+  private volatile PreviewChannel preview;
+
+  /**
+   * Registers the progress tracker of an EA that is about to run, so that {@link #stop()} can
+   * interrupt it. If the search has already been stopped, the tracker is stopped immediately.
+   *
+   * @param tracker The tracker of the EA
+   */
+  public void register(ProgressTracker<Permutation> tracker) {
+    trackers.add(tracker);
+    if (stopped) {
+      tracker.stop();
+    }
+  }
+
+  /**
+   * Removes the tracker of an EA that has finished.
+   *
+   * @param tracker The tracker of the EA
+   */
+  public void unregister(ProgressTracker<Permutation> tracker) {
+    trackers.remove(tracker);
+  }
+
+  /**
+   * Creates a control for a sub-search on a different instance, such as one tile of a larger
+   * instance. The child keeps its own best tour and lower bound but is stopped with this control.
+   *
+   * @return The child control
+   */
+  public SearchControl createChild() {
+    SearchControl child = new SearchControl();
+    children.add(child);
+    if (stopped) {
+      child.stop();
+    }
+    return child;
+  }
+
+  /** Stops every registered EA at its next generation and prevents further runs from starting. */
+  public void stop() {
+    stopped = true;
+    for (ProgressTracker<Permutation> tracker : trackers) {
+      tracker.stop();
+    }
+    for (SearchControl child : children) {
+      child.stop();
+    }
+  }
+
+  public boolean isStopped() {
+    return stopped;
+  }
+
+  /**
+   * Offers a tour as a candidate for the best tour so far. It is kept only if it is shorter.
+   *
+   * @param permutation The tour
+   * @param cost The length of the tour
+   */
+  public synchronized void offer(Permutation permutation, double cost) {
+    if (permutation != null && cost < bestCost) {
+      bestCost = cost;
+      bestPermutation = permutation.copy();
+
+      PreviewChannel channel = preview;
+      if (channel != null && channel.isDue()) {
+        channel.publishTour(permutation.toArray());
+      }
+    }
+  }
+
+  /**
+   * Sets where new best tours are published for display while the search runs.
+   *
+   * @param preview The preview channel (can be null)
+   */
+  void setPreview(PreviewChannel preview) {
+    this.preview = preview;
+  }
+
+  /**
+   * Gets a copy of the best tour found so far.
+   *
+   * @return The best tour, or null if no run has reported a tour yet
+   */
+  public synchronized Permutation getBestSoFar() {
+    return bestPermutation == null ? null : bestPermutation.copy();
+  }
+
+  public synchronized double getBestCost() {
+    return bestCost;
+  }
+
+  /**
+   * Sets a lower bound on the optimal tour length and the optimality gap at which the search may
+   * end. Once a tour within the gap is found, {@link #isTargetReached()} becomes true.
+   *
+   * @param lowerBound A lower bound on the optimal tour length
+   * @param targetGapPercent Acceptable gap above the bound in percent, or 0 to never stop early
+   */
+  public void setLowerBound(double lowerBound, double targetGapPercent) {
+    this.lowerBound = lowerBound;
+    this.targetCost =
+        targetGapPercent > 0 ? lowerBound * (1 + targetGapPercent / 100) : -Double.MAX_VALUE;
+  }
+
+  public double getLowerBound() {
+    return lowerBound;
+  }
+
+  /**
+   * Gets the optimality gap of a tour length relative to the lower bound.
+   *
+   * @param cost The tour length
+   * @return The gap in percent, or NaN if no lower bound is known
+   */
+  public double getGapPercent(double cost) {
+    return lowerBound > 0 ? (cost - lowerBound) / lowerBound * 100 : Double.NaN;
+  }
+
+  /**
+   * Checks whether the best tour so far is within the target optimality gap.
+   *
+   * @return true if the search can end because the tour is good enough
+   */
+  public synchronized boolean isTargetReached() {
+    return bestCost <= targetCost;
+  }
+}
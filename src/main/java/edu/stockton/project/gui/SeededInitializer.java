@@ -0,0 +1,52 @@
+package edu.stockton.project.gui;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.operators.Initializer;
+import org.cicirello.search.operators.MutationOperator;
+
+/**
+ * Initializes a population around a known tour. The first individual is an exact copy of the seed,
+ * every other individual is the seed perturbed by a few random mutations, which keeps the quality
+ * of the seed while restoring some diversity to the population.
+ */
+class SeededInitializer implements Initializer<Permutation> {
+
+  private final Permutation seed;
+  private final MutationOperator<Permutation> mutation;
+  private final int maxMutations;
+  private boolean seedReturned;
+
+  /**
+   * Creates an initializer around a seed tour.
+   *
+   * @param seed The tour to build the population around
+   * @param mutation The operator used to perturb copies of the seed
+   * @param maxMutations Maximum number of mutations applied to each copy
+   */
+  SeededInitializer(Permutation seed, MutationOperator<Permutation> mutation, int maxMutations) {
+    this.seed = seed.copy();
+    this.mutation = mutation;
+    this.maxMutations = maxMutations;
+  }
+
+  @Override
+  public Permutation createCandidateSolution() {
+    Permutation candidate = seed.copy();
+    if (!seedReturned) {
+      seedReturned = true;
+      return candidate;
+    }
+
+    int mutations = 1 + ThreadLocalRandom.current().nextInt(Math.max(1, maxMutations));
+    for (int i = 0; i < mutations; i++) {
+      mutation.mutate(candidate);
+    }
+    return candidate;
+  }
+
+  @Override
+  public SeededInitializer split() {
+    return new SeededInitializer(seed, mutation.split(), maxMutations);
+  }
+}
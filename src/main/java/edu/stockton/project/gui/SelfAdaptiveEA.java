@@ -0,0 +1,330 @@
+package edu.stockton.project.gui;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.ProgressTracker;
+import org.cicirello.search.ReoptimizableMetaheuristic;
+import org.cicirello.search.SolutionCostPair;
+import org.cicirello.search.operators.CrossoverOperator;
+import org.cicirello.search.operators.Initializer;
+import org.cicirello.search.operators.MutationOperator;
+import org.cicirello.search.problems.OptimizationProblem;
+
+/**
+ * Generational EA whose individuals carry their own crossover and mutation rates. A child inherits
+ * the rates of its first parent, perturbed by a small Gaussian step, and is bred with them, so
+ * rates that produce short tours spread through the population along with those tours. Parents are
+ * picked in proportion to the inverse of their length, and the shortest tours are kept as an
+ * elite, as in the fixed-rate generational EA.
+ *
+ * <p>Unlike the library's adaptive EA, the rates can be read while the run goes on, so that the
+ * driver can report how they evolve.
+ */
+final class SelfAdaptiveEA implements ReoptimizableMetaheuristic<Permutation> {
+
+  private static final double MIN_CROSSOVER_RATE = 0.1;
+  private static final double MIN_MUTATION_RATE = 0.01;
+  private static final double MAX_RATE = 1.0;
+
+  /** Standard deviation of the Gaussian step applied to inherited rates. */
+  private static final double RATE_STEP = 0.05;
+
+  private final int populationSize;
+  private final MutationOperator<Permutation> mutation;
+  private final CrossoverOperator<Permutation> crossover;
+  private final Initializer<Permutation> initializer;
+  private final OptimizationProblem<Permutation> problem;
+  private final int eliteCount;
+  private ProgressTracker<Permutation> tracker;
+  private final SplittableRandom random = new SplittableRandom();
+
+  // The current generation and the one being bred, swapped every generation
+  private Permutation[] population;
+  private double[] cost;
+  private double[] crossoverRate;
+  private double[] mutationRate;
+  private Permutation[] next;
+  private double[] nextCost;
+  private double[] nextCrossoverRate;
+  private double[] nextMutationRate;
+
+  private Permutation spare;
+  private double[] cumulativeFitness;
+  private boolean[] elite;
+  private int[] buffer;
+  private int best;
+  private long totalRunLength;
+
+  /**
+   * Creates a self-adaptive EA.
+   *
+   * @param populationSize Number of members of the population
+   * @param mutation Mutation operator
+   * @param crossover Crossover operator
+   * @param initializer Creates the initial members
+   * @param problem The problem to minimize
+   * @param eliteCount Number of shortest tours copied unchanged into the next generation
+   * @param tracker Tracker that receives every new best tour
+   */
+  SelfAdaptiveEA(
+      int populationSize,
+      MutationOperator<Permutation> mutation,
+      CrossoverOperator<Permutation> crossover,
+      Initializer<Permutation> initializer,
+      OptimizationProblem<Permutation> problem,
+      int eliteCount,
+      ProgressTracker<Permutation> tracker) {
+    if (populationSize < 2) {
+      throw new IllegalArgumentException("populationSize must be at least 2");
+    }
+    if (eliteCount < 0 || eliteCount >= populationSize) {
+      throw new IllegalArgumentException("eliteCount must be at least 0 and below populationSize");
+    }
+    this.populationSize = populationSize;
+    this.mutation = mutation;
+    this.crossover = crossover;
+    this.initializer = initializer;
+    this.problem = problem;
+    this.eliteCount = eliteCount;
+    this.tracker = tracker;
+  }
+
+  @Override
+  public SolutionCostPair<Permutation> optimize(int generations) {
+    if (tracker.isStopped()) {
+      return null;
+    }
+    initialize();
+    return reoptimize(generations);
+  }
+
+  @Override
+  public SolutionCostPair<Permutation> reoptimize(int generations) {
+    if (tracker.isStopped()) {
+      return null;
+    }
+    if (population == null) {
+      initialize();
+    }
+
+    for (int g = 0; g < generations && !tracker.isStopped(); g++) {
+      breed();
+    }
+
+    totalRunLength += generations;
+    return new SolutionCostPair<>(population[best].copy(), cost[best], false);
+  }
+
+  /**
+   * Returns the mean crossover rate of the population.
+   *
+   * @return The mean rate, or NaN if the EA has not started yet
+   */
+  double getMeanCrossoverRate() {
+    return mean(crossoverRate);
+  }
+
+  /**
+   * Returns the mean mutation rate of the population.
+   *
+   * @return The mean rate, or NaN if the EA has not started yet
+   */
+  double getMeanMutationRate() {
+    return mean(mutationRate);
+  }
+
+  private static double mean(double[] rates) {
+    if (rates == null) {
+      return Double.NaN;
+    }
+    double sum = 0;
+    for (double rate : rates) {
+      sum += rate;
+    }
+    return sum / rates.length;
+  }
+
+  /** Creates the initial population with rates drawn uniformly from their ranges. */
+  private void initialize() {
+    population = new Permutation[populationSize];
+    cost = new double[populationSize];
+    crossoverRate = new double[populationSize];
+    mutationRate = new double[populationSize];
+    next = new Permutation[populationSize];
+    nextCost = new double[populationSize];
+    nextCrossoverRate = new double[populationSize];
+    nextMutationRate = new double[populationSize];
+    cumulativeFitness = new double[populationSize];
+    elite = new boolean[populationSize];
+
+    for (int i = 0; i < populationSize; i++) {
+      population[i] = initializer.createCandidateSolution();
+      cost[i] = problem.cost(population[i]);
+      crossoverRate[i] = random.nextDouble(MIN_CROSSOVER_RATE, MAX_RATE);
+      mutationRate[i] = random.nextDouble(MIN_MUTATION_RATE, MAX_RATE);
+      next[i] = population[i].copy();
+    }
+    spare = population[0].copy();
+    buffer = new int[population[0].length()];
+
+    best = 0;
+    for (int i = 1; i < populationSize; i++) {
+      if (cost[i] < cost[best]) {
+        best = i;
+      }
+    }
+    tracker.update(cost[best], population[best], false);
+  }
+
+  /** Replaces the population with the next generation. */
+  private void breed() {
+    markElite();
+    double total = 0;
+    for (int i = 0; i < populationSize; i++) {
+      total += 1 / cost[i];
+      cumulativeFitness[i] = total;
+    }
+
+    int filled = 0;
+    for (int i = 0; i < populationSize; i++) {
+      if (elite[i]) {
+        copy(i, filled++);
+      }
+    }
+    while (filled < populationSize) {
+      int first = select(total);
+      int second = select(total);
+      Permutation childA = next[filled];
+      Permutation childB = filled + 1 < populationSize ? next[filled + 1] : spare;
+      childA.set(population[first].toArray(buffer));
+      childB.set(population[second].toArray(buffer));
+
+      double crossoverA = perturb(crossoverRate[first], MIN_CROSSOVER_RATE);
+      double mutationA = perturb(mutationRate[first], MIN_MUTATION_RATE);
+      double crossoverB = perturb(crossoverRate[second], MIN_CROSSOVER_RATE);
+      double mutationB = perturb(mutationRate[second], MIN_MUTATION_RATE);
+
+      if (random.nextDouble() < crossoverA) {
+        crossover.cross(childA, childB);
+      }
+      if (random.nextDouble() < mutationA) {
+        mutation.mutate(childA);
+      }
+      nextCrossoverRate[filled] = crossoverA;
+      nextMutationRate[filled] = mutationA;
+      nextCost[filled] = problem.cost(childA);
+      filled++;
+
+      if (filled < populationSize) {
+        if (random.nextDouble() < mutationB) {
+          mutation.mutate(childB);
+        }
+        nextCrossoverRate[filled] = crossoverB;
+        nextMutationRate[filled] = mutationB;
+        nextCost[filled] = problem.cost(childB);
+        filled++;
+      }
+    }
+
+    swapGenerations();
+    best = 0;
+    for (int i = 1; i < populationSize; i++) {
+      if (cost[i] < cost[best]) {
+        best = i;
+      }
+    }
+    tracker.update(cost[best], population[best], false);
+  }
+
+  /** Marks the eliteCount shortest members of the population. */
+  private void markElite() {
+    Arrays.fill(elite, false);
+    for (int e = 0; e < eliteCount; e++) {
+      int shortest = -1;
+      for (int i = 0; i < populationSize; i++) {
+        if (!elite[i] && (shortest < 0 || cost[i] < cost[shortest])) {
+          shortest = i;
+        }
+      }
+      elite[shortest] = true;
+    }
+  }
+
+  /** Picks a member with probability proportional to the inverse of its length. */
+  private int select(double total) {
+    double target = random.nextDouble(total);
+    int low = 0;
+    int high = populationSize - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (cumulativeFitness[middle] <= target) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private double perturb(double rate, double min) {
+    return Math.max(min, Math.min(MAX_RATE, rate + RATE_STEP * random.nextGaussian()));
+  }
+
+  /** Copies a member of the population unchanged into the next generation. */
+  private void copy(int from, int to) {
+    next[to].set(population[from].toArray(buffer));
+    nextCost[to] = cost[from];
+    nextCrossoverRate[to] = crossoverRate[from];
+    nextMutationRate[to] = mutationRate[from];
+  }
+
+  private void swapGenerations() {
+    Permutation[] members = population;
+    population = next;
+    next = members;
+    double[] costs = cost;
+    cost = nextCost;
+    nextCost = costs;
+    double[] rates = crossoverRate;
+    crossoverRate = nextCrossoverRate;
+    nextCrossoverRate = rates;
+    rates = mutationRate;
+    mutationRate = nextMutationRate;
+    nextMutationRate = rates;
+  }
+
+  @Override
+  public ProgressTracker<Permutation> getProgressTracker() {
+    return tracker;
+  }
+
+  @Override
+  public void setProgressTracker(ProgressTracker<Permutation> tracker) {
+    if (tracker != null) {
+      this.tracker = tracker;
+    }
+  }
+
+  @Override
+  public OptimizationProblem<Permutation> getProblem() {
+    return problem;
+  }
+
+  @Override
+  public long getTotalRunLength() {
+    return totalRunLength;
+  }
+
+  @Override
+  public SelfAdaptiveEA split() {
+    return new SelfAdaptiveEA(
+        populationSize,
+        mutation.split(),
+        crossover.split(),
+        initializer.split(),
+        problem,
+        eliteCount,
+        tracker);
+  }
+}
@@ -0,0 +1,110 @@
+package edu.stockton.project.gui;
+
+import edu.stockton.project.DiskCache;
+import edu.stockton.project.VoronoiStippler;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outputs of the pipeline stages of the last run, each remembered together with the inputs it was
+ * computed from. The stages form a chain of dependencies:
+ *
+ * <pre>
+ * density -> generators -> stipple render
+ *                       -> tour -> tour render
+ * </pre>
+ *
+ * <p>The key of a stage contains the key of the stage it depends on and the configuration fields
+ * it reads itself, so a change reaches exactly the stages downstream of it. Changing the scale
+ * factor or the line width only draws the tour again, and changing the EA only solves again on the
+ * same stipples. Tours are solved on the unscaled stipples, as scaling does not change which order
+ * is shortest.
+ *
+ * <p>Stipples and tours that miss here are looked up in a {@link DiskCache}, if there is one, so
+ * they also survive the session. Only tours solved from scratch go to disk.
+ */
+final class StageCache {
+
+  /** Cache across sessions, or null. */
+  final DiskCache disk;
+
+  /** One memoized stage output. */
+  static final class Stage<T> {
+    private Object key;
+    private T value;
+
+    /**
+     * Returns the output for a key.
+     *
+     * @param key Inputs of the stage
+     * @return The output if it was computed from equal inputs, or null
+     */
+    synchronized T get(Object key) {
+      return Objects.equals(this.key, key) ? value : null;
+    }
+
+    /**
+     * Remembers an output in place of the previous one.
+     *
+     * @param key Inputs of the stage
+     * @param value Output computed from them
+     */
+    synchronized void put(Object key, T value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /** Stippler holding the density function of the input image. */
+  final Stage<VoronoiStippler> density = new Stage<>();
+
+  /** Stipples after Lloyd's relaxation. */
+  final Stage<double[][]> generators = new Stage<>();
+
+  final Stage<BufferedImage> stippleRender = new Stage<>();
+
+  /** Tour over the unscaled stipples. */
+  final Stage<int[]> tour = new Stage<>();
+
+  final Stage<BufferedImage> tourRender = new Stage<>();
+
+  /** Creates a cache that forgets everything with the session. */
+  StageCache() {
+    this(null);
+  }
+
+  /**
+   * Creates a cache backed by a cache on disk.
+   *
+   * @param disk Cache of stipples and tours across sessions, or null
+   */
+  StageCache(DiskCache disk) {
+    this.disk = disk;
+  }
+
+  static Object densityKey(BufferedImage image) {
+    return List.of(image);
+  }
+
+  static Object generatorsKey(BufferedImage image, ParameterConfig config) {
+    return List.of(densityKey(image), config.getStippleCount());
+  }
+
+  /**
+   * Builds the key of a tour.
+   *
+   * @param generatorsKey Key of the stipples the tour visits
+   * @param config Parameter configuration
+   * @param origin Where the search started, since a repaired or resumed tour is not what a fresh
+   *     solve with the same settings would give; compared with equals, so arrays by identity
+   * @return Key of the tour
+   */
+  static Object tourKey(Object generatorsKey, ParameterConfig config, Object origin) {
+    return List.of(generatorsKey, config.solverKey(), origin);
+  }
+
+  static Object tourRenderKey(Object tourKey, ParameterConfig config) {
+    return List.of(tourKey, config.getScaleFactor(), config.getStrokeWidth());
+  }
+}
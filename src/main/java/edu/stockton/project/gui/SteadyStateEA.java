@@ -0,0 +1,265 @@
+package edu.stockton.project.gui;
+
+import java.util.SplittableRandom;
+import org.cicirello.permutations.Permutation;
+import org.cicirello.search.ProgressTracker;
+import org.cicirello.search.ReoptimizableMetaheuristic;
+import org.cicirello.search.SolutionCostPair;
+import org.cicirello.search.operators.CrossoverOperator;
+import org.cicirello.search.operators.Initializer;
+import org.cicirello.search.operators.MutationOperator;
+import org.cicirello.search.problems.OptimizationProblem;
+
+/**
+ * Steady-state EA. Each step picks two parents by binary tournament, breeds two offspring, and
+ * lets each replace the worst member of the population if it is shorter. Offspring are bred in two
+ * spare permutations, and an accepted child swaps places with the member it replaces, which then
+ * becomes the spare. The step loop therefore allocates nothing, unlike a generational EA, which
+ * builds a whole new population every generation. Replacing only the worst member also keeps the
+ * best tours without an explicit elite.
+ *
+ * <p>For comparability with the generational EA, one generation is as many offspring as there are
+ * members in the population.
+ *
+ * <p>Unlike the other EAs, the population and the generator that picks parents can be saved with
+ * {@link #snapshot()} and put back with {@link #restore}, so a checkpointed run resumes where it
+ * stopped rather than from a population reseeded around the best tour.
+ */
+final class SteadyStateEA implements ReoptimizableMetaheuristic<Permutation> {
+
+  private final int populationSize;
+  private final MutationOperator<Permutation> mutation;
+  private final double mutationRate;
+  private final CrossoverOperator<Permutation> crossover;
+  private final double crossoverRate;
+  private final Initializer<Permutation> initializer;
+  private final OptimizationProblem<Permutation> problem;
+  private ProgressTracker<Permutation> tracker;
+  private SplittableRandom random = new SplittableRandom();
+
+  private Permutation[] population;
+  private double[] cost;
+  private Permutation[] spare;
+  private int[] buffer;
+  private int best;
+  private int worst;
+  private long totalRunLength;
+
+  /**
+   * Creates a steady-state EA.
+   *
+   * @param populationSize Number of members of the population
+   * @param mutation Mutation operator
+   * @param mutationRate Probability that an offspring is mutated
+   * @param crossover Crossover operator
+   * @param crossoverRate Probability that two parents are recombined rather than copied
+   * @param initializer Creates the initial members
+   * @param problem The problem to minimize
+   * @param tracker Tracker that receives every new best tour
+   */
+  SteadyStateEA(
+      int populationSize,
+      MutationOperator<Permutation> mutation,
+      double mutationRate,
+      CrossoverOperator<Permutation> crossover,
+      double crossoverRate,
+      Initializer<Permutation> initializer,
+      OptimizationProblem<Permutation> problem,
+      ProgressTracker<Permutation> tracker) {
+    if (populationSize < 2) {
+      throw new IllegalArgumentException("populationSize must be at least 2");
+    }
+    this.populationSize = populationSize;
+    this.mutation = mutation;
+    this.mutationRate = mutationRate;
+    this.crossover = crossover;
+    this.crossoverRate = crossoverRate;
+    this.initializer = initializer;
+    this.problem = problem;
+    this.tracker = tracker;
+  }
+
+  @Override
+  public SolutionCostPair<Permutation> optimize(int generations) {
+    if (tracker.isStopped()) {
+      return null;
+    }
+    initialize();
+    return reoptimize(generations);
+  }
+
+  @Override
+  public SolutionCostPair<Permutation> reoptimize(int generations) {
+    if (tracker.isStopped()) {
+      return null;
+    }
+    if (population == null) {
+      initialize();
+    }
+
+    long steps = (long) generations * ((populationSize + 1) / 2);
+
+    for (long step = 0; step < steps && !tracker.isStopped(); step++) {
+      Permutation first = spare[0];
+      Permutation second = spare[1];
+      copy(population[tournament()], first);
+      copy(population[tournament()], second);
+
+      if (random.nextDouble() < crossoverRate) {
+        crossover.cross(first, second);
+      }
+      if (random.nextDouble() < mutationRate) {
+        mutation.mutate(first);
+      }
+      if (random.nextDouble() < mutationRate) {
+        mutation.mutate(second);
+      }
+
+      replaceWorst(0, problem.cost(first));
+      replaceWorst(1, problem.cost(second));
+    }
+
+    totalRunLength += generations;
+    return new SolutionCostPair<>(population[best].copy(), cost[best], false);
+  }
+
+  /**
+   * Copies the population for a checkpoint. The generator is reseeded from itself so that the run
+   * carries on from the seed that is returned, which {@link #restore} can then reproduce.
+   *
+   * @return The population and seed, or null if the EA has not started yet
+   */
+  Checkpoint.Population snapshot() {
+    if (population == null) {
+      return null;
+    }
+    int[][] members = new int[populationSize][];
+    for (int i = 0; i < populationSize; i++) {
+      members[i] = population[i].toArray();
+    }
+    long seed = random.nextLong();
+    random = new SplittableRandom(seed);
+    return new Checkpoint.Population(members, seed);
+  }
+
+  /**
+   * Replaces the population with one saved by {@link #snapshot()}, so that the next call to {@link
+   * #reoptimize} continues that run.
+   *
+   * @param saved Population and seed from a checkpoint
+   * @return false, leaving the EA unchanged, if the saved population has a different size
+   */
+  boolean restore(Checkpoint.Population saved) {
+    if (saved.members.length != populationSize) {
+      return false;
+    }
+    population = new Permutation[populationSize];
+    cost = new double[populationSize];
+    for (int i = 0; i < populationSize; i++) {
+      population[i] = new Permutation(saved.members[i]);
+      cost[i] = problem.cost(population[i]);
+    }
+    random = new SplittableRandom(saved.seed);
+    evaluated();
+    return true;
+  }
+
+  /** Creates the initial population and the spare permutations. */
+  private void initialize() {
+    population = new Permutation[populationSize];
+    cost = new double[populationSize];
+    for (int i = 0; i < populationSize; i++) {
+      population[i] = initializer.createCandidateSolution();
+      cost[i] = problem.cost(population[i]);
+    }
+    evaluated();
+  }
+
+  /** Sets up the spares, best and worst after the population has been created and evaluated. */
+  private void evaluated() {
+    spare = new Permutation[] {population[0].copy(), population[0].copy()};
+    buffer = new int[population[0].length()];
+
+    best = 0;
+    for (int i = 1; i < populationSize; i++) {
+      if (cost[i] < cost[best]) {
+        best = i;
+      }
+    }
+    findWorst();
+    tracker.update(cost[best], population[best], false);
+  }
+
+  /** Puts a spare offspring into the population if it beats the worst member. */
+  private void replaceWorst(int spareIndex, double childCost) {
+    if (childCost >= cost[worst]) {
+      return;
+    }
+
+    Permutation replaced = population[worst];
+    population[worst] = spare[spareIndex];
+    cost[worst] = childCost;
+    spare[spareIndex] = replaced;
+
+    if (childCost < cost[best]) {
+      best = worst;
+      tracker.update(childCost, population[best], false);
+    }
+    findWorst();
+  }
+
+  private void findWorst() {
+    worst = 0;
+    for (int i = 1; i < populationSize; i++) {
+      if (cost[i] > cost[worst]) {
+        worst = i;
+      }
+    }
+  }
+
+  private int tournament() {
+    int a = random.nextInt(populationSize);
+    int b = random.nextInt(populationSize);
+    return cost[a] <= cost[b] ? a : b;
+  }
+
+  /** Copies a permutation into another without allocating. */
+  private void copy(Permutation from, Permutation to) {
+    to.set(from.toArray(buffer));
+  }
+
+  @Override
+  public ProgressTracker<Permutation> getProgressTracker() {
+    return tracker;
+  }
+
+  @Override
+  public void setProgressTracker(ProgressTracker<Permutation> tracker) {
+    if (tracker != null) {
+      this.tracker = tracker;
+    }
+  }
+
+  @Override
+  public OptimizationProblem<Permutation> getProblem() {
+    return problem;
+  }
+
+  @Override
+  public long getTotalRunLength() {
+    return totalRunLength;
+  }
+
+  @Override
+  public SteadyStateEA split() {
+    return new SteadyStateEA(
+        populationSize,
+        mutation.split(),
+        mutationRate,
+        crossover.split(),
+        crossoverRate,
+        initializer.split(),
+        problem,
+        tracker);
+  }
+}
@@ -1,20 +1,14 @@
 package edu.stockton.project.gui;
 
-import java.awt.Color;
-import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import org.cicirello.permutations.Permutation;
-import org.cicirello.search.SolutionCostPair;
 import org.cicirello.search.evo.FitnessProportionalSelection;
 import org.cicirello.search.evo.GenerationalEvolutionaryAlgorithm;
 import org.cicirello.search.evo.InverseCostFitnessFunction;
 import org.cicirello.search.operators.permutations.*;
 import org.cicirello.search.problems.tsp.TSP;
-import org.knowm.xchart.BitmapEncoder;
-import org.knowm.xchart.XYChart;
-import org.knowm.xchart.XYChartBuilder;
-import org.knowm.xchart.XYSeries;
-import org.knowm.xchart.style.lines.SeriesLines;
-import org.knowm.xchart.style.markers.SeriesMarkers;
 
 /** Handles TSP solving with progress reporting and configurable parameters for GUI integration. */
 public class TSPRunner {
@@ -30,15 +24,196 @@ public class TSPRunner {
    * @param points double[2][n] array where [0] is x coords and [1] is y coords
    * @param config Parameter configuration from GUI
    * @param callback Progress callback (can be null)
-   * @return double[n][2] array representing the tour
+   * @return Order in which the tour visits the stipples, as indices into points
    */
-  public static double[][] generateTour(
+  public static int[] generateTour(
       double[][] points, ParameterConfig config, ProgressCallback callback) {
+    return generateTour(points, config, callback, new SearchControl());
+  }
+
+  /**
+   * Generate TSP tour with progress reporting and configurable parameters. The given search control
+   * holds the best tour found so far while the search runs and can be used to stop it early, in
+   * which case the best tour found up to that point is returned.
+   *
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param config Parameter configuration from GUI
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state for anytime access to the best tour
+   * @return Order in which the tour visits the stipples, as indices into points
+   */
+  public static int[] generateTour(
+      double[][] points, ParameterConfig config, ProgressCallback callback, SearchControl control) {
 
     double[] xPoints = points[0];
     double[] yPoints = points[1];
 
-    TSP.Double problem = new TSP.Double(xPoints, yPoints);
+    Permutation bestPermutation;
+    if (config.isTiledSolving() && xPoints.length > config.getMaxTileSize()) {
+      bestPermutation = new Permutation(solveTiled(xPoints, yPoints, config, callback, control));
+    } else {
+      bestPermutation = solve(xPoints, yPoints, config, callback, control);
+    }
+
+    if (config.getWindowRounds() > 0 && !control.isStopped()) {
+      bestPermutation =
+          reoptimizeWindows(bestPermutation, xPoints, yPoints, config, callback, control);
+      control.offer(bestPermutation, new TSP.Double(xPoints, yPoints).value(bestPermutation));
+    }
+
+    return bestPermutation.toArray();
+  }
+
+  /**
+   * Repair a previous tour for a changed stipple set instead of solving from scratch. Stipples that
+   * vanished are dropped, new ones are inserted where they are cheapest, and the tour is locally
+   * re-optimized around the changes. If the two stipple sets have too little in common, a full
+   * solve with {@link #generateTour} is run instead.
+   *
+   * @param previousTour Order of the previous tour, as returned by generateTour
+   * @param previousPoints double[2][m] array of the stipples the previous tour visits
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param config Parameter configuration from GUI
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state for anytime access to the best tour
+   * @return Order in which the tour visits the stipples, as indices into points
+   */
+  public static int[] repairTour(
+      int[] previousTour,
+      double[][] previousPoints,
+      double[][] points,
+      ParameterConfig config,
+      ProgressCallback callback,
+      SearchControl control) {
+
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+
+    double[] oldX = new double[previousTour.length];
+    double[] oldY = new double[previousTour.length];
+    for (int i = 0; i < previousTour.length; i++) {
+      oldX[i] = previousPoints[0][previousTour[i]];
+      oldY[i] = previousPoints[1][previousTour[i]];
+    }
+
+    if (callback != null) {
+      callback.onProgress(0, 1, "Repairing previous tour...");
+    }
+    int[] order = TourRepair.repair(oldX, oldY, xPoints, yPoints, control);
+    if (order == null) {
+      System.out.println("Stipples changed too much for a repair, solving from scratch");
+      return generateTour(points, config, callback, control);
+    }
+
+    Permutation bestPermutation = new Permutation(order);
+    if (config.getWindowRounds() > 0 && !control.isStopped()) {
+      bestPermutation =
+          reoptimizeWindows(bestPermutation, xPoints, yPoints, config, callback, control);
+    }
+
+    double length = new TSP.Double(xPoints, yPoints).value(bestPermutation);
+    control.offer(bestPermutation, length);
+    if (callback != null) {
+      callback.onProgress(1, 1, String.format("Complete! Tour length: %.2f", length));
+    }
+
+    return bestPermutation.toArray();
+  }
+
+  /**
+   * Continue a single-EA run from the checkpoint file named in the configuration, or from the
+   * default checkpoint location if none is named. The run continues with the rates, operators and
+   * limits stored in the checkpoint, counting the generations and time it had already used. If
+   * there is no readable checkpoint for these stipples, a full solve with {@link #generateTour} is
+   * run instead.
+   *
+   * @param points double[2][n] array where [0] is x coords and [1] is y coords
+   * @param config Parameter configuration from GUI
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state for anytime access to the best tour
+   * @return Order in which the tour visits the stipples, as indices into points
+   */
+  public static int[] resumeTour(
+      double[][] points, ParameterConfig config, ProgressCallback callback, SearchControl control) {
+
+    double[] xPoints = points[0];
+    double[] yPoints = points[1];
+
+    Path file =
+        config.getCheckpointFile().isEmpty()
+            ? Checkpoint.defaultPath()
+            : Paths.get(config.getCheckpointFile());
+    Checkpoint checkpoint;
+    try {
+      checkpoint = Checkpoint.read(file);
+    } catch (IOException e) {
+      System.out.println("No checkpoint to resume from (" + e.getMessage() + "), starting over");
+      return generateTour(points, config, callback, control);
+    }
+    if (!checkpoint.matches(xPoints, yPoints)) {
+      System.out.println("Checkpoint was taken on different stipples, starting over");
+      return generateTour(points, config, callback, control);
+    }
+
+    // Keep checkpointing to the same file
+    ParameterConfig runConfig = new ParameterConfig(checkpoint.config);
+    runConfig.setCheckpointFile(file.toString());
+    runConfig.setCheckpointIntervalSeconds(config.getCheckpointIntervalSeconds());
+
+    Permutation bestPermutation =
+        solve(xPoints, yPoints, runConfig, callback, control, checkpoint, true);
+
+    if (runConfig.getWindowRounds() > 0 && !control.isStopped()) {
+      bestPermutation =
+          reoptimizeWindows(bestPermutation, xPoints, yPoints, runConfig, callback, control);
+      control.offer(bestPermutation, new TSP.Double(xPoints, yPoints).value(bestPermutation));
+    }
+
+    return bestPermutation.toArray();
+  }
+
+  /**
+   * Solve a TSP instance with the solver mode selected in the configuration.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param config Parameter configuration
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state for anytime access to the best tour
+   * @return Best permutation found
+   */
+  private static Permutation solve(
+      double[] xPoints,
+      double[] yPoints,
+      ParameterConfig config,
+      ProgressCallback callback,
+      SearchControl control) {
+    return solve(xPoints, yPoints, config, callback, control, null, true);
+  }
+
+  /**
+   * Solve a TSP instance with the solver mode selected in the configuration, optionally continuing
+   * a single-EA run from a checkpoint.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param config Parameter configuration
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state for anytime access to the best tour
+   * @param resume Checkpoint of the run to continue, or null to start a new run
+   * @param recordHistory Whether to append the run to the run history
+   * @return Best permutation found
+   */
+  private static Permutation solve(
+      double[] xPoints,
+      double[] yPoints,
+      ParameterConfig config,
+      ProgressCallback callback,
+      SearchControl control,
+      Checkpoint resume,
+      boolean recordHistory) {
+
+    DistanceTSP problem = new DistanceTSP(xPoints, yPoints);
 
     int populationSize = config.getPopulationSize();
     int maxGenerations = config.getMaxGenerations();
@@ -46,9 +221,34 @@ public class TSPRunner {
     String mutationOp = config.getMutationOperator();
     String crossoverOp = config.getCrossoverOperator();
 
+    long startNanos = System.nanoTime();
+    long budgetNanos = (long) (config.getTimeBudgetSeconds() * 1e9);
+    long resumedMillis = resume != null ? resume.elapsedMillis : 0;
+    long deadlineNanos =
+        budgetNanos > 0
+            ? startNanos + Math.max(0, budgetNanos - resumedMillis * 1_000_000)
+            : Long.MAX_VALUE;
+
+    RunHistory history = RunHistory.getDefault();
+    RunHistory.InstanceFeatures features = RunHistory.InstanceFeatures.of(xPoints, yPoints);
+
+    if (config.getTargetGapPercent() > 0) {
+      // Lower bound for gap-based early stopping
+      if (callback != null) {
+        callback.onProgress(0, 1, "Computing Held-Karp lower bound...");
+      }
+      double lowerBound = HeldKarpBound.compute(xPoints, yPoints, control);
+      if (!Double.isNaN(lowerBound)) {
+        control.setLowerBound(lowerBound, config.getTargetGapPercent());
+        System.out.printf(
+            "Held-Karp lower bound: %.2f, stopping within %.2f%%%n",
+            lowerBound, config.getTargetGapPercent());
+      }
+    }
+
     Permutation bestPermutation;
 
-    if (config.isGridSearch()) {
+    if (config.getParameterMode() == ParameterConfig.ParameterMode.GRID_SEARCH) {
       // Grid search mode - test multiple parameter combinations
       bestPermutation =
           runGridSearch(
@@ -59,20 +259,102 @@ public class TSPRunner {
               populationSize,
               maxGenerations,
               numElite,
+              history,
+              features,
+              control,
+              callback);
+
+    } else if (config.getParameterMode() == ParameterConfig.ParameterMode.PORTFOLIO) {
+      // Portfolio mode - several metaheuristics racing on the shared best tour
+      PortfolioSolver portfolio =
+          new PortfolioSolver(
+              xPoints,
+              yPoints,
+              problem,
+              createEAFactory(
+                  problem,
+                  config.getManualCrossoverRate(),
+                  config.getManualMutationRate(),
+                  mutationOp,
+                  crossoverOp,
+                  populationSize,
+                  numElite,
+                  config.isSteadyState()),
+              createMutationOperator(mutationOp),
+              control);
+      bestPermutation =
+          portfolio.run(
+              Runtime.getRuntime().availableProcessors(),
+              deadlineNanos,
               callback);
+      double finalLength = problem.value(bestPermutation);
+
+      if (callback != null) {
+        callback.onProgress(1, 1, String.format("Complete! Tour length: %.2f", finalLength));
+      }
+
+    } else if (config.getParameterMode() == ParameterConfig.ParameterMode.ADAPTIVE) {
+      // Adaptive mode - single run that tunes its own rates
+      long startTime = System.currentTimeMillis() - resumedMillis;
+      EvolutionDriver driver =
+          createAdaptiveEA(
+              xPoints, problem, mutationOp, crossoverOp, populationSize, numElite, control);
+      configureDriver(driver, config, deadlineNanos);
+      driver.setProgressCallback("Adaptive EA", callback);
+      bestPermutation = runCheckpointed(driver, config, config, xPoints, yPoints, resume);
+      double finalLength = problem.value(bestPermutation);
+
+      if (recordHistory && !control.isStopped()) {
+        history.append(
+            new RunHistory.Record(
+                features,
+                mutationOp,
+                crossoverOp,
+                Double.NaN,
+                Double.NaN,
+                populationSize,
+                numElite,
+                (int) driver.getGenerations(),
+                finalLength,
+                System.currentTimeMillis() - startTime));
+      }
+
+      if (callback != null) {
+        callback.onProgress(1, 1, String.format("Complete! Tour length: %.2f", finalLength));
+      }
 
     } else {
-      // Manual mode - single run with specified rates
+      // Manual or learned mode - single run with specified rates
       double crossoverRate = config.getManualCrossoverRate();
       double mutationRate = config.getManualMutationRate();
 
+      if (config.getParameterMode() == ParameterConfig.ParameterMode.LEARNED) {
+        RunHistory.Record learned =
+            history.findBest(
+                features, config.getMaxGenerations(), config.getTimeBudgetSeconds());
+        if (learned != null) {
+          crossoverRate = learned.crossoverRate;
+          mutationRate = learned.mutationRate;
+          mutationOp = learned.mutationOperator;
+          crossoverOp = learned.crossoverOperator;
+          populationSize = learned.populationSize;
+          numElite = learned.eliteCount;
+          System.out.printf(
+              "Using learned parameters from a %d-stipple run: %s / %s C=%.2f M=%.2f%n",
+              learned.features.stippleCount, mutationOp, crossoverOp, crossoverRate, mutationRate);
+        } else {
+          System.out.println("No similar instance in run history, using manual parameters");
+        }
+      }
+
       if (callback != null) {
         callback.onProgress(
             0, 1, String.format("Running EA with C=%.2f M=%.2f", crossoverRate, mutationRate));
       }
 
-      bestPermutation =
-          runSingleEA(
+      long startTime = System.currentTimeMillis() - resumedMillis;
+      EvolutionDriver driver =
+          createSingleEA(
               xPoints,
               yPoints,
               problem,
@@ -81,22 +363,191 @@ public class TSPRunner {
               mutationOp,
               crossoverOp,
               populationSize,
-              maxGenerations,
-              numElite);
+              numElite,
+              config.isSteadyState(),
+              control);
+      configureDriver(driver, config, deadlineNanos);
+      driver.setProgressCallback(
+          String.format("C=%.2f M=%.2f", crossoverRate, mutationRate), callback);
+
+      // Checkpoints store the rates actually used, so a resumed learned run skips the lookup
+      ParameterConfig runConfig = new ParameterConfig(config);
+      runConfig.setParameterMode(ParameterConfig.ParameterMode.MANUAL);
+      runConfig.setManualCrossoverRate(crossoverRate);
+      runConfig.setManualMutationRate(mutationRate);
+      runConfig.setMutationOperator(mutationOp);
+      runConfig.setCrossoverOperator(crossoverOp);
+      runConfig.setPopulationSize(populationSize);
+      runConfig.setEliteCount(numElite);
+      bestPermutation = runCheckpointed(driver, config, runConfig, xPoints, yPoints, resume);
+      double finalLength = problem.value(bestPermutation);
+
+      if (recordHistory && !control.isStopped()) {
+        history.append(
+            new RunHistory.Record(
+                features,
+                mutationOp,
+                crossoverOp,
+                crossoverRate,
+                mutationRate,
+                populationSize,
+                numElite,
+                (int) driver.getGenerations(),
+                finalLength,
+                System.currentTimeMillis() - startTime));
+      }
 
       if (callback != null) {
-        double finalLength = problem.value(bestPermutation);
         callback.onProgress(1, 1, String.format("Complete! Tour length: %.2f", finalLength));
       }
     }
 
-    // Convert permutation to tour array
-    return permutationToTour(bestPermutation, xPoints, yPoints);
+    return bestPermutation;
+  }
+
+  /**
+   * Run an EA driver, continuing from a checkpoint if one is given and saving checkpoints if the
+   * configuration names a checkpoint file.
+   *
+   * @param driver The driver to run
+   * @param config Parameter configuration
+   * @param runConfig Configuration stored in checkpoints, with the rates the run actually uses
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param resume Checkpoint of the run to continue, or null to start a new run
+   * @return Best permutation found
+   */
+  private static Permutation runCheckpointed(
+      EvolutionDriver driver,
+      ParameterConfig config,
+      ParameterConfig runConfig,
+      double[] xPoints,
+      double[] yPoints,
+      Checkpoint resume) {
+
+    if (resume != null) {
+      driver.resumeFrom(
+          new Permutation(resume.bestTour),
+          resume.population,
+          resume.generations,
+          resume.restarts);
+      System.out.printf(
+          "Resuming from generation %d, best length %.2f%n", resume.generations, resume.bestCost);
+    }
+    if (config.getCheckpointFile().isEmpty()) {
+      return driver.run();
+    }
+
+    try (CheckpointWriter writer =
+        new CheckpointWriter(
+            Paths.get(config.getCheckpointFile()),
+            runConfig,
+            xPoints,
+            yPoints,
+            config.getCheckpointIntervalSeconds(),
+            resume != null ? resume.elapsedMillis : 0)) {
+      driver.setCheckpointWriter(writer);
+      return driver.run();
+    }
+  }
+
+  /**
+   * Solve a large instance by splitting it into tiles that are solved in parallel with the
+   * configured solver mode and stitched together. With a time budget, the tiles run in waves of
+   * one tile per core, and each wave gets an equal share of 90% of the budget; the rest is left
+   * for stitching. The tiles already keep every core busy, so modes that run on several threads
+   * fall back to a single manual EA per tile. Tiles neither compute a lower bound nor enter the
+   * run history, which describes whole instances.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param config Parameter configuration
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state for anytime access to the best tour
+   * @return Tour as an order over all points
+   */
+  private static int[] solveTiled(
+      double[] xPoints,
+      double[] yPoints,
+      ParameterConfig config,
+      ProgressCallback callback,
+      SearchControl control) {
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    int tiles = 1;
+    while ((double) xPoints.length / tiles > config.getMaxTileSize()) {
+      tiles *= 2;
+    }
+
+    ParameterConfig tileConfig = new ParameterConfig(config);
+    tileConfig.setTiledSolving(false);
+    tileConfig.setCheckpointFile("");
+    tileConfig.setTargetGapPercent(0);
+    if (config.getParameterMode() == ParameterConfig.ParameterMode.PORTFOLIO
+        || config.getParameterMode() == ParameterConfig.ParameterMode.GRID_SEARCH) {
+      tileConfig.setParameterMode(ParameterConfig.ParameterMode.MANUAL);
+    }
+    if (config.getTimeBudgetSeconds() > 0) {
+      int waves = (tiles + threads - 1) / threads;
+      tileConfig.setTimeBudgetSeconds(config.getTimeBudgetSeconds() * 0.9 / waves);
+    }
+
+    int[] order =
+        TiledSolver.solve(
+            xPoints,
+            yPoints,
+            config.getMaxTileSize(),
+            threads,
+            (tileX, tileY, tileControl) ->
+                solve(tileX, tileY, tileConfig, null, tileControl, null, false).toArray(),
+            control,
+            callback);
+
+    Permutation permutation = new Permutation(order);
+    double length = new TSP.Double(xPoints, yPoints).value(permutation);
+    control.offer(permutation, length);
+    if (callback != null) {
+      callback.onProgress(1, 1, String.format("Complete! Tour length: %.2f", length));
+    }
+    return order;
+  }
+
+  /**
+   * Polish a finished tour by re-optimizing windows of consecutive cities in parallel.
+   *
+   * @param permutation The finished tour
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param config Parameter configuration
+   * @param callback Progress callback (can be null)
+   * @param control Shared search state; stopping it ends the stage after the current round
+   * @return The improved tour
+   */
+  private static Permutation reoptimizeWindows(
+      Permutation permutation,
+      double[] xPoints,
+      double[] yPoints,
+      ParameterConfig config,
+      ProgressCallback callback,
+      SearchControl control) {
+    int[] order = permutation.toArray();
+    double gain =
+        WindowOptimizer.optimize(
+            order,
+            xPoints,
+            yPoints,
+            config.getWindowSize(),
+            config.getWindowRounds(),
+            control,
+            callback);
+    System.out.printf("Window re-optimization saved %.2f%n", gain);
+    return new Permutation(order);
   }
 
   /**
    * Run grid search over parameter space to find optimal EA configuration. Tests all combinations
-   * of crossover and mutation rates within specified ranges.
+   * of crossover and mutation rates within specified ranges. With a time budget, every combination
+   * gets an equal share of it.
    *
    * @param xPoints Array of x-coords
    * @param yPoints Array of y-coords
@@ -105,17 +556,23 @@ public class TSPRunner {
    * @param populationSize Size of the EA population
    * @param maxGenerations Maximum number of generations to run
    * @param numElite Number of elite individuals to preserve
+   * @param history Run history that every tested combination is recorded to
+   * @param features Statistics of the instance, stored with each run
+   * @param control Shared search state for anytime access to the best tour
    * @param callback Progress callback for reporting status (can be null)
    * @return Best permutation found across all tested combinations
    */
   private static Permutation runGridSearch(
       double[] xPoints,
       double[] yPoints,
-      TSP.Double problem,
+      DistanceTSP problem,
       ParameterConfig config,
       int populationSize,
       int maxGenerations,
       int numElite,
+      RunHistory history,
+      RunHistory.InstanceFeatures features,
+      SearchControl control,
       ProgressCallback callback) {
 
     // Get grid search parameters
@@ -140,17 +597,20 @@ public class TSPRunner {
     double bestLength = Double.MAX_VALUE;
     Permutation bestPermutation = null;
 
+    long startNanos = System.nanoTime();
+    long budgetNanos = (long) (config.getTimeBudgetSeconds() * 1e9);
+
     System.out.println("-------------------------------------------------");
     System.out.println("Grid Search - Testing " + totalCombinations + " combinations");
     System.out.println("-------------------------------------------------");
 
     // Test each combination
     for (double crossoverRate = crossoverMin;
-        crossoverRate <= crossoverMax;
+        crossoverRate <= crossoverMax && !control.isStopped() && !control.isTargetReached();
         crossoverRate += crossoverStep) {
 
       for (double mutationRate = mutationMin;
-          mutationRate <= mutationMax;
+          mutationRate <= mutationMax && !control.isStopped() && !control.isTargetReached();
           mutationRate += mutationStep) {
 
         if (callback != null) {
@@ -161,8 +621,9 @@ public class TSPRunner {
           callback.onProgress(currentCombination, totalCombinations, msg);
         }
 
-        Permutation result =
-            runSingleEA(
+        long startTime = System.currentTimeMillis();
+        EvolutionDriver driver =
+            createSingleEA(
                 xPoints,
                 yPoints,
                 problem,
@@ -171,11 +632,52 @@ public class TSPRunner {
                 mutationOp,
                 crossoverOp,
                 populationSize,
-                maxGenerations,
-                numElite);
-
+                numElite,
+                config.isSteadyState(),
+                control);
+        configureDriver(
+            driver,
+            config,
+            budgetNanos > 0
+                ? startNanos + budgetNanos * (currentCombination + 1) / totalCombinations
+                : Long.MAX_VALUE);
+        if (callback != null) {
+          // Map the progress of this run into its slot of the overall grid
+          int combination = currentCombination;
+          int combinations = totalCombinations;
+          driver.setProgressCallback(
+              String.format(
+                  "C=%.2f M=%.2f (%d/%d)",
+                  crossoverRate, mutationRate, currentCombination + 1, totalCombinations),
+              (current, total, message) ->
+                  callback.onProgress(
+                      combination * total + current, combinations * total, message));
+        }
+        Permutation result = driver.run();
         double length = problem.value(result);
 
+        if (control.isStopped()) {
+          // Cancelled runs are not representative of their parameters
+          if (length < bestLength) {
+            bestLength = length;
+            bestPermutation = result;
+          }
+          break;
+        }
+
+        history.append(
+            new RunHistory.Record(
+                features,
+                mutationOp,
+                crossoverOp,
+                crossoverRate,
+                mutationRate,
+                populationSize,
+                numElite,
+                (int) driver.getGenerations(),
+                length,
+                System.currentTimeMillis() - startTime));
+
         System.out.printf("C=%.2f M=%.2f -> Length: %.2f%n", crossoverRate, mutationRate, length);
 
         if (length < bestLength) {
@@ -202,120 +704,152 @@ public class TSPRunner {
   }
 
   /**
-   * Run a single EA with specified parameters.
+   * Create a single EA with specified parameters.
    *
    * @param xPoints Array of x-coords
    * @param yPoints Array of y-coords
    * @param problem The TSP problem instance
    * @param crossoverRate Crossover rate for the EA
    * @param mutationRate Mutation rate for the EA
+   * @param mutationOperator Name of the mutation operator
+   * @param crossoverOperator Name of the crossover operator
    * @param populationSize Size of the EA population
-   * @param maxGenerations Maximum number of generations to run
    * @param numElite Number of elite individuals to preserve
-   * @return Best permutation found by the EA
+   * @param steadyState Whether to run a steady-state EA instead of a generational one
+   * @param control Shared search state for anytime access to the best tour
+   * @return Driver that runs the EA
    */
-  private static Permutation runSingleEA(
+  private static EvolutionDriver createSingleEA(
       double[] xPoints,
       double[] yPoints,
-      TSP.Double problem,
+      DistanceTSP problem,
       double crossoverRate,
       double mutationRate,
       String mutationOperator,
       String crossoverOperator,
       int populationSize,
-      int maxGenerations,
-      int numElite) {
+      int numElite,
+      boolean steadyState,
+      SearchControl control) {
+
+    return new EvolutionDriver(
+        createEAFactory(
+            problem,
+            crossoverRate,
+            mutationRate,
+            mutationOperator,
+            crossoverOperator,
+            populationSize,
+            numElite,
+            steadyState),
+        new PermutationInitializer(xPoints.length),
+        createMutationOperator(mutationOperator),
+        control);
+  }
+
+  /**
+   * Create a factory for generational or steady-state EAs with specified parameters.
+   *
+   * @param problem The TSP problem instance
+   * @param crossoverRate Crossover rate for the EA
+   * @param mutationRate Mutation rate for the EA
+   * @param mutationOperator Name of the mutation operator
+   * @param crossoverOperator Name of the crossover operator
+   * @param populationSize Size of the EA population
+   * @param numElite Number of elite individuals to preserve, ignored by the steady-state EA
+   * @param steadyState Whether to create steady-state EAs instead of generational ones
+   * @return Factory that creates the EA
+   */
+  private static EvolutionDriver.EAFactory createEAFactory(
+      DistanceTSP problem,
+      double crossoverRate,
+      double mutationRate,
+      String mutationOperator,
+      String crossoverOperator,
+      int populationSize,
+      int numElite,
+      boolean steadyState) {
 
-    GenerationalEvolutionaryAlgorithm<Permutation> ea =
+    if (steadyState) {
+      return (initializer, tracker) ->
+          new SteadyStateEA(
+              populationSize,
+              createMutationOperator(mutationOperator),
+              mutationRate,
+              createCrossoverOperator(crossoverOperator),
+              crossoverRate,
+              initializer,
+              problem,
+              tracker);
+    }
+    return (initializer, tracker) ->
         new GenerationalEvolutionaryAlgorithm<>(
             populationSize,
             createMutationOperator(mutationOperator),
             mutationRate,
             createCrossoverOperator(crossoverOperator),
             crossoverRate,
-            new PermutationInitializer(xPoints.length),
+            initializer,
             new InverseCostFitnessFunction<>(problem),
             new FitnessProportionalSelection(),
-            numElite);
-
-    SolutionCostPair<Permutation> solution = ea.optimize(maxGenerations);
-    return solution.getSolution();
+            numElite,
+            tracker);
   }
 
   /**
-   * Convert permutation to tour coordinate array. Transforms the permutation indices into ordered
-   * x-y coordinate pairs.
+   * Create a self-adaptive EA. Every individual carries its own crossover and mutation rates, which
+   * are inherited and perturbed along with the tour, so a single run replaces the grid search.
    *
-   * @param permutation The solution permutation from the EA
    * @param xPoints Array of x-coords
-   * @param yPoints Array of y-coords
-   * @return double[][] where each row is [x, y] coordinates of a stipple in tour order
+   * @param problem The TSP problem instance
+   * @param mutationOperator Name of the mutation operator
+   * @param crossoverOperator Name of the crossover operator
+   * @param populationSize Size of the EA population
+   * @param numElite Number of elite individuals to preserve
+   * @param control Shared search state for anytime access to the best tour
+   * @return Driver that runs the EA
    */
-  private static double[][] permutationToTour(
-      Permutation permutation, double[] xPoints, double[] yPoints) {
-
-    int[] order = permutation.toArray();
-    double[][] tour = new double[order.length][2];
-
-    for (int i = 0; i < order.length; i++) {
-      int stippleIndex = order[i];
-      tour[i][0] = xPoints[stippleIndex];
-      tour[i][1] = yPoints[stippleIndex];
-    }
+  private static EvolutionDriver createAdaptiveEA(
+      double[] xPoints,
+      DistanceTSP problem,
+      String mutationOperator,
+      String crossoverOperator,
+      int populationSize,
+      int numElite,
+      SearchControl control) {
 
-    return tour;
+    return new EvolutionDriver(
+        (initializer, tracker) ->
+            new SelfAdaptiveEA(
+                populationSize,
+                createMutationOperator(mutationOperator),
+                createCrossoverOperator(crossoverOperator),
+                initializer,
+                problem,
+                numElite,
+                tracker),
+        new PermutationInitializer(xPoints.length),
+        createMutationOperator(mutationOperator),
+        control);
   }
 
   /**
-   * Draw TSP tour using XChart library.
+   * Apply the stopping rules from the configuration to a driver. Without a time budget the EA runs
+   * for the configured number of generations. With one, it runs until the deadline and restarts
+   * from the best tour whenever it stagnates.
    *
-   * @param tour Tour as double[][] where each row is [x, y]
-   * @param dimensions int[2] array with [width, height] of output image
-   * @return BufferedImage with the tour drawn as connected line segments
+   * @param driver The driver to configure
+   * @param config Parameter configuration
+   * @param deadlineNanos Deadline of this run, or Long.MAX_VALUE without a time budget
    */
-  public static BufferedImage drawTourToImage(double[][] tour, int[] dimensions) {
-    // Extract x and y coordinates from the tour
-    double[] xData = new double[tour.length + 1];
-    double[] yData = new double[tour.length + 1];
-
-    for (int i = 0; i < tour.length; i++) {
-      xData[i] = tour[i][0];
-      yData[i] = dimensions[1] - tour[i][1]; // Invert y coordinates
+  private static void configureDriver(
+      EvolutionDriver driver, ParameterConfig config, long deadlineNanos) {
+    if (deadlineNanos == Long.MAX_VALUE) {
+      driver.setMaxGenerations(config.getMaxGenerations());
+    } else {
+      driver.setDeadline(deadlineNanos);
+      driver.setStagnationLimit(config.getStagnationGenerations());
     }
-
-    // Close the tour by connecting back to the first point
-    xData[tour.length] = tour[0][0];
-    yData[tour.length] = dimensions[1] - tour[0][1]; // Also invert for closing point
-
-    // Create chart
-    XYChart chart = new XYChartBuilder().width(dimensions[0]).height(dimensions[1]).build();
-
-    // Customize chart
-    chart.getStyler().setChartBackgroundColor(Color.white);
-    chart.getStyler().setPlotBackgroundColor(Color.white);
-    chart.getStyler().setPlotBorderVisible(false);
-    chart.getStyler().setLegendVisible(false);
-    chart.getStyler().setAxisTicksVisible(false);
-    chart.getStyler().setAxisTicksLineVisible(false);
-    chart.getStyler().setAxisTitlesVisible(false);
-    chart.getStyler().setChartTitleVisible(false);
-    chart.getStyler().setPlotGridLinesVisible(false);
-
-    // Set Axis bounds to match dimensions
-    chart.getStyler().setXAxisMin(0.0);
-    chart.getStyler().setXAxisMax((double) dimensions[0]);
-    chart.getStyler().setYAxisMin(0.0);
-    chart.getStyler().setYAxisMax((double) dimensions[1]);
-
-    // Add series with styling
-    XYSeries series = chart.addSeries("TSP Tour", xData, yData);
-    series.setLineColor(Color.black);
-    series.setLineStyle(SeriesLines.SOLID);
-    series.setMarker(SeriesMarkers.NONE);
-    series.setLineWidth(1.0f);
-
-    // Convert chart to BufferedImage
-    return BitmapEncoder.getBufferedImage(chart);
   }
 
   /**
@@ -0,0 +1,200 @@
+package edu.stockton.project.gui;
+
+import java.awt.image.BufferedImage;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.shape.Rectangle;
+
+/**
+ * Displays an image of any size with pan and zoom. The image is drawn from its {@link
+ * ImagePyramid}, using the smallest level that still has at least one pixel per screen pixel and
+ * only the tiles that are in view, so the work per frame depends on the size of the view rather
+ * than on the size of the image. Switching between images whose pyramids exist costs nothing.
+ *
+ * <p>The image is fitted into the view until the user zooms with the scroll wheel or pans by
+ * dragging; a double click fits it again.
+ */
+public class TiledImageView extends Region {
+
+  private static final double MAX_ZOOM = 32;
+
+  private final Canvas canvas = new Canvas();
+  private final Rectangle clip = new Rectangle();
+  private ImagePyramid pyramid;
+
+  // Screen pixels per image pixel, and the image point at the top left corner of the view
+  private double zoom = 1;
+  private double originX;
+  private double originY;
+  private boolean fitted = true;
+
+  private double dragX;
+  private double dragY;
+
+  /** Creates an empty view. */
+  public TiledImageView() {
+    getChildren().add(canvas);
+    setClip(clip);
+    getStyleClass().add("tiled-image-view");
+
+    addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+    addEventHandler(MouseEvent.MOUSE_PRESSED, this::onMousePressed);
+    addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onMouseDragged);
+    addEventHandler(
+        MouseEvent.MOUSE_CLICKED,
+        event -> {
+          if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+            fitted = true;
+            requestLayout();
+          }
+        });
+  }
+
+  /**
+   * Shows an image, fitted into the view. The pyramid of the image is built if it does not exist
+   * yet, so images that will be shown should be prepared with {@link #prepare} off the FX thread.
+   *
+   * @param image The image to show, or null to clear the view
+   */
+  public void setImage(BufferedImage image) {
+    pyramid = image == null ? null : ImagePyramid.of(image);
+    fitted = true;
+    requestLayout();
+    redraw();
+  }
+
+  /**
+   * Builds the pyramid of an image ahead of display. May be called from any thread.
+   *
+   * @param image The image that will be shown
+   */
+  public static void prepare(BufferedImage image) {
+    if (image != null) {
+      ImagePyramid.of(image);
+    }
+  }
+
+  @Override
+  protected void layoutChildren() {
+    double width = getWidth();
+    double height = getHeight();
+    if (canvas.getWidth() != width || canvas.getHeight() != height) {
+      canvas.setWidth(width);
+      canvas.setHeight(height);
+    }
+    clip.setWidth(width);
+    clip.setHeight(height);
+    if (fitted) {
+      fit();
+    }
+    redraw();
+  }
+
+  @Override
+  protected double computePrefWidth(double height) {
+    return 600;
+  }
+
+  @Override
+  protected double computePrefHeight(double width) {
+    return 600;
+  }
+
+  /** Zooms so that the whole image is centered in the view. */
+  private void fit() {
+    if (pyramid == null || getWidth() <= 0 || getHeight() <= 0) {
+      return;
+    }
+    int width = pyramid.getWidth(0);
+    int height = pyramid.getHeight(0);
+    zoom = Math.min(getWidth() / width, getHeight() / height);
+    originX = (width - getWidth() / zoom) / 2;
+    originY = (height - getHeight() / zoom) / 2;
+  }
+
+  private void onScroll(ScrollEvent event) {
+    if (pyramid == null || event.getDeltaY() == 0) {
+      return;
+    }
+    double factor = Math.pow(1.0015, event.getDeltaY());
+    double fitZoom = Math.min(getWidth() / pyramid.getWidth(0), getHeight() / pyramid.getHeight(0));
+    double minZoom = Math.min(fitZoom, 1);
+    double newZoom = Math.max(minZoom, Math.min(MAX_ZOOM, zoom * factor));
+
+    // Keep the image point under the cursor in place
+    originX += event.getX() / zoom - event.getX() / newZoom;
+    originY += event.getY() / zoom - event.getY() / newZoom;
+    zoom = newZoom;
+    fitted = false;
+    redraw();
+    event.consume();
+  }
+
+  private void onMousePressed(MouseEvent event) {
+    dragX = event.getX();
+    dragY = event.getY();
+  }
+
+  private void onMouseDragged(MouseEvent event) {
+    if (pyramid == null) {
+      return;
+    }
+    originX -= (event.getX() - dragX) / zoom;
+    originY -= (event.getY() - dragY) / zoom;
+    dragX = event.getX();
+    dragY = event.getY();
+    fitted = false;
+    redraw();
+    event.consume();
+  }
+
+  /** Draws the tiles that are in view from the level that matches the zoom. */
+  private void redraw() {
+    GraphicsContext graphics = canvas.getGraphicsContext2D();
+    double viewWidth = canvas.getWidth();
+    double viewHeight = canvas.getHeight();
+    graphics.clearRect(0, 0, viewWidth, viewHeight);
+    if (pyramid == null || viewWidth <= 0 || viewHeight <= 0) {
+      return;
+    }
+
+    int level = 0;
+    while (level + 1 < pyramid.getLevels() && zoom * (1 << (level + 1)) <= 1) {
+      level++;
+    }
+    double scale = 1 << level; // image pixels per level pixel
+    double tileScreenWidth = pyramid.getTileWidth(level) * scale * zoom;
+    double tileScreenHeight = ImagePyramid.TILE_HEIGHT * scale * zoom;
+
+    // Visible part of the level, in tiles
+    double left = Math.max(0, originX / scale);
+    double top = Math.max(0, originY / scale);
+    double right = Math.min(pyramid.getWidth(level), (originX + viewWidth / zoom) / scale);
+    double bottom = Math.min(pyramid.getHeight(level), (originY + viewHeight / zoom) / scale);
+    int firstColumn = (int) (left / pyramid.getTileWidth(level));
+    int lastColumn = (int) Math.ceil(right / pyramid.getTileWidth(level)) - 1;
+    int firstRow = (int) (top / ImagePyramid.TILE_HEIGHT);
+    int lastRow = (int) Math.ceil(bottom / ImagePyramid.TILE_HEIGHT) - 1;
+
+    // Show single pixels as blocks once they are large enough to see
+    graphics.setImageSmoothing(zoom < 2);
+    double imageX = -originX * zoom;
+    double imageY = -originY * zoom;
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        WritableImage tile = pyramid.tile(level, column, row);
+        graphics.drawImage(
+            tile,
+            imageX + column * tileScreenWidth,
+            imageY + row * tileScreenHeight,
+            tile.getWidth() * scale * zoom,
+            tile.getHeight() * scale * zoom);
+      }
+    }
+  }
+}
@@ -0,0 +1,378 @@
+package edu.stockton.project.gui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Divide-and-conquer solver for stipple instances too large for a single EA. The points are split
+ * into tiles by a k-d partition at the median of the longer side, each tile is solved independently
+ * on its own thread, and the tile tours are merged into one. Tiles are ordered along a serpentine
+ * through the partition, and each tile is spliced into the tour so far across the closest pair of
+ * points between it and its nearest tile already in the tour, which lie on their shared boundary.
+ * A final 2-opt pass over the whole tour repairs the seams between tiles.
+ */
+final class TiledSolver {
+
+  /** Solves the sub-instance of a single tile. */
+  @FunctionalInterface
+  interface TileSolver {
+    /**
+     * Solves a tile.
+     *
+     * @param xPoints Array of x-coords of the tile
+     * @param yPoints Array of y-coords of the tile
+     * @param control Search control of this tile
+     * @return Tour of the tile as an order over the tile's local indices
+     */
+    int[] solve(double[] xPoints, double[] yPoints, SearchControl control);
+  }
+
+  private static final int NEIGHBORS = 8;
+
+  /** Points of each tile nearest the other tile that are searched for the closest pair. */
+  private static final int BOUNDARY_CANDIDATES = 32;
+
+  /** Tiles already in the tour, nearest by bounding box, that a new tile may be spliced to. */
+  private static final int NEIGHBOR_TILES = 4;
+
+  /* Private constructor to prevent instantiation. */
+  private TiledSolver() {}
+
+  /**
+   * Solves an instance by tiling.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param maxTileSize Maximum number of points per tile
+   * @param threads Number of tiles solved at the same time
+   * @param tileSolver Solver applied to every tile
+   * @param control Search control; each tile gets a child control that is stopped with it
+   * @param callback Progress callback (can be null)
+   * @return Tour as an order over all points
+   */
+  static int[] solve(
+      double[] xPoints,
+      double[] yPoints,
+      int maxTileSize,
+      int threads,
+      TileSolver tileSolver,
+      SearchControl control,
+      TSPRunner.ProgressCallback callback) {
+
+    int n = xPoints.length;
+    int[] indices = new int[n];
+    for (int i = 0; i < n; i++) {
+      indices[i] = i;
+    }
+
+    // Partition into tiles
+    List<int[]> tiles = new ArrayList<>();
+    partition(indices, xPoints, yPoints, Math.max(3, maxTileSize), false, tiles);
+    System.out.printf("Tiled solving: %d points in %d tiles%n", n, tiles.size());
+
+    // Solve the tiles in parallel
+    int[][] tileTours = new int[tiles.size()][];
+    AtomicInteger finished = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < tiles.size(); t++) {
+        int tile = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  int[] members = tiles.get(tile);
+                  tileTours[tile] = solveTile(members, xPoints, yPoints, tileSolver, control);
+                  int done = finished.incrementAndGet();
+                  if (callback != null) {
+                    callback.onProgress(
+                        done,
+                        tiles.size() + 1,
+                        String.format("Solved tile %d/%d", done, tiles.size()));
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      control.stop();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Tile solver failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // Tiles that never ran because of a stop keep their partition order
+    for (int t = 0; t < tiles.size(); t++) {
+      if (tileTours[t] == null) {
+        tileTours[t] = tiles.get(t);
+      }
+    }
+
+    if (callback != null) {
+      callback.onProgress(tiles.size(), tiles.size() + 1, "Stitching tiles...");
+    }
+    int[] tour = stitch(tileTours, xPoints, yPoints);
+
+    // Repair the seams
+    int[][] neighbors = NeighborLists.nearest(xPoints, yPoints, NEIGHBORS);
+    double gain = TourImprover.twoOpt(tour, xPoints, yPoints, neighbors, control);
+    System.out.printf("Tiled solving: final 2-opt pass saved %.2f%n", gain);
+
+    return tour;
+  }
+
+  /**
+   * Recursively splits a point set at the median of the longer side of its bounding box. Tiles are
+   * emitted in serpentine order: the second half of every split is walked in the opposite direction
+   * to the first, so the tiles on either side of most splits border each other, and the tiles
+   * already in the tour when a tile is merged usually include one of its neighbours.
+   *
+   * @param reversed Whether to emit the high half of this split before the low half
+   */
+  private static void partition(
+      int[] members,
+      double[] xPoints,
+      double[] yPoints,
+      int maxTileSize,
+      boolean reversed,
+      List<int[]> tiles) {
+    if (members.length <= maxTileSize) {
+      tiles.add(members);
+      return;
+    }
+
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int i : members) {
+      minX = Math.min(minX, xPoints[i]);
+      maxX = Math.max(maxX, xPoints[i]);
+      minY = Math.min(minY, yPoints[i]);
+      maxY = Math.max(maxY, yPoints[i]);
+    }
+    double[] axis = (maxX - minX >= maxY - minY) ? xPoints : yPoints;
+
+    // Split at the median of the split coordinate
+    Integer[] sorted = new Integer[members.length];
+    for (int k = 0; k < members.length; k++) {
+      sorted[k] = members[k];
+    }
+    Arrays.sort(sorted, (a, b) -> Double.compare(axis[a], axis[b]));
+
+    int half = members.length / 2;
+    int[] low = new int[half];
+    int[] high = new int[members.length - half];
+    for (int k = 0; k < members.length; k++) {
+      if (k < half) {
+        low[k] = sorted[k];
+      } else {
+        high[k - half] = sorted[k];
+      }
+    }
+
+    int[] first = reversed ? high : low;
+    int[] second = reversed ? low : high;
+    partition(first, xPoints, yPoints, maxTileSize, reversed, tiles);
+    partition(second, xPoints, yPoints, maxTileSize, !reversed, tiles);
+  }
+
+  /** Solves one tile and maps its tour back to global indices. */
+  private static int[] solveTile(
+      int[] members,
+      double[] xPoints,
+      double[] yPoints,
+      TileSolver tileSolver,
+      SearchControl control) {
+    if (members.length < 4) {
+      return members;
+    }
+
+    double[] tileX = new double[members.length];
+    double[] tileY = new double[members.length];
+    for (int k = 0; k < members.length; k++) {
+      tileX[k] = xPoints[members[k]];
+      tileY[k] = yPoints[members[k]];
+    }
+
+    int[] local = tileSolver.solve(tileX, tileY, control.createChild());
+    int[] global = new int[local.length];
+    for (int k = 0; k < local.length; k++) {
+      global[k] = members[local[k]];
+    }
+    return global;
+  }
+
+  /**
+   * Merges the tile tours into one tour. The tours are kept as one doubly linked cycle per tile,
+   * and each tile in turn is spliced into the cycle built so far: the closest pair of points
+   * between it and the merged tiles nearest to it is found, and of the tour edges at those two
+   * points, the pair whose exchange adds the least length is replaced by two edges across the
+   * boundary. The result is one cycle without a closing edge back to the first tile.
+   */
+  private static int[] stitch(int[][] tileTours, double[] xPoints, double[] yPoints) {
+    int n = xPoints.length;
+    int[] next = new int[n];
+    int[] prev = new int[n];
+    double[][] boxes = new double[tileTours.length][];
+    for (int t = 0; t < tileTours.length; t++) {
+      int[] cycle = tileTours[t];
+      int m = cycle.length;
+      for (int k = 0; k < m; k++) {
+        next[cycle[k]] = cycle[(k + 1) % m];
+        prev[cycle[k]] = cycle[(k + m - 1) % m];
+      }
+      boxes[t] = boundingBox(cycle, xPoints, yPoints);
+    }
+
+    for (int t = 1; t < tileTours.length; t++) {
+      int[] pair = closestMergedPair(t, tileTours, boxes, xPoints, yPoints);
+      int a = pair[0];
+      int b = pair[1];
+
+      // Insert the tile between u and v = next[u], entering at x and leaving at its neighbour y
+      int bestU = a;
+      int bestX = b;
+      int bestY = b;
+      double bestCost = Double.MAX_VALUE;
+      for (int u : new int[] {prev[a], a}) {
+        int v = next[u];
+        for (int x : new int[] {b, next[b], prev[b]}) {
+          for (int y : new int[] {next[x], prev[x]}) {
+            if (x != b && y != b) {
+              continue; // one end of the cut edge must be the boundary point
+            }
+            double cost =
+                dist(u, x, xPoints, yPoints)
+                    + dist(y, v, xPoints, yPoints)
+                    - dist(u, v, xPoints, yPoints)
+                    - dist(x, y, xPoints, yPoints);
+            if (cost < bestCost) {
+              bestCost = cost;
+              bestU = u;
+              bestX = x;
+              bestY = y;
+            }
+          }
+        }
+      }
+
+      // Walk the tile from x away from y, so that the walk ends at y
+      int m = tileTours[t].length;
+      int[] path = new int[m];
+      boolean forward = bestY == prev[bestX];
+      path[0] = bestX;
+      for (int k = 1; k < m; k++) {
+        path[k] = forward ? next[path[k - 1]] : prev[path[k - 1]];
+      }
+
+      int v = next[bestU];
+      int last = bestU;
+      for (int node : path) {
+        next[last] = node;
+        prev[node] = last;
+        last = node;
+      }
+      next[last] = v;
+      prev[v] = last;
+    }
+
+    int[] tour = new int[n];
+    int node = tileTours.length > 0 && tileTours[0].length > 0 ? tileTours[0][0] : 0;
+    for (int k = 0; k < n; k++) {
+      tour[k] = node;
+      node = next[node];
+    }
+    return tour;
+  }
+
+  /**
+   * Finds the closest pair of points between a tile and the tiles before it, searching only the
+   * earlier tiles whose bounding boxes are nearest.
+   *
+   * @return A point of an earlier tile and a point of the tile
+   */
+  private static int[] closestMergedPair(
+      int tile, int[][] tileTours, double[][] boxes, double[] xPoints, double[] yPoints) {
+    Integer[] earlier = new Integer[tile];
+    double[] gaps = new double[tile];
+    for (int s = 0; s < tile; s++) {
+      earlier[s] = s;
+      gaps[s] = boxGap(boxes[s], boxes[tile]);
+    }
+    Arrays.sort(earlier, (a, b) -> Double.compare(gaps[a], gaps[b]));
+
+    int[] best = null;
+    double bestDistance = Double.MAX_VALUE;
+    for (int k = 0; k < Math.min(NEIGHBOR_TILES, tile); k++) {
+      int s = earlier[k];
+      int[] own = nearestToBox(tileTours[tile], boxes[s], xPoints, yPoints);
+      int[] other = nearestToBox(tileTours[s], boxes[tile], xPoints, yPoints);
+      for (int i : other) {
+        for (int j : own) {
+          double d = dist(i, j, xPoints, yPoints);
+          if (d < bestDistance) {
+            bestDistance = d;
+            best = new int[] {i, j};
+          }
+        }
+      }
+    }
+    return best;
+  }
+
+  /** Returns minX, minY, maxX, maxY of a set of points. */
+  private static double[] boundingBox(int[] members, double[] xPoints, double[] yPoints) {
+    double[] box = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+    for (int i : members) {
+      box[0] = Math.min(box[0], xPoints[i]);
+      box[1] = Math.min(box[1], yPoints[i]);
+      box[2] = Math.max(box[2], xPoints[i]);
+      box[3] = Math.max(box[3], yPoints[i]);
+    }
+    return box;
+  }
+
+  /** Squared distance between two bounding boxes, 0 if they touch or overlap. */
+  private static double boxGap(double[] a, double[] b) {
+    double dx = Math.max(0, Math.max(a[0] - b[2], b[0] - a[2]));
+    double dy = Math.max(0, Math.max(a[1] - b[3], b[1] - a[3]));
+    return dx * dx + dy * dy;
+  }
+
+  /** Returns the points of a tile nearest a bounding box. */
+  private static int[] nearestToBox(
+      int[] members, double[] box, double[] xPoints, double[] yPoints) {
+    double[] gap = new double[members.length];
+    Integer[] order = new Integer[members.length];
+    for (int k = 0; k < members.length; k++) {
+      double x = xPoints[members[k]];
+      double y = yPoints[members[k]];
+      gap[k] = boxGap(box, new double[] {x, y, x, y});
+      order[k] = k;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(gap[a], gap[b]));
+
+    int[] nearest = new int[Math.min(BOUNDARY_CANDIDATES, members.length)];
+    for (int k = 0; k < nearest.length; k++) {
+      nearest[k] = members[order[k]];
+    }
+    return nearest;
+  }
+
+  private static double dist(int i, int j, double[] xPoints, double[] yPoints) {
+    double dx = xPoints[i] - xPoints[j];
+    double dy = yPoints[i] - yPoints[j];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+}
@@ -0,0 +1,274 @@
+package edu.stockton.project.gui;
+
+import java.util.Arrays;
+
+/**
+ * 2-opt local search on a closed tour, restricted to candidate-neighbour moves. Only moves that add
+ * an edge to one of the nearest neighbours of a city are tried, and don't-look bits skip cities
+ * whose surroundings have not changed, so a pass over a 50k-city tour takes seconds rather than
+ * the hours an exhaustive O(n^2) neighbourhood would.
+ */
+final class TourImprover {
+
+  private static final double EPSILON = 1e-9;
+
+  private final double[] xPoints;
+  private final double[] yPoints;
+  private final int[][] neighbors;
+  private final int[] tour;
+  private final int[] position;
+  private final int n;
+
+  // Reused across calls to improve
+  private final int[] queue;
+  private final boolean[] queued;
+  private final int[] touched = new int[4];
+
+  /** Reversals since the last mark, as pairs of positions, or null when nothing is marked. */
+  private int[] journal;
+
+  private int journalSize;
+
+  /**
+   * Creates an improver that works on a tour in place and keeps its scratch arrays across calls,
+   * for callers that improve the same tour many times.
+   *
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param neighbors Nearest-neighbour lists, closest first
+   * @param tour Order of the cities, modified in place by every method of the improver
+   */
+  TourImprover(double[] xPoints, double[] yPoints, int[][] neighbors, int[] tour) {
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.neighbors = neighbors;
+    this.tour = tour;
+    this.n = tour.length;
+    this.position = new int[n];
+    for (int i = 0; i < n; i++) {
+      position[tour[i]] = i;
+    }
+    this.queue = new int[n];
+    this.queued = new boolean[n];
+  }
+
+  /**
+   * Improves a tour in place until it is 2-optimal with respect to the candidate neighbours.
+   *
+   * @param tour Order of the cities, modified in place
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param neighbors Nearest-neighbour lists, closest first
+   * @param control Search control that is checked for stop requests (can be null)
+   * @return The total reduction in tour length
+   */
+  static double twoOpt(
+      int[] tour, double[] xPoints, double[] yPoints, int[][] neighbors, SearchControl control) {
+    return twoOpt(tour, xPoints, yPoints, neighbors, control, tour);
+  }
+
+  /**
+   * Improves a tour in place, starting the search only from the given cities. Cities elsewhere are
+   * revisited only once a move changes their tour neighbours, so repairing a few local changes in
+   * a large tour costs time proportional to the changes rather than to the tour.
+   *
+   * @param tour Order of the cities, modified in place
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param neighbors Nearest-neighbour lists, closest first
+   * @param control Search control that is checked for stop requests (can be null)
+   * @param dirty Cities whose surroundings have changed
+   * @return The total reduction in tour length
+   */
+  static double twoOpt(
+      int[] tour,
+      double[] xPoints,
+      double[] yPoints,
+      int[][] neighbors,
+      SearchControl control,
+      int[] dirty) {
+    if (tour.length < 5) {
+      return 0;
+    }
+    return new TourImprover(xPoints, yPoints, neighbors, tour).improve(control, dirty);
+  }
+
+  /**
+   * Improves the tour, starting the search only from the given cities, as {@link #twoOpt(int[],
+   * double[], double[], int[][], SearchControl, int[])} does.
+   *
+   * @param control Search control that is checked for stop requests (can be null)
+   * @param dirty Cities whose surroundings have changed
+   * @return The total reduction in tour length
+   */
+  double improve(SearchControl control, int[] dirty) {
+    if (n < 5) {
+      return 0;
+    }
+
+    // Circular queue of cities whose don't-look bit is off
+    int head = 0;
+    int size = 0;
+    for (int city : dirty) {
+      if (!queued[city]) {
+        queue[size++] = city;
+        queued[city] = true;
+      }
+    }
+
+    double gain = 0;
+    int processed = 0;
+
+    while (size > 0) {
+      if (control != null && (++processed & 0xFF) == 0 && control.isStopped()) {
+        break;
+      }
+
+      int a = queue[head];
+      head = (head + 1) % n;
+      size--;
+      queued[a] = false;
+
+      double delta = tryImprove(a, touched);
+      if (delta < 0) {
+        gain -= delta;
+        for (int city : touched) {
+          if (!queued[city]) {
+            queue[(head + size) % n] = city;
+            queued[city] = true;
+            size++;
+          }
+        }
+      }
+    }
+
+    // Leave the queue empty for the next call if the search was stopped
+    for (; size > 0; size--) {
+      queued[queue[head]] = false;
+      head = (head + 1) % n;
+    }
+
+    return gain;
+  }
+
+  /** Returns the city at a position of the tour. */
+  int cityAt(int index) {
+    return tour[index];
+  }
+
+  /**
+   * Starts recording changes to the tour, so that {@link #rollback} can undo them. Every change
+   * is a reversal, so undoing costs no more than making it did.
+   */
+  void mark() {
+    if (journal == null) {
+      journal = new int[64];
+    }
+    journalSize = 0;
+  }
+
+  /** Undoes every change to the tour since the last {@link #mark}. */
+  void rollback() {
+    for (int k = journalSize - 2; k >= 0; k -= 2) {
+      reverseSegment(journal[k], journal[k + 1]);
+    }
+    journalSize = 0;
+  }
+
+  /**
+   * Tries the improving 2-opt moves that connect a city to one of its neighbours, and applies the
+   * first one found.
+   *
+   * @param a The city
+   * @param touched Receives the four endpoints of the exchanged edges
+   * @return The change in tour length, negative if a move was applied, otherwise 0
+   */
+  private double tryImprove(int a, int[] touched) {
+    for (int direction = 0; direction < 2; direction++) {
+      boolean forward = direction == 0;
+      int b = forward ? next(a) : previous(a);
+      double ab = distance(a, b);
+
+      for (int c : neighbors[a]) {
+        double ac = distance(a, c);
+        if (ac >= ab) {
+          break;
+        }
+
+        int d = forward ? next(c) : previous(c);
+        if (c == b || d == a) {
+          continue;
+        }
+
+        double delta = ac + distance(b, d) - ab - distance(c, d);
+        if (delta < -EPSILON) {
+          // a b ... c d -> a c ... b d, or b a ... d c -> b d ... a c
+          if (forward) {
+            reverse(position[b], position[c]);
+          } else {
+            reverse(position[a], position[d]);
+          }
+          touched[0] = a;
+          touched[1] = b;
+          touched[2] = c;
+          touched[3] = d;
+          return delta;
+        }
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Reverses the cyclic segment between two positions, inclusive. When the segment is more than
+   * half of the tour, its complement is reversed instead, which yields the same cycle.
+   *
+   * @param from Position of the first city of the segment
+   * @param to Position of the last city of the segment
+   */
+  void reverse(int from, int to) {
+    int length = ((to - from + n) % n) + 1;
+    if (2 * length > n) {
+      int newFrom = (to + 1) % n;
+      to = (from - 1 + n) % n;
+      from = newFrom;
+    }
+    if (journal != null) {
+      if (journalSize == journal.length) {
+        journal = Arrays.copyOf(journal, 2 * journalSize);
+      }
+      journal[journalSize++] = from;
+      journal[journalSize++] = to;
+    }
+    reverseSegment(from, to);
+  }
+
+  /** Reverses the cyclic segment between two positions, inclusive, as it is. */
+  private void reverseSegment(int from, int to) {
+    int length = ((to - from + n) % n) + 1;
+    for (int k = 0; k < length / 2; k++) {
+      int cityFrom = tour[from];
+      int cityTo = tour[to];
+      tour[from] = cityTo;
+      tour[to] = cityFrom;
+      position[cityTo] = from;
+      position[cityFrom] = to;
+      from = (from + 1) % n;
+      to = (to - 1 + n) % n;
+    }
+  }
+
+  private int next(int city) {
+    return tour[(position[city] + 1) % n];
+  }
+
+  private int previous(int city) {
+    return tour[(position[city] - 1 + n) % n];
+  }
+
+  private double distance(int i, int j) {
+    double dx = xPoints[i] - xPoints[j];
+    double dy = yPoints[i] - yPoints[j];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+}
@@ -0,0 +1,306 @@
+package edu.stockton.project.gui;
+
+import java.util.Arrays;
+
+/**
+ * Incremental repair of an existing tour after the stipple set has changed. Each stipple of the
+ * previous tour is matched to the nearest new stipple within half the mean stipple spacing.
+ * Unmatched old stipples are dropped from the tour, and unmatched new ones are added by cheapest
+ * insertion. A 2-opt pass then starts only from the cities whose surroundings changed.
+ */
+final class TourRepair {
+
+  private static final int NEIGHBORS = 8;
+  private static final double MATCH_RADIUS = 0.5;
+  private static final double MIN_MATCHED_FRACTION = 0.25;
+  private static final double EPSILON = 1e-9;
+
+  private final double[] xPoints;
+  private final double[] yPoints;
+  private final int[] next;
+  private final int[] previous;
+  private final boolean[] inTour;
+  private final boolean[] dirty;
+
+  private TourRepair(double[] xPoints, double[] yPoints) {
+    int n = xPoints.length;
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.next = new int[n];
+    this.previous = new int[n];
+    this.inTour = new boolean[n];
+    this.dirty = new boolean[n];
+  }
+
+  /**
+   * Repairs a tour for a changed stipple set.
+   *
+   * @param oldX x-coords of the previous stipples, in tour order
+   * @param oldY y-coords of the previous stipples, in tour order
+   * @param xPoints x-coords of the new stipples
+   * @param yPoints y-coords of the new stipples
+   * @param control Search control that is checked for stop requests (can be null)
+   * @return Tour as an order over the new stipples, or null if too few stipples match for a repair
+   *     to beat a fresh solve
+   */
+  static int[] repair(
+      double[] oldX, double[] oldY, double[] xPoints, double[] yPoints, SearchControl control) {
+    int n = xPoints.length;
+    if (n < 5 || oldX.length < 3) {
+      return null;
+    }
+
+    int[] matchOfOld = match(oldX, oldY, xPoints, yPoints);
+    int matched = 0;
+    for (int j : matchOfOld) {
+      if (j >= 0) {
+        matched++;
+      }
+    }
+    if (matched < Math.max(3, MIN_MATCHED_FRACTION * n)) {
+      return null;
+    }
+
+    TourRepair repair = new TourRepair(xPoints, yPoints);
+    int start = repair.keepMatched(matchOfOld, oldX, oldY);
+
+    int[][] neighbors = NeighborLists.nearest(xPoints, yPoints, NEIGHBORS);
+    repair.insertUnmatched(neighbors);
+
+    int[] tour = new int[n];
+    int city = start;
+    for (int k = 0; k < n; k++) {
+      tour[k] = city;
+      city = repair.next[city];
+    }
+
+    int dirtyCount = 0;
+    for (boolean d : repair.dirty) {
+      if (d) {
+        dirtyCount++;
+      }
+    }
+    int[] dirtyCities = new int[dirtyCount];
+    for (int i = 0, k = 0; i < n; i++) {
+      if (repair.dirty[i]) {
+        dirtyCities[k++] = i;
+      }
+    }
+    System.out.printf(
+        "Tour repair: kept %d of %d stipples, inserted %d, re-optimizing around %d%n",
+        matched, oldX.length, n - matched, dirtyCount);
+
+    TourImprover.twoOpt(tour, xPoints, yPoints, neighbors, control, dirtyCities);
+    return tour;
+  }
+
+  /**
+   * Greedily matches old stipples to new ones, closest pairs first, using nearest-neighbour lists
+   * over the union of both sets.
+   *
+   * @return For every old stipple the index of its new stipple, or -1 if it vanished
+   */
+  private static int[] match(double[] oldX, double[] oldY, double[] xPoints, double[] yPoints) {
+    int oldN = oldX.length;
+    int n = xPoints.length;
+
+    double[] allX = Arrays.copyOf(oldX, oldN + n);
+    double[] allY = Arrays.copyOf(oldY, oldN + n);
+    System.arraycopy(xPoints, 0, allX, oldN, n);
+    System.arraycopy(yPoints, 0, allY, oldN, n);
+    int[][] union = NeighborLists.nearest(allX, allY, NEIGHBORS);
+
+    // Candidate pairs of an old and a new stipple within the match radius
+    double radius = MATCH_RADIUS * meanSpacing(xPoints, yPoints);
+    int[] pairOld = new int[oldN * NEIGHBORS];
+    int[] pairNew = new int[oldN * NEIGHBORS];
+    double[] pairDistance = new double[oldN * NEIGHBORS];
+    int pairs = 0;
+    for (int i = 0; i < oldN; i++) {
+      for (int u : union[i]) {
+        if (u < oldN) {
+          continue;
+        }
+        double distance = Math.hypot(oldX[i] - allX[u], oldY[i] - allY[u]);
+        if (distance <= radius) {
+          pairOld[pairs] = i;
+          pairNew[pairs] = u - oldN;
+          pairDistance[pairs] = distance;
+          pairs++;
+        }
+      }
+    }
+
+    Integer[] order = new Integer[pairs];
+    for (int p = 0; p < pairs; p++) {
+      order[p] = p;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(pairDistance[a], pairDistance[b]));
+
+    int[] matchOfOld = new int[oldN];
+    boolean[] taken = new boolean[n];
+    Arrays.fill(matchOfOld, -1);
+    for (int p : order) {
+      if (matchOfOld[pairOld[p]] < 0 && !taken[pairNew[p]]) {
+        matchOfOld[pairOld[p]] = pairNew[p];
+        taken[pairNew[p]] = true;
+      }
+    }
+    return matchOfOld;
+  }
+
+  /**
+   * Links the matched stipples in the order of the previous tour. Stipples that moved and the
+   * stipples on either side of a dropped one are marked dirty.
+   *
+   * @return A city on the tour
+   */
+  private int keepMatched(int[] matchOfOld, double[] oldX, double[] oldY) {
+    int first = -1;
+    int last = -1;
+    boolean gap = false;
+
+    for (int i = 0; i < matchOfOld.length; i++) {
+      int j = matchOfOld[i];
+      if (j < 0) {
+        if (last >= 0) {
+          dirty[last] = true;
+        }
+        gap = true;
+        continue;
+      }
+
+      if (first < 0) {
+        first = j;
+      } else {
+        link(last, j);
+      }
+      inTour[j] = true;
+      if (gap || Math.hypot(oldX[i] - xPoints[j], oldY[i] - yPoints[j]) > EPSILON) {
+        dirty[j] = true;
+      }
+      gap = false;
+      last = j;
+    }
+
+    link(last, first);
+    if (gap) {
+      dirty[first] = true;
+    }
+    return first;
+  }
+
+  /**
+   * Adds every stipple that is not yet on the tour by cheapest insertion next to one of its nearest
+   * neighbours. Stipples are inserted in waves outward from the existing tour, so a neighbour is
+   * almost always available; otherwise the whole tour is scanned.
+   */
+  private void insertUnmatched(int[][] neighbors) {
+    int n = xPoints.length;
+    int[] pending = new int[n];
+    int pendingCount = 0;
+    for (int i = 0; i < n; i++) {
+      if (!inTour[i]) {
+        pending[pendingCount++] = i;
+      }
+    }
+
+    while (pendingCount > 0) {
+      int remaining = 0;
+      for (int k = 0; k < pendingCount; k++) {
+        int city = pending[k];
+        if (!insertNearNeighbors(city, neighbors[city])) {
+          pending[remaining++] = city;
+        }
+      }
+
+      if (remaining == pendingCount) {
+        insertAnywhere(pending[0]);
+        pending[0] = pending[--remaining];
+      }
+      pendingCount = remaining;
+    }
+  }
+
+  private boolean insertNearNeighbors(int city, int[] candidates) {
+    int bestAfter = -1;
+    double bestCost = Double.MAX_VALUE;
+    for (int c : candidates) {
+      if (!inTour[c]) {
+        continue;
+      }
+      double after = insertionCost(c, city);
+      if (after < bestCost) {
+        bestCost = after;
+        bestAfter = c;
+      }
+      double before = insertionCost(previous[c], city);
+      if (before < bestCost) {
+        bestCost = before;
+        bestAfter = previous[c];
+      }
+    }
+
+    if (bestAfter < 0) {
+      return false;
+    }
+    insertAfter(bestAfter, city);
+    return true;
+  }
+
+  private void insertAnywhere(int city) {
+    int bestAfter = -1;
+    double bestCost = Double.MAX_VALUE;
+    for (int c = 0; c < inTour.length; c++) {
+      if (inTour[c]) {
+        double cost = insertionCost(c, city);
+        if (cost < bestCost) {
+          bestCost = cost;
+          bestAfter = c;
+        }
+      }
+    }
+    insertAfter(bestAfter, city);
+  }
+
+  private double insertionCost(int after, int city) {
+    int before = next[after];
+    return distance(after, city) + distance(city, before) - distance(after, before);
+  }
+
+  private void insertAfter(int after, int city) {
+    int before = next[after];
+    link(after, city);
+    link(city, before);
+    inTour[city] = true;
+    dirty[after] = true;
+    dirty[city] = true;
+    dirty[before] = true;
+  }
+
+  private void link(int from, int to) {
+    next[from] = to;
+    previous[to] = from;
+  }
+
+  private double distance(int i, int j) {
+    double dx = xPoints[i] - xPoints[j];
+    double dy = yPoints[i] - yPoints[j];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  private static double meanSpacing(double[] xPoints, double[] yPoints) {
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int i = 0; i < xPoints.length; i++) {
+      minX = Math.min(minX, xPoints[i]);
+      maxX = Math.max(maxX, xPoints[i]);
+      minY = Math.min(minY, yPoints[i]);
+      maxY = Math.max(maxY, yPoints[i]);
+    }
+    double area = Math.max(maxX - minX, 1.0) * Math.max(maxY - minY, 1.0);
+    return Math.sqrt(area / xPoints.length);
+  }
+}
@@ -0,0 +1,209 @@
+package edu.stockton.project.gui;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Post-optimization of a finished tour by re-optimizing short windows of consecutive cities. Each
+ * window is an open path whose two end cities stay fixed, so windows that only share an end city
+ * are independent and a whole round of them is solved in parallel. Every round shifts the window
+ * boundaries, so defects that straddle a boundary in one round lie inside a window in the next.
+ */
+final class WindowOptimizer {
+
+  private static final double EPSILON = 1e-9;
+  private static final int MAX_SEGMENT = 3;
+
+  private final double[] xPoints;
+  private final double[] yPoints;
+
+  private WindowOptimizer(double[] xPoints, double[] yPoints) {
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+  }
+
+  /**
+   * Improves a tour in place by repeated rounds of window re-optimization.
+   *
+   * @param tour Order of the cities, modified in place
+   * @param xPoints Array of x-coords
+   * @param yPoints Array of y-coords
+   * @param windowSize Number of edges per window
+   * @param rounds Number of rounds, each with shifted window boundaries
+   * @param control Search control that is checked for stop requests (can be null)
+   * @param callback Progress callback (can be null)
+   * @return The total reduction in tour length
+   */
+  static double optimize(
+      int[] tour,
+      double[] xPoints,
+      double[] yPoints,
+      int windowSize,
+      int rounds,
+      SearchControl control,
+      TSPRunner.ProgressCallback callback) {
+    int n = tour.length;
+    if (n < 5 || windowSize < 3) {
+      return 0;
+    }
+
+    WindowOptimizer optimizer = new WindowOptimizer(xPoints, yPoints);
+    int size = Math.min(windowSize, n);
+    int windows = (n + size - 1) / size;
+    double total = 0;
+
+    for (int round = 0; round < rounds; round++) {
+      if (control != null && control.isStopped()) {
+        break;
+      }
+
+      int offset = (int) ((long) round * (size / 2 + 1) % n);
+      DoubleAdder gain = new DoubleAdder();
+      IntStream.range(0, windows)
+          .parallel()
+          .forEach(
+              w -> {
+                if (control == null || !control.isStopped()) {
+                  int start = offset + w * size;
+                  int end = Math.min(start + size, offset + n);
+                  gain.add(optimizer.optimizeWindow(tour, start, end));
+                }
+              });
+
+      total += gain.sum();
+      if (callback != null) {
+        callback.onProgress(
+            round + 1,
+            rounds,
+            String.format("Window round %d/%d: saved %.2f", round + 1, rounds, gain.sum()));
+      }
+    }
+
+    return total;
+  }
+
+  /**
+   * Re-optimizes the path between two tour positions and writes it back if it got shorter. Both
+   * positions are taken modulo the tour length, and the cities at them stay in place.
+   */
+  private double optimizeWindow(int[] tour, int start, int end) {
+    int n = tour.length;
+    int m = end - start + 1;
+    int[] path = new int[m];
+    for (int k = 0; k < m; k++) {
+      path[k] = tour[(start + k) % n];
+    }
+
+    double gain = 0;
+    boolean improved = true;
+    while (improved) {
+      double passGain = twoOpt(path) + orOpt(path);
+      gain += passGain;
+      improved = passGain > 0;
+    }
+
+    if (gain > 0) {
+      for (int k = 1; k < m - 1; k++) {
+        tour[(start + k) % n] = path[k];
+      }
+    }
+    return gain;
+  }
+
+  /** One pass of 2-opt on an open path with fixed end cities. */
+  private double twoOpt(int[] path) {
+    int m = path.length;
+    double gain = 0;
+    for (int i = 0; i < m - 3; i++) {
+      for (int j = i + 2; j < m - 1; j++) {
+        double delta =
+            distance(path[i], path[j])
+                + distance(path[i + 1], path[j + 1])
+                - distance(path[i], path[i + 1])
+                - distance(path[j], path[j + 1]);
+        if (delta < -EPSILON) {
+          reverse(path, i + 1, j);
+          gain -= delta;
+        }
+      }
+    }
+    return gain;
+  }
+
+  /**
+   * One pass of Or-opt on an open path with fixed end cities: segments of up to three cities are
+   * moved, possibly reversed, to a better place in the path.
+   */
+  private double orOpt(int[] path) {
+    int m = path.length;
+    double gain = 0;
+    for (int length = 1; length <= MAX_SEGMENT; length++) {
+      for (int i = 1; i + length < m; i++) {
+        int first = path[i];
+        int last = path[i + length - 1];
+        int before = path[i - 1];
+        int after = path[i + length];
+        double removed = distance(before, first) + distance(last, after) - distance(before, after);
+
+        int bestJ = -1;
+        boolean bestReversed = false;
+        double bestDelta = -EPSILON;
+        for (int j = 0; j < m - 1; j++) {
+          if (j >= i - 1 && j < i + length) {
+            continue;
+          }
+          double edge = distance(path[j], path[j + 1]);
+          double forward = distance(path[j], first) + distance(last, path[j + 1]) - edge;
+          double backward = distance(path[j], last) + distance(first, path[j + 1]) - edge;
+          double delta = Math.min(forward, backward) - removed;
+          if (delta < bestDelta) {
+            bestDelta = delta;
+            bestJ = j;
+            bestReversed = backward < forward;
+          }
+        }
+
+        if (bestJ >= 0) {
+          moveSegment(path, i, length, bestJ, bestReversed);
+          gain -= bestDelta;
+        }
+      }
+    }
+    return gain;
+  }
+
+  /** Moves path[i..i+length-1] between path[j] and path[j + 1]. */
+  private static void moveSegment(int[] path, int i, int length, int j, boolean reversed) {
+    int[] segment = new int[length];
+    System.arraycopy(path, i, segment, 0, length);
+    if (reversed) {
+      reverse(segment, 0, length - 1);
+    }
+
+    if (j < i) {
+      // Shift path[j+1..i-1] right to make room after path[j]
+      System.arraycopy(path, j + 1, path, j + 1 + length, i - j - 1);
+      System.arraycopy(segment, 0, path, j + 1, length);
+    } else {
+      // Shift path[i+length..j] left; the segment lands right before the old path[j + 1]
+      System.arraycopy(path, i + length, path, i, j - i - length + 1);
+      System.arraycopy(segment, 0, path, j - length + 1, length);
+    }
+  }
+
+  private static void reverse(int[] path, int from, int to) {
+    while (from < to) {
+      int swap = path[from];
+      path[from] = path[to];
+      path[to] = swap;
+      from++;
+      to--;
+    }
+  }
+
+  private double distance(int i, int j) {
+    double dx = xPoints[i] - xPoints[j];
+    double dy = yPoints[i] - yPoints[j];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+}
@@ -0,0 +1,126 @@
+package edu.stockton.project;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.function.IntBinaryOperator;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class PngEncoderTest {
+
+  /** Bytes of the PNG header up to the bit depth and color type. */
+  private static final int DEPTH_OFFSET = 8 + 8 + 8;
+
+  private static BufferedImage image(int type, int width, int height, IntBinaryOperator pixel) {
+    BufferedImage image = new BufferedImage(width, height, type);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, pixel.applyAsInt(x, y));
+      }
+    }
+    return image;
+  }
+
+  /** Noise that repeats every few hundred rows, so that blocks have matches across the seams. */
+  private static int noise(int x, int y) {
+    return new Random(31L * (y % 300) + x).nextInt();
+  }
+
+  private static byte[] encode(BufferedImage image, int level) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PngEncoder.write(image, out, level);
+    return out.toByteArray();
+  }
+
+  /** Encodes an image, checks the bit depth and color type, and decodes it with ImageIO. */
+  private static BufferedImage roundTrip(BufferedImage image, int level, int depth, int colorType)
+      throws IOException {
+    byte[] png = encode(image, level);
+    assertEquals(depth, png[DEPTH_OFFSET]);
+    assertEquals(colorType, png[DEPTH_OFFSET + 1]);
+    return ImageIO.read(new ByteArrayInputStream(png));
+  }
+
+  private static void assertSameRgb(BufferedImage expected, BufferedImage actual, boolean alpha) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    int mask = alpha ? 0xFFFFFFFF : 0xFFFFFF;
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(
+            expected.getRGB(x, y) & mask, actual.getRGB(x, y) & mask, "pixel " + x + "," + y);
+      }
+    }
+  }
+
+  /** Compares gray levels through the raster, as gray color models do not convert exactly. */
+  private static void assertSameGray(BufferedImage expected, BufferedImage actual, int maxSample) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        int gray = expected.getRGB(x, y) & 0xFF;
+        assertEquals(
+            gray * maxSample / 255, actual.getRaster().getSample(x, y, 0), "pixel " + x + "," + y);
+      }
+    }
+  }
+
+  @Test
+  void blackAndWhite() throws IOException {
+    // About 2 million pixels per block at one bit each
+    BufferedImage image =
+        image(
+            BufferedImage.TYPE_INT_RGB,
+            1000,
+            7000,
+            (x, y) -> (noise(x, y) & 1) == 0 ? 0xFFFFFF : 0);
+    for (int level : new int[] {0, 1, 6, 9}) {
+      assertSameGray(image, roundTrip(image, level, 1, 0), 1);
+    }
+  }
+
+  @Test
+  void grayscale() throws IOException {
+    BufferedImage image =
+        image(BufferedImage.TYPE_INT_RGB, 500, 1700, (x, y) -> (noise(x, y) & 0xFF) * 0x010101);
+    for (int level : new int[] {0, 1, 6, 9}) {
+      assertSameGray(image, roundTrip(image, level, 8, 0), 255);
+    }
+  }
+
+  @Test
+  void color() throws IOException {
+    BufferedImage image = image(BufferedImage.TYPE_INT_RGB, 300, 1000, PngEncoderTest::noise);
+    for (int level : new int[] {0, 1, 6, 9}) {
+      assertSameRgb(image, roundTrip(image, level, 8, 2), false);
+    }
+  }
+
+  @Test
+  void colorWithAlpha() throws IOException {
+    BufferedImage image = image(BufferedImage.TYPE_INT_ARGB, 300, 800, PngEncoderTest::noise);
+    for (int level : new int[] {0, 1, 6, 9}) {
+      assertSameRgb(image, roundTrip(image, level, 8, 6), true);
+    }
+  }
+
+  @Test
+  void imagesWithoutPackedRows() throws IOException {
+    BufferedImage parent = image(BufferedImage.TYPE_INT_ARGB, 400, 900, PngEncoderTest::noise);
+    // Rows spaced by the parent width, starting at an offset
+    BufferedImage inside = parent.getSubimage(50, 100, 300, 700);
+    assertSameRgb(inside, roundTrip(inside, 6, 8, 6), true);
+    // Full-width rows that start at an offset
+    BufferedImage bottom = parent.getSubimage(0, 200, 400, 700);
+    assertSameRgb(bottom, roundTrip(bottom, 6, 8, 6), true);
+
+    BufferedImage bgr = image(BufferedImage.TYPE_3BYTE_BGR, 300, 1000, PngEncoderTest::noise);
+    assertSameRgb(bgr, roundTrip(bgr, 6, 8, 2), false);
+  }
+}
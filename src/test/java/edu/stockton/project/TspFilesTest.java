@@ -0,0 +1,175 @@
+package edu.stockton.project;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TspFilesTest {
+
+  @TempDir Path dir;
+
+  /** Points on a thousandth of a pixel, which the .tsp scale keeps exactly. */
+  private static double[][] points(int n) {
+    Random random = new Random(n);
+    double[][] points = new double[2][n];
+    for (int i = 0; i < n; i++) {
+      points[0][i] = random.nextInt(2_000_000) / 1000.0;
+      points[1][i] = random.nextInt(1_500_000) / 1000.0;
+    }
+    return points;
+  }
+
+  private static int[] tour(int n) {
+    Random random = new Random(n);
+    int[] tour = new int[n];
+    for (int i = 0; i < n; i++) {
+      tour[i] = i;
+    }
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int swap = tour[i];
+      tour[i] = tour[j];
+      tour[j] = swap;
+    }
+    return tour;
+  }
+
+  private Path write(String name, String... lines) throws IOException {
+    Path file = dir.resolve(name);
+    Files.write(file, List.of(lines));
+    return file;
+  }
+
+  @Test
+  void tspRoundTrip() throws IOException {
+    double[][] points = points(500);
+    Path file = dir.resolve("points.tsp");
+    TspFiles.writePoints(file, points);
+
+    List<String> lines = Files.readAllLines(file);
+    assertTrue(lines.contains("COMMENT : Coordinates are pixels scaled by 1000"));
+    assertTrue(lines.contains("EDGE_WEIGHT_TYPE : EUC_2D"));
+    int section = lines.indexOf("NODE_COORD_SECTION");
+    for (String line : lines.subList(section + 1, section + 1 + 500)) {
+      assertTrue(line.matches("\\d+ \\d+ \\d+"), line);
+    }
+
+    double[][] read = TspFiles.readPoints(file);
+    assertArrayEquals(points[0], read[0], 1e-9);
+    assertArrayEquals(points[1], read[1], 1e-9);
+  }
+
+  @Test
+  void tspWithoutScaleComment() throws IOException {
+    Path file =
+        write(
+            "foreign.tsp",
+            "NAME : foreign",
+            "TYPE : TSP",
+            "DIMENSION : 3",
+            "EDGE_WEIGHT_TYPE : EUC_2D",
+            "NODE_COORD_SECTION",
+            "2 10 20",
+            "1 1.5 2.5",
+            "3 7 8",
+            "EOF");
+    double[][] read = TspFiles.readPoints(file);
+    assertArrayEquals(new double[] {1.5, 10, 7}, read[0], 0);
+    assertArrayEquals(new double[] {2.5, 20, 8}, read[1], 0);
+  }
+
+  @Test
+  void tourRoundTrip() throws IOException {
+    int[] tour = tour(500);
+    Path file = dir.resolve("order.tour");
+    TspFiles.writeTour(file, tour);
+    assertArrayEquals(tour, TspFiles.readTour(file));
+  }
+
+  @Test
+  void tourSectionIsWhitespaceSeparated() throws IOException {
+    Path file =
+        write(
+            "packed.tour",
+            "NAME : packed",
+            "TYPE : TOUR",
+            "DIMENSION : 6",
+            "TOUR_SECTION",
+            "3 1 6",
+            "  2\t5",
+            "4 -1",
+            "EOF");
+    assertArrayEquals(new int[] {2, 0, 5, 1, 4, 3}, TspFiles.readTour(file));
+
+    Path unterminated = write("open.tour", "DIMENSION : 3", "TOUR_SECTION", "3 1 2");
+    assertArrayEquals(new int[] {2, 0, 1}, TspFiles.readTour(unterminated));
+  }
+
+  @Test
+  void binaryRoundTrip() throws IOException {
+    // Larger than one write buffer
+    double[][] points = points(70_000);
+    Path pointFile = dir.resolve("points.pts");
+    TspFiles.writePoints(pointFile, points);
+    double[][] read = TspFiles.readPoints(pointFile);
+    assertArrayEquals(points[0], read[0], 0);
+    assertArrayEquals(points[1], read[1], 0);
+
+    int[] tour = tour(70_000);
+    Path tourFile = dir.resolve("order.ord");
+    TspFiles.writeTour(tourFile, tour);
+    assertArrayEquals(tour, TspFiles.readTour(tourFile));
+  }
+
+  @Test
+  void truncatedFiles() throws IOException {
+    Path tsp = dir.resolve("points.tsp");
+    TspFiles.writePoints(tsp, points(10));
+    List<String> lines = Files.readAllLines(tsp);
+    Files.write(tsp, lines.subList(0, lines.size() - 4));
+    assertThrows(IOException.class, () -> TspFiles.readPoints(tsp));
+
+    Path tour = write("short.tour", "DIMENSION : 4", "TOUR_SECTION", "1 2", "3", "-1", "EOF");
+    assertThrows(IOException.class, () -> TspFiles.readTour(tour));
+    Path noSection = write("none.tour", "DIMENSION : 4", "EOF");
+    assertThrows(IOException.class, () -> TspFiles.readTour(noSection));
+
+    Path pts = dir.resolve("points.pts");
+    TspFiles.writePoints(pts, points(10));
+    byte[] pointBytes = Files.readAllBytes(pts);
+    Files.write(pts, Arrays.copyOf(pointBytes, pointBytes.length - 8));
+    assertThrows(IOException.class, () -> TspFiles.readPoints(pts));
+
+    Path ord = dir.resolve("order.ord");
+    TspFiles.writeTour(ord, tour(10));
+    byte[] tourBytes = Files.readAllBytes(ord);
+    Files.write(ord, Arrays.copyOf(tourBytes, tourBytes.length - 4));
+    assertThrows(IOException.class, () -> TspFiles.readTour(ord));
+  }
+
+  @Test
+  void duplicateNodes() throws IOException {
+    Path tsp = write("twice.tsp", "DIMENSION : 2", "NODE_COORD_SECTION", "1 0 0", "1 5 5", "EOF");
+    assertThrows(IOException.class, () -> TspFiles.readPoints(tsp));
+
+    Path tour = write("twice.tour", "DIMENSION : 3", "TOUR_SECTION", "1 2 2 -1", "EOF");
+    assertThrows(IOException.class, () -> TspFiles.readTour(tour));
+    Path tooMany = write("long.tour", "DIMENSION : 2", "TOUR_SECTION", "1 2 1 -1", "EOF");
+    assertThrows(IOException.class, () -> TspFiles.readTour(tooMany));
+    Path outOfRange = write("range.tour", "DIMENSION : 2", "TOUR_SECTION", "1 3 -1", "EOF");
+    assertThrows(IOException.class, () -> TspFiles.readTour(outOfRange));
+
+    Path ord = dir.resolve("twice.ord");
+    TspFiles.writeTour(ord, new int[] {0, 1, 1});
+    assertThrows(IOException.class, () -> TspFiles.readTour(ord));
+  }
+}
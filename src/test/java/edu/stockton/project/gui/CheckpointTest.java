@@ -0,0 +1,115 @@
+package edu.stockton.project.gui;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckpointTest {
+
+  @TempDir Path dir;
+
+  private static Checkpoint sample(int[] tour) {
+    return sample(tour, null);
+  }
+
+  private static Checkpoint sample(int[] tour, Checkpoint.Population population) {
+    int n = tour.length;
+    double[] x = new double[n];
+    double[] y = new double[n];
+    for (int i = 0; i < n; i++) {
+      x[i] = i * 1.5;
+      y[i] = 100 - i;
+    }
+    ParameterConfig config = new ParameterConfig();
+    config.setStippleCount(n);
+    config.setSteadyState(true);
+    config.setPopulationSize(40);
+    return new Checkpoint(config, x, y, tour, 123.25, 5000, 3, 60_000, population);
+  }
+
+  @Test
+  void roundTrip() throws IOException {
+    Checkpoint original = sample(new int[] {3, 0, 4, 1, 2});
+    Path file = dir.resolve("checkpoint.bin");
+    original.write(file);
+
+    Checkpoint read = Checkpoint.read(file);
+    assertArrayEquals(original.xPoints, read.xPoints);
+    assertArrayEquals(original.yPoints, read.yPoints);
+    assertArrayEquals(original.bestTour, read.bestTour);
+    assertEquals(original.bestCost, read.bestCost);
+    assertEquals(original.generations, read.generations);
+    assertEquals(original.restarts, read.restarts);
+    assertEquals(original.elapsedMillis, read.elapsedMillis);
+    assertEquals(5, read.config.getStippleCount());
+    assertEquals(40, read.config.getPopulationSize());
+    assertTrue(read.config.isSteadyState());
+    assertNull(read.population);
+  }
+
+  @Test
+  void roundTripWithPopulation() throws IOException {
+    int[][] members = {{0, 1, 2, 3, 4}, {4, 3, 2, 1, 0}, {2, 0, 4, 1, 3}};
+    Path file = dir.resolve("checkpoint.bin");
+    sample(new int[] {3, 0, 4, 1, 2}, new Checkpoint.Population(members, -42L)).write(file);
+
+    Checkpoint read = Checkpoint.read(file);
+    assertEquals(-42L, read.population.seed);
+    assertEquals(members.length, read.population.members.length);
+    for (int i = 0; i < members.length; i++) {
+      assertArrayEquals(members[i], read.population.members[i]);
+    }
+  }
+
+  @Test
+  void truncatedFile() throws IOException {
+    Path file = dir.resolve("checkpoint.bin");
+    sample(new int[] {3, 0, 4, 1, 2}).write(file);
+    byte[] bytes = Files.readAllBytes(file);
+
+    // Cut inside the population size, the tour, the stipples and the configuration
+    for (int cut : new int[] {bytes.length - 1, bytes.length - 5, bytes.length - 40, 40}) {
+      Files.write(file, Arrays.copyOf(bytes, cut));
+      assertThrows(IOException.class, () -> Checkpoint.read(file), "cut at " + cut);
+    }
+  }
+
+  @Test
+  void corruptStippleCount() throws IOException {
+    Path file = dir.resolve("checkpoint.bin");
+    sample(new int[] {3, 0, 4, 1, 2}).write(file);
+    byte[] bytes = Files.readAllBytes(file);
+    // The count precedes 5 coordinate pairs, 5 tour entries and an empty population
+    int countOffset = bytes.length - 5 * (2 * Double.BYTES + Integer.BYTES) - 2 * Integer.BYTES;
+
+    for (int n : new int[] {-1, Integer.MAX_VALUE, 6}) {
+      ByteBuffer.wrap(bytes).putInt(countOffset, n);
+      Files.write(file, bytes);
+      assertThrows(IOException.class, () -> Checkpoint.read(file), "count " + n);
+    }
+  }
+
+  @Test
+  void tourNotAPermutation() throws IOException {
+    Path file = dir.resolve("checkpoint.bin");
+    sample(new int[] {3, 0, 3, 1, 2}).write(file);
+    assertThrows(IOException.class, () -> Checkpoint.read(file));
+
+    sample(new int[] {3, 0, 5, 1, 2}).write(file);
+    assertThrows(IOException.class, () -> Checkpoint.read(file));
+
+    int[][] members = {{0, 1, 2, 3, 4}, {0, 1, 1, 3, 4}};
+    sample(new int[] {3, 0, 4, 1, 2}, new Checkpoint.Population(members, 7)).write(file);
+    assertThrows(IOException.class, () -> Checkpoint.read(file));
+  }
+}